@@ -0,0 +1,53 @@
+package com.cellent.spring.utils.junit_spring.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks given on the command line (all if none are given) with the GC profiler, which reports allocation
+ * rates and allocated bytes per operation next to the timings. All other JMH command line options work as usual. On
+ * Java 9 and later the forked JVMs open java.lang to cglib, which Mockito 1.10 creates its mocks with.
+ * 
+ * @author bjoern
+ */
+public final class BenchmarkRunner {
+
+	/**
+	 * Opens java.lang to cglib, which fails without on Java 16 and later.
+	 */
+	private static final String ADD_OPENS = "--add-opens=java.base/java.lang=ALL-UNNAMED";
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private BenchmarkRunner() {
+	}
+
+	/**
+	 * @param args
+	 *            JMH command line options.
+	 * @throws RunnerException
+	 *             If running the benchmarks fails.
+	 * @throws CommandLineOptionException
+	 *             If the options are invalid.
+	 */
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		List<String> jvmArgsAppend = new ArrayList<String>();
+		if (commandLineOptions.getJvmArgsAppend().hasValue()) {
+			jvmArgsAppend.addAll(commandLineOptions.getJvmArgsAppend().get());
+		}
+		if (!System.getProperty("java.specification.version").startsWith("1.") && !jvmArgsAppend.contains(ADD_OPENS)) {
+			jvmArgsAppend.add(ADD_OPENS);
+		}
+		new Runner(new OptionsBuilder().parent(commandLineOptions).addProfiler(GCProfiler.class)
+				.jvmArgsAppend(jvmArgsAppend.toArray(new String[jvmArgsAppend.size()])).build()).run();
+	}
+}
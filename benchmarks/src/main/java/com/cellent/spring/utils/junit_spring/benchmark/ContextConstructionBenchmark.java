@@ -0,0 +1,59 @@
+package com.cellent.spring.utils.junit_spring.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.benchmark.beans.Delegate;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+
+/**
+ * Cost of setting up an empty context, i.e. the fixed cost every test pays before doing anything.
+ * 
+ * @author bjoern
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContextConstructionBenchmark {
+
+	/** Fixture to fork from. */
+	private TestApplicationContext fixture;
+
+	/** Set up fixture. */
+	@Setup
+	public void setUp() {
+		fixture = new MockitoApplicationContext();
+		fixture.getInstance(Delegate.class);
+		fixture.setValue("bean.name", "benchmark");
+	}
+
+	/**
+	 * @return A new context.
+	 */
+	@Benchmark
+	public TestApplicationContext newContext() {
+		return new MockitoApplicationContext();
+	}
+
+	/**
+	 * @return A fork of an existing fixture.
+	 */
+	@Benchmark
+	public TestApplicationContext fork() {
+		return fixture.fork();
+	}
+}
@@ -0,0 +1,99 @@
+package com.cellent.spring.utils.junit_spring.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cellent.spring.utils.junit_spring.benchmark.beans.ConstructorInjectedBean;
+import com.cellent.spring.utils.junit_spring.benchmark.beans.Delegate;
+import com.cellent.spring.utils.junit_spring.benchmark.beans.FieldInjectedBean;
+import com.cellent.spring.utils.junit_spring.benchmark.beans.SetterInjectedBean;
+import com.cellent.spring.utils.junit_spring.benchmark.beans.ValueInjectedBean;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+
+/**
+ * Cost of {@code createInstance} for every injection style. The mock of the delegate already exists, so this measures
+ * instantiation and injection only. Comparing useFastInjection false and true shows the gain of the fast injectors,
+ * which take over from Spring's post processor after the first few injections of a class. Comparing useInjectionPlans
+ * false and true shows the gain of resolving the constructor once per class instead of on every createInstance, most
+ * of all for constructorInjection; without plans, constructors are also called by reflection instead of through a
+ * method handle.
+ * 
+ * @author bjoern
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CreateInstanceBenchmark {
+
+	/** Whether the injection metadata is shared by all contexts. */
+	@Param({ "false", "true" })
+	public boolean shareInjectionMetadata;
+
+	/** Whether classes injected often are injected by a fast injector. */
+	@Param({ "false", "true" })
+	public boolean useFastInjection;
+
+	/** Whether the constructor of a class is resolved once and cached in its InjectionPlan. */
+	@Param({ "false", "true" })
+	public boolean useInjectionPlans;
+
+	/** Context used by all invocations. */
+	private MockitoApplicationContext context;
+
+	/** Set up context. */
+	@Setup
+	public void setUp() {
+		context = new MockitoApplicationContext();
+		context.setShareInjectionMetadata(shareInjectionMetadata);
+		context.setUseFastInjection(useFastInjection);
+		context.setUseInjectionPlans(useInjectionPlans);
+		context.getInstance(Delegate.class);
+		context.setValue("bean.name", "benchmark");
+	}
+
+	/**
+	 * @return Bean with an autowired field.
+	 */
+	@Benchmark
+	public Object fieldInjection() {
+		return context.createInstance(FieldInjectedBean.class);
+	}
+
+	/**
+	 * @return Bean with an autowired setter.
+	 */
+	@Benchmark
+	public Object setterInjection() {
+		return context.createInstance(SetterInjectedBean.class);
+	}
+
+	/**
+	 * @return Bean with an autowired constructor.
+	 */
+	@Benchmark
+	public Object constructorInjection() {
+		return context.createInstance(ConstructorInjectedBean.class);
+	}
+
+	/**
+	 * @return Bean with a value on a field.
+	 */
+	@Benchmark
+	public Object valueInjection() {
+		return context.createInstance(ValueInjectedBean.class);
+	}
+}
@@ -0,0 +1,77 @@
+package com.cellent.spring.utils.junit_spring.benchmark;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.benchmark.beans.Delegate;
+import com.cellent.spring.utils.junit_spring.benchmark.beans.Filler;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+
+/**
+ * Cost of {@code getInstance} on a context with many registered instances: a hit on an instance known to the context,
+ * and a miss which looks through the registered instances and then creates a mock.
+ * 
+ * @author bjoern
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GetInstanceBenchmark {
+
+	/** Number of instances of distinct classes registered in the context. */
+	@Param({ "1", "300" })
+	public int registeredInstances;
+
+	/** Context with {@link #registeredInstances} registered instances. */
+	private TestApplicationContext context;
+
+	/**
+	 * Set up context.
+	 * 
+	 * @throws Exception
+	 *             If a {@link Filler} cannot be loaded.
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		context = new MockitoApplicationContext();
+		URL location = Filler.class.getProtectionDomain().getCodeSource().getLocation();
+		for (int i = 0; i < registeredInstances; i++) {
+			ClassLoader loader = new URLClassLoader(new URL[] { location }, null);
+			context.registerInstance(loader.loadClass(Filler.class.getName()).newInstance());
+		}
+		context.getInstance(Delegate.class);
+	}
+
+	/**
+	 * @return The mock which is already known for its type.
+	 */
+	@Benchmark
+	public Object hit() {
+		return context.getInstance(Delegate.class);
+	}
+
+	/**
+	 * @return A new mock, as nothing is known for the type in a fresh fork.
+	 */
+	@Benchmark
+	public Object miss() {
+		return context.fork().getInstance(Runnable.class);
+	}
+}
@@ -0,0 +1,48 @@
+package com.cellent.spring.utils.junit_spring.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cellent.spring.utils.junit_spring.benchmark.beans.FieldInjectedBean;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+
+/**
+ * The life of a context in a typical test: create it, create the class under test with a mocked delegate, close it.
+ * With pooling, the mock of the delegate is created once and reset afterwards.
+ * 
+ * @author bjoern
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MockPoolBenchmark {
+
+	/** Whether mocks are pooled. */
+	@Param({ "false", "true" })
+	public boolean poolMocks;
+
+	/**
+	 * @return The class under test of the closed context.
+	 */
+	@Benchmark
+	public Object testLifecycle() {
+		MockitoApplicationContext context = new MockitoApplicationContext();
+		context.setPoolMocks(poolMocks);
+		FieldInjectedBean result = context.createInstance(FieldInjectedBean.class);
+		context.close();
+		return result;
+	}
+}
@@ -0,0 +1,78 @@
+package com.cellent.spring.utils.junit_spring.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.benchmark.beans.ConstructorInjectedBean;
+import com.cellent.spring.utils.junit_spring.benchmark.beans.Delegate;
+import com.cellent.spring.utils.junit_spring.benchmark.beans.FieldInjectedBean;
+import com.cellent.spring.utils.junit_spring.benchmark.beans.SetterInjectedBean;
+import com.cellent.spring.utils.junit_spring.benchmark.beans.ValueInjectedBean;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+
+/**
+ * The first instances of the bean classes in a fresh JVM, as the first tests of a surefire fork create them, without and
+ * with the on-disk plan index. Every measurement is a fork of its own; with the index, the warm-up fork writes it and
+ * the measured forks read it. The mock and the value are created beforehand, so only discovering and injecting the
+ * beans is measured.
+ *
+ * @author bjoern
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 20, warmups = 1)
+@State(Scope.Benchmark)
+public class PlanIndexBenchmark {
+
+	/** Instances of every bean class created in the measured first test. */
+	private static final int INSTANCES_PER_CLASS = 5;
+
+	/** Whether the plan index is used. */
+	@Param({ "false", "true" })
+	public boolean planIndex;
+
+	/** Context with the mock and value the beans need. */
+	private TestApplicationContext context;
+
+	/** Set up the index and the context. */
+	@Setup
+	public void setUp() {
+		if (planIndex) {
+			System.setProperty("junit-spring.plan-index", new File(System.getProperty("java.io.tmpdir"),
+					"junit-spring-benchmark-plans.idx").getPath());
+		}
+		context = new MockitoApplicationContext();
+		context.getInstance(Delegate.class);
+		context.setValue("bean.name", "benchmark");
+	}
+
+	/**
+	 * @param blackhole
+	 *            Consumes the instances.
+	 */
+	@Benchmark
+	public void firstInstances(Blackhole blackhole) {
+		for (int i = 0; i < INSTANCES_PER_CLASS; i++) {
+			blackhole.consume(context.createInstance(FieldInjectedBean.class));
+			blackhole.consume(context.createInstance(SetterInjectedBean.class));
+			blackhole.consume(context.createInstance(ConstructorInjectedBean.class));
+			blackhole.consume(context.createInstance(ValueInjectedBean.class));
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.cellent.spring.utils.junit_spring.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cellent.spring.utils.junit_spring.benchmark.beans.PlaceholderInjectedBean;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+
+/**
+ * A test using the values of a production properties file of thousands of keys: reading the file and registering
+ * every entry by setValue in each test, against loadValues, which reads the file once per JVM.
+ * 
+ * @author bjoern
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PropertiesValuesBenchmark {
+
+	/** Number of keys in the file. */
+	private static final int KEYS = 5000;
+
+	/** The properties file. */
+	private File file;
+
+	/**
+	 * Write the properties file.
+	 * 
+	 * @throws IOException
+	 *             If it cannot be written.
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		file = File.createTempFile("benchmark", ".properties");
+		Properties properties = new Properties();
+		for (int i = 0; i < KEYS; i++) {
+			properties.setProperty("service" + i + ".endpoint", "http://${bean.host}/service/" + i);
+		}
+		properties.setProperty("bean.host", "localhost");
+		properties.setProperty("bean.url", "jdbc:postgresql://${bean.host}/test");
+		OutputStream out = new FileOutputStream(file);
+		try {
+			properties.store(out, null);
+		} finally {
+			out.close();
+		}
+	}
+
+	/** Delete the properties file. */
+	@TearDown
+	public void tearDown() {
+		file.delete();
+	}
+
+	/**
+	 * @return The class under test, with values registered one by one from the file read by the test.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 */
+	@Benchmark
+	public PlaceholderInjectedBean setValueEach() throws IOException {
+		MockitoApplicationContext context = new MockitoApplicationContext();
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(file);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		for (String key : properties.stringPropertyNames()) {
+			context.setValue(key, properties.getProperty(key));
+		}
+		context.setValue("${bean.url}", "jdbc:postgresql://" + properties.getProperty("bean.host") + "/test");
+		context.setValue("${bean.user:sa}", "sa");
+		return context.createInstance(PlaceholderInjectedBean.class);
+	}
+
+	/**
+	 * @return The class under test, with values loaded from the file.
+	 */
+	@Benchmark
+	public PlaceholderInjectedBean loadValues() {
+		MockitoApplicationContext context = new MockitoApplicationContext();
+		context.loadValues("file:" + file.getPath());
+		return context.createInstance(PlaceholderInjectedBean.class);
+	}
+}
@@ -0,0 +1,120 @@
+package com.cellent.spring.utils.junit_spring.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.kubek2k.springockito.annotations.SpringockitoContextLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.benchmark.beans.Delegate;
+import com.cellent.spring.utils.junit_spring.benchmark.beans.FieldInjectedBean;
+import com.cellent.spring.utils.junit_spring.benchmark.beans.SetterInjectedBean;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.springtest.TestApplicationContextLoader;
+
+/**
+ * The same test fixture, a field and a setter injected bean sharing one mocked delegate, bootstrapped the Springockito
+ * way (as SpringJUnit4ClassRunner does with the context.xml in junit-spring's tests) and with junit-spring, both by code
+ * and from the same context.xml, directly and through its context loader for SpringJUnit4ClassRunner.
+ * 
+ * Note that SpringJUnit4ClassRunner caches the application context between tests of the same configuration, unless a test
+ * is marked dirty. {@link #springockito()} is the cost of a test with a fresh context.
+ * 
+ * @author bjoern
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpringockitoBenchmark {
+
+	/** Location of the Springockito context. */
+	private static final String LOCATION = "classpath:springockito-context.xml";
+
+	/**
+	 * Test instance which gets its dependencies injected, like a test class run by SpringJUnit4ClassRunner.
+	 */
+	public static class InjectedTest {
+
+		@Autowired
+		FieldInjectedBean fieldInjectedBean;
+
+		@Autowired
+		SetterInjectedBean setterInjectedBean;
+
+		@Autowired
+		Delegate delegate;
+	}
+
+	/**
+	 * @return The test instance with everything injected.
+	 * @throws Exception
+	 *             If the context cannot be loaded.
+	 */
+	@Benchmark
+	public Object springockito() throws Exception {
+		SpringockitoContextLoader loader = new SpringockitoContextLoader();
+		String[] locations = loader.processLocations(InjectedTest.class, LOCATION);
+		ConfigurableApplicationContext applicationContext = loader.loadContext(locations);
+		InjectedTest test = new InjectedTest();
+		applicationContext.getAutowireCapableBeanFactory().autowireBeanProperties(test,
+				AutowireCapableBeanFactory.AUTOWIRE_NO, false);
+		applicationContext.close();
+		return test;
+	}
+
+	/**
+	 * @return The test instance with everything injected, like {@link #springockito()} with only the loader replaced.
+	 */
+	@Benchmark
+	public Object testApplicationContextLoader() {
+		TestApplicationContextLoader loader = new TestApplicationContextLoader();
+		String[] locations = loader.processLocations(InjectedTest.class, LOCATION);
+		ConfigurableApplicationContext applicationContext = (ConfigurableApplicationContext) loader
+				.loadContext(locations);
+		InjectedTest test = new InjectedTest();
+		applicationContext.getAutowireCapableBeanFactory().autowireBeanProperties(test,
+				AutowireCapableBeanFactory.AUTOWIRE_NO, false);
+		applicationContext.close();
+		return test;
+	}
+
+	/**
+	 * @return The test instance with everything injected.
+	 */
+	@Benchmark
+	public Object junitSpring() {
+		TestApplicationContext context = new MockitoApplicationContext();
+		InjectedTest test = new InjectedTest();
+		test.fieldInjectedBean = context.createInstance(FieldInjectedBean.class);
+		test.setterInjectedBean = context.createInstance(SetterInjectedBean.class);
+		test.delegate = context.getInstance(Delegate.class);
+		return test;
+	}
+
+	/**
+	 * @return The test instance with everything injected from the beans of the Springockito context, as a suite
+	 *         migrating its XML files would do.
+	 */
+	@Benchmark
+	public Object junitSpringXml() {
+		TestApplicationContext context = new MockitoApplicationContext();
+		context.loadBeans(LOCATION);
+		InjectedTest test = new InjectedTest();
+		context.processInjection(test);
+		return test;
+	}
+}
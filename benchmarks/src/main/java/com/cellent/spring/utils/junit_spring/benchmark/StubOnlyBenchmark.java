@@ -0,0 +1,101 @@
+package com.cellent.spring.utils.junit_spring.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.cellent.spring.utils.junit_spring.benchmark.beans.Delegate;
+import com.cellent.spring.utils.junit_spring.benchmark.beans.FieldInjectedBean;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+
+/**
+ * A scenario test calling an auto-created mock very often, with recording and with stub-only mocks. Besides the time,
+ * the heap used by the context and its mock at the end of the scenario is reported as retainedBytes: it grows with
+ * the number of invocations for recording mocks and stays bounded for stub-only ones.
+ *
+ * @author bjoern
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Thread)
+public class StubOnlyBenchmark {
+
+	/** Whether the mocks are stub-only. */
+	@Param({ "false", "true" })
+	public boolean stubOnly;
+
+	/** Invocations of the mock in one scenario. */
+	@Param({ "10000", "100000" })
+	public int invocations;
+
+	/**
+	 * Heap retained by a scenario, reported next to its time.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class RetainedHeap {
+
+		/** Bytes used by the context and its mock at the end of the scenario. */
+		public long retainedBytes;
+	}
+
+	/**
+	 * @param retainedHeap
+	 *            Receives the heap retained by the scenario.
+	 * @param blackhole
+	 *            Consumes the answers of the mock.
+	 */
+	@Benchmark
+	public void testScenario(RetainedHeap retainedHeap, Blackhole blackhole) {
+		long usedWithScenario = runScenario(blackhole);
+		retainedHeap.retainedBytes = Math.max(0, usedWithScenario - usedHeapAfterGc());
+	}
+
+	/**
+	 * Run the scenario, in a method of its own so that nothing of it is left when it returns.
+	 *
+	 * @param blackhole
+	 *            Consumes the answers of the mock.
+	 * @return The used heap at the end of the scenario.
+	 */
+	private long runScenario(Blackhole blackhole) {
+		MockitoApplicationContext context = new MockitoApplicationContext();
+		context.setStubOnly(stubOnly);
+		Delegate delegate = context.createInstance(FieldInjectedBean.class).getDelegate();
+		Mockito.when(delegate.call()).thenReturn("stubbed");
+		for (int i = 0; i < invocations; i++) {
+			blackhole.consume(delegate.call());
+		}
+		long result = usedHeapAfterGc();
+		blackhole.consume(delegate);
+		context.close();
+		return result;
+	}
+
+	/**
+	 * @return The used heap after a full collection.
+	 */
+	private static long usedHeapAfterGc() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		System.gc();
+		System.gc();
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
@@ -0,0 +1,31 @@
+package com.cellent.spring.utils.junit_spring.benchmark.beans;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+/**
+ * Bean with an autowired constructor, one parameter of which is a {@link Value}.
+ * 
+ * @author bjoern
+ */
+public class ConstructorInjectedBean {
+
+	private final Delegate delegate;
+
+	private final String name;
+
+	@Autowired
+	public ConstructorInjectedBean(Delegate delegate, @Value("bean.name") String name) {
+		this.delegate = delegate;
+		this.name = name;
+	}
+
+	public Delegate getDelegate() {
+		return delegate;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+}
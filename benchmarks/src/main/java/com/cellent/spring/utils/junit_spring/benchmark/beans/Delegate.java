@@ -0,0 +1,12 @@
+package com.cellent.spring.utils.junit_spring.benchmark.beans;
+
+/**
+ * Collaborator which is mocked in all benchmarks.
+ * 
+ * @author bjoern
+ */
+public interface Delegate {
+
+	String call();
+
+}
@@ -0,0 +1,19 @@
+package com.cellent.spring.utils.junit_spring.benchmark.beans;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Bean with an autowired field.
+ * 
+ * @author bjoern
+ */
+public class FieldInjectedBean {
+
+	@Autowired
+	private Delegate delegate;
+
+	public Delegate getDelegate() {
+		return delegate;
+	}
+
+}
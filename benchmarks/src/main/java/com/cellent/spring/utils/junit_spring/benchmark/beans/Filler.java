@@ -0,0 +1,11 @@
+package com.cellent.spring.utils.junit_spring.benchmark.beans;
+
+/**
+ * Class without any dependencies. Loaded by separate class loaders it gives any number of distinct classes to fill a
+ * context with.
+ * 
+ * @author bjoern
+ */
+public class Filler {
+
+}
@@ -0,0 +1,26 @@
+package com.cellent.spring.utils.junit_spring.benchmark.beans;
+
+import org.springframework.beans.factory.annotation.Value;
+
+/**
+ * Bean with {@link Value}s taken from a properties file, by placeholders.
+ * 
+ * @author bjoern
+ */
+public class PlaceholderInjectedBean {
+
+	@Value("${bean.url}")
+	private String url;
+
+	@Value("${bean.user:sa}")
+	private String user;
+
+	public String getUrl() {
+		return url;
+	}
+
+	public String getUser() {
+		return user;
+	}
+
+}
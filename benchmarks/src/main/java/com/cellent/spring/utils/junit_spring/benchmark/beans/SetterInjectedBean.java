@@ -0,0 +1,23 @@
+package com.cellent.spring.utils.junit_spring.benchmark.beans;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Bean with an autowired setter.
+ * 
+ * @author bjoern
+ */
+public class SetterInjectedBean {
+
+	private Delegate delegate;
+
+	@Autowired
+	public void setDelegate(Delegate delegate) {
+		this.delegate = delegate;
+	}
+
+	public Delegate getDelegate() {
+		return delegate;
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.cellent.spring.utils.junit_spring.benchmark.beans;
+
+import org.springframework.beans.factory.annotation.Value;
+
+/**
+ * Bean with a {@link Value} on a field.
+ * 
+ * @author bjoern
+ */
+public class ValueInjectedBean {
+
+	@Value("bean.name")
+	private String name;
+
+	public String getName() {
+		return name;
+	}
+
+}
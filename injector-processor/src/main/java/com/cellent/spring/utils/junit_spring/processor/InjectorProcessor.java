@@ -0,0 +1,895 @@
+package com.cellent.spring.utils.junit_spring.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a BeanInjector for every class which uses Autowired or Value, so that junit-spring can create and inject
+ * it by plain Java code instead of Spring's reflective injection. The injector is named like the class plus "_Injector" and placed in the same package.
+ *
+ * Injected fields and methods the injector cannot access, e.g. private ones, are set through reflection objects which
+ * the injector looks up once when it is loaded. So an injector only works without reflection if all injected members
+ * of its bean are visible in its package. Classes the injector cannot create or name are skipped with a note and
+ * keep being injected by reflection, e.g. generic classes, or classes without a single public default or Autowired
+ * constructor.
+ *
+ * The processor does nothing (but tell so in a note) if junit-spring is not on the compile classpath, so it is safe to
+ * have it on any processor path. To get injectors for production beans without junit-spring on their compile
+ * classpath, run it over the main sources with the test classpath and compile the injectors with the tests, see the
+ * README.
+ *
+ * @author bjoern
+ */
+@SupportedAnnotationTypes({ InjectorProcessor.AUTOWIRED, InjectorProcessor.VALUE })
+public class InjectorProcessor extends AbstractProcessor {
+
+	/** Spring's Autowired annotation. */
+	static final String AUTOWIRED = "org.springframework.beans.factory.annotation.Autowired";
+
+	/** Spring's Value annotation. */
+	static final String VALUE = "org.springframework.beans.factory.annotation.Value";
+
+	/** The interface generated injectors implement. */
+	static final String BEAN_INJECTOR = "com.cellent.spring.utils.junit_spring.api.BeanInjector";
+
+	/** The interface injectors get their dependencies from. */
+	static final String BEAN_INSTANCE_PROVIDER = "com.cellent.spring.utils.junit_spring.api.BeanInstanceProvider";
+
+	/** Spring's description of a type with its type arguments, which Values are converted to. */
+	static final String TYPE_DESCRIPTOR = "org.springframework.core.convert.TypeDescriptor";
+
+	/** Suffix of the name of a generated injector. */
+	static final String INJECTOR_SUFFIX = "_Injector";
+
+	/**
+	 * Classes already handled, generated or skipped, so nothing is generated twice.
+	 */
+	private final Set<String> handledClasses = new HashSet<String>();
+
+	/**
+	 * Whether the note that junit-spring is missing was given already.
+	 */
+	private boolean missingBeanInjectorNoted;
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.annotation.processing.AbstractProcessor#getSupportedSourceVersion()
+	 */
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.annotation.processing.AbstractProcessor#process(java.util.Set,
+	 * javax.annotation.processing.RoundEnvironment)
+	 */
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (annotations.isEmpty()) {
+			return false;
+		}
+		if (processingEnv.getElementUtils().getTypeElement(BEAN_INJECTOR) == null) {
+			if (!missingBeanInjectorNoted) {
+				missingBeanInjectorNoted = true;
+				processingEnv.getMessager().printMessage(Kind.NOTE,
+						"No injectors generated: " + BEAN_INJECTOR + " is not on the compile classpath");
+			}
+			return false;
+		}
+		Set<TypeElement> beans = new LinkedHashSet<TypeElement>();
+		for (TypeElement annotation : annotations) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				TypeElement bean = enclosingType(element);
+				if (bean != null && handledClasses.add(bean.getQualifiedName().toString())) {
+					beans.add(bean);
+				}
+			}
+		}
+		for (TypeElement bean : beans) {
+			String reason = generateInjector(bean);
+			if (reason != null) {
+				processingEnv.getMessager().printMessage(Kind.NOTE,
+						"No injector generated for " + bean.getQualifiedName() + ": " + reason, bean);
+			}
+		}
+		// Autowired and Value are not ours, other processors may want them too.
+		return false;
+	}
+
+	/**
+	 * Give the class a field, method, constructor or parameter belongs to.
+	 *
+	 * @param element
+	 *            An annotated element.
+	 * @return Its class, null if it is not part of a class.
+	 */
+	private static TypeElement enclosingType(Element element) {
+		Element current = element;
+		while (current != null && !current.getKind().isClass()) {
+			current = current.getEnclosingElement();
+		}
+		return (TypeElement) current;
+	}
+
+	/**
+	 * Generate the injector of a bean class.
+	 *
+	 * @param bean
+	 *            The bean class.
+	 * @return null if the injector was generated, otherwise the reason why not.
+	 */
+	private String generateInjector(TypeElement bean) {
+		if (bean.getKind() != ElementKind.CLASS || bean.getModifiers().contains(Modifier.ABSTRACT)) {
+			return "not a concrete class";
+		}
+		if (!isPublicAndStatic(bean)) {
+			return "class or one of its enclosing classes is not public and static";
+		}
+		if (!bean.getTypeParameters().isEmpty()) {
+			return "class is generic";
+		}
+		PackageElement beanPackage = processingEnv.getElementUtils().getPackageOf(bean);
+		ExecutableElement constructor = chooseConstructor(bean);
+		if (constructor == null) {
+			return "no public default constructor and not exactly one public Autowired constructor";
+		}
+		List<Element> members = new ArrayList<Element>();
+		String reason = collectMembers(bean, beanPackage, members);
+		if (reason == null) {
+			reason = checkParameters(constructor, beanPackage);
+		}
+		if (reason != null) {
+			return reason;
+		}
+		try {
+			writeInjector(bean, beanPackage, constructor, members);
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Kind.ERROR, "Cannot write injector: " + e.getMessage(), bean);
+		}
+		return null;
+	}
+
+	/**
+	 * Choose the constructor junit-spring would use: the only public constructor if it has no parameters, otherwise the
+	 * only public Autowired constructor.
+	 *
+	 * @param bean
+	 *            The bean class.
+	 * @return The constructor, null if there is none of these.
+	 */
+	private ExecutableElement chooseConstructor(TypeElement bean) {
+		List<ExecutableElement> publicConstructors = new ArrayList<ExecutableElement>();
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(bean.getEnclosedElements())) {
+			if (constructor.getModifiers().contains(Modifier.PUBLIC)) {
+				publicConstructors.add(constructor);
+			}
+		}
+		if (publicConstructors.size() == 1 && publicConstructors.get(0).getParameters().isEmpty()) {
+			return publicConstructors.get(0);
+		}
+		ExecutableElement result = null;
+		for (ExecutableElement constructor : publicConstructors) {
+			if (findAnnotation(constructor, AUTOWIRED) != null) {
+				if (result != null) {
+					return null;
+				}
+				result = constructor;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Collect all injected fields and methods of the class and its superclasses, superclasses first and fields before
+	 * methods, which is the order Spring injects them in.
+	 *
+	 * @param bean
+	 *            The bean class.
+	 * @param beanPackage
+	 *            The package of the bean class, where the injector is generated.
+	 * @param members
+	 *            The list to add the members to.
+	 * @return null, if all members can be injected from the injector, otherwise the reason why not.
+	 */
+	private String collectMembers(TypeElement bean, PackageElement beanPackage, List<Element> members) {
+		List<TypeElement> hierarchy = new ArrayList<TypeElement>();
+		for (TypeElement current = bean; current != null; current = superclassOf(current)) {
+			hierarchy.add(0, current);
+		}
+		for (TypeElement current : hierarchy) {
+			for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+				if (isInjected(field)) {
+					if (field.getModifiers().contains(Modifier.FINAL)) {
+						return "field " + field + " is final";
+					}
+					String reason = checkMember(field, field.asType(), beanPackage);
+					if (reason != null) {
+						return reason;
+					}
+					members.add(field);
+				}
+			}
+			for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+				if (isInjected(method)) {
+					if (current != bean && isOverridden(method, current, bean)) {
+						return "method " + method + " is overridden";
+					}
+					String reason = checkMember(method, null, beanPackage);
+					if (reason == null) {
+						reason = checkParameters(method, beanPackage);
+					}
+					if (reason != null) {
+						return reason;
+					}
+					members.add(method);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param member
+	 *            A field or method.
+	 * @return true, if Spring injects it: not static and annotated with Autowired or Value.
+	 */
+	private static boolean isInjected(Element member) {
+		return !member.getModifiers().contains(Modifier.STATIC)
+				&& (findAnnotation(member, AUTOWIRED) != null || findAnnotation(member, VALUE) != null);
+	}
+
+	/**
+	 * Check whether a method of a superclass is overridden somewhere between the bean and that superclass.
+	 *
+	 * @param method
+	 *            The method.
+	 * @param declaringClass
+	 *            The superclass declaring the method.
+	 * @param bean
+	 *            The bean class.
+	 * @return true, if the method is overridden.
+	 */
+	private boolean isOverridden(ExecutableElement method, TypeElement declaringClass, TypeElement bean) {
+		for (TypeElement current = bean; current != null && current != declaringClass; current = superclassOf(current)) {
+			for (ExecutableElement candidate : ElementFilter.methodsIn(current.getEnclosedElements())) {
+				if (processingEnv.getElementUtils().overrides(candidate, method, bean)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Check whether the type of a field can be named in the injector. The field itself need not be accessible, see
+	 * {@link #needsReflection(Element, PackageElement)}.
+	 *
+	 * @param member
+	 *            The field or method.
+	 * @param type
+	 *            The type of the field, null for methods.
+	 * @param beanPackage
+	 *            The package of the injector.
+	 * @return null, if it can be named, otherwise the reason why not.
+	 */
+	private String checkMember(Element member, TypeMirror type, PackageElement beanPackage) {
+		if (type != null) {
+			return checkType(type, beanPackage, findAnnotation(member, VALUE) != null);
+		}
+		return null;
+	}
+
+	/**
+	 * @param member
+	 *            An injected field or method.
+	 * @param beanPackage
+	 *            The package of the injector.
+	 * @return true, if the injector cannot access it directly, because it or its class is private or not visible in the
+	 *         package of the injector.
+	 */
+	private boolean needsReflection(Element member, PackageElement beanPackage) {
+		Set<Modifier> modifiers = member.getModifiers();
+		if (modifiers.contains(Modifier.PRIVATE)) {
+			return true;
+		}
+		if (!modifiers.contains(Modifier.PUBLIC)
+				&& !processingEnv.getElementUtils().getPackageOf(member).equals(beanPackage)) {
+			return true;
+		}
+		return !isAccessible((TypeElement) member.getEnclosingElement(), beanPackage);
+	}
+
+	/**
+	 * Check the parameters of a constructor or method.
+	 *
+	 * @param executable
+	 *            The constructor or method.
+	 * @param beanPackage
+	 *            The package of the injector.
+	 * @return null, if all parameters can be provided by the injector, otherwise the reason why not.
+	 */
+	private String checkParameters(ExecutableElement executable, PackageElement beanPackage) {
+		boolean methodIsValue = findAnnotation(executable, VALUE) != null;
+		for (VariableElement parameter : executable.getParameters()) {
+			boolean isValue = methodIsValue
+					|| (executable.getKind() == ElementKind.CONSTRUCTOR && findAnnotation(parameter, VALUE) != null);
+			String reason = checkType(parameter.asType(), beanPackage, isValue);
+			if (reason != null) {
+				return reason;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Check whether a type can be named in the injector.
+	 *
+	 * @param type
+	 *            The type of a field or parameter.
+	 * @param beanPackage
+	 *            The package of the injector.
+	 * @param isValue
+	 *            Whether the type is filled with a Value (primitives are possible then).
+	 * @return null, if it can be named, otherwise the reason why not.
+	 */
+	private String checkType(TypeMirror type, PackageElement beanPackage, boolean isValue) {
+		if (type.getKind().isPrimitive()) {
+			return isValue ? null : "primitive type " + type + " cannot be autowired";
+		}
+		if (!isAccessible(type, beanPackage)) {
+			return "type " + type + " is not visible in package " + beanPackage.getQualifiedName();
+		}
+		return null;
+	}
+
+	/**
+	 * @param type
+	 *            A type.
+	 * @param beanPackage
+	 *            The package of the injector.
+	 * @return true, if the type and all its type arguments can be named in the injector.
+	 */
+	private boolean isAccessible(TypeMirror type, PackageElement beanPackage) {
+		switch (type.getKind()) {
+		case ARRAY:
+			return isAccessible(((ArrayType) type).getComponentType(), beanPackage);
+		case DECLARED:
+			DeclaredType declaredType = (DeclaredType) type;
+			if (!isAccessible((TypeElement) declaredType.asElement(), beanPackage)) {
+				return false;
+			}
+			for (TypeMirror argument : declaredType.getTypeArguments()) {
+				if (!isAccessible(argument, beanPackage)) {
+					return false;
+				}
+			}
+			return true;
+		case WILDCARD:
+			WildcardType wildcard = (WildcardType) type;
+			TypeMirror bound = wildcard.getExtendsBound() != null ? wildcard.getExtendsBound() : wildcard
+					.getSuperBound();
+			return bound == null || isAccessible(bound, beanPackage);
+		default:
+			return type.getKind().isPrimitive();
+		}
+	}
+
+	/**
+	 * @param type
+	 *            A class or interface.
+	 * @param beanPackage
+	 *            The package of the injector.
+	 * @return true, if it and all classes it is nested in can be named in the injector.
+	 */
+	private boolean isAccessible(TypeElement type, PackageElement beanPackage) {
+		for (Element current = type; current.getKind() != ElementKind.PACKAGE; current = current
+				.getEnclosingElement()) {
+			Set<Modifier> modifiers = current.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE)
+					|| (!modifiers.contains(Modifier.PUBLIC) && !processingEnv.getElementUtils().getPackageOf(current)
+							.equals(beanPackage))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Write the source of the injector.
+	 *
+	 * @param bean
+	 *            The bean class.
+	 * @param beanPackage
+	 *            Its package.
+	 * @param constructor
+	 *            The constructor to use.
+	 * @param members
+	 *            The fields and methods to inject, in order.
+	 * @throws IOException
+	 *             If the source cannot be written.
+	 */
+	private void writeInjector(TypeElement bean, PackageElement beanPackage, ExecutableElement constructor,
+			List<Element> members) throws IOException {
+		String beanName = bean.getQualifiedName().toString();
+		String packageName = beanPackage.getQualifiedName().toString();
+		String injectorSimpleName = processingEnv.getElementUtils().getBinaryName(bean).toString()
+				.substring(packageName.isEmpty() ? 0 : packageName.length() + 1).replace('$', '_')
+				+ INJECTOR_SUFFIX;
+		String injectorName = packageName.isEmpty() ? injectorSimpleName : packageName + "." + injectorSimpleName;
+		JavaFileObject file = processingEnv.getFiler().createSourceFile(injectorName, bean);
+		Writer writer = file.openWriter();
+		PrintWriter out = new PrintWriter(writer);
+		try {
+			if (!packageName.isEmpty()) {
+				out.println("package " + packageName + ";");
+				out.println();
+			}
+			out.println("/**");
+			out.println(" * Injector for {@link " + beanName + "}, generated by " + getClass().getName()
+					+ ". Do not edit.");
+			out.println(" */");
+			out.println("public final class " + injectorSimpleName + " implements " + BEAN_INJECTOR + "<" + beanName
+					+ "> {");
+			out.println();
+			List<String> reflectionNames = writeReflectionConstants(out, members, beanPackage);
+			out.println("\t@SuppressWarnings(\"unchecked\")");
+			out.println("\tpublic " + beanName + " newInstance(" + BEAN_INSTANCE_PROVIDER + " provider) {");
+			List<String> arguments = new ArrayList<String>();
+			List<? extends VariableElement> parameters = constructor.getParameters();
+			for (int i = 0; i < parameters.size(); i++) {
+				VariableElement parameter = parameters.get(i);
+				String valueKey = annotationValue(findAnnotation(parameter, VALUE));
+				if (valueKey != null) {
+					out.println("\t\tObject value" + i + " = " + lookUpValue(valueKey, parameter.asType()) + ";");
+					out.println("\t\tif (value" + i + " == null) {");
+					out.println("\t\t\tthrow new IllegalArgumentException(" + literal("@Value-Annotation with key "
+							+ valueKey + ", but no value registered under this key.") + ");");
+					out.println("\t\t}");
+					arguments.add(cast(parameter.asType()) + "value" + i);
+				} else {
+					arguments.add(lookUpInstance(parameter.asType()));
+				}
+			}
+			out.println("\t\treturn new " + beanName + "(" + join(arguments) + ");");
+			out.println("\t}");
+			out.println();
+			out.println("\t@SuppressWarnings(\"unchecked\")");
+			out.println("\tpublic void injectMembers(" + beanName + " instance, " + BEAN_INSTANCE_PROVIDER
+					+ " provider) {");
+			for (int i = 0; i < members.size(); i++) {
+				writeMemberInjection(out, members.get(i), reflectionNames.get(i));
+			}
+			out.println("\t}");
+			if (reflectionNames.size() > Collections.frequency(reflectionNames, null)) {
+				writeReflectionHelpers(out, injectorSimpleName);
+			}
+			out.println("}");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Write the constants holding the Field or Method of each member the injector cannot access directly.
+	 *
+	 * @param out
+	 *            Where to write to.
+	 * @param members
+	 *            The fields and methods to inject, in order.
+	 * @param beanPackage
+	 *            The package of the injector.
+	 * @return The names of the constants per member, null for members accessed directly.
+	 */
+	private List<String> writeReflectionConstants(PrintWriter out, List<Element> members, PackageElement beanPackage) {
+		List<String> result = new ArrayList<String>();
+		for (int i = 0; i < members.size(); i++) {
+			Element member = members.get(i);
+			if (!needsReflection(member, beanPackage)) {
+				result.add(null);
+			} else if (member.getKind() == ElementKind.FIELD) {
+				result.add("FIELD_" + i);
+				out.println("\tprivate static final java.lang.reflect.Field FIELD_" + i + " = field("
+						+ declaringClass(member, beanPackage) + ", " + literal(member.getSimpleName().toString())
+						+ ");");
+			} else {
+				result.add("METHOD_" + i);
+				List<String> arguments = new ArrayList<String>();
+				arguments.add(declaringClass(member, beanPackage));
+				arguments.add(literal(member.getSimpleName().toString()));
+				for (VariableElement parameter : ((ExecutableElement) member).getParameters()) {
+					arguments.add(classLiteral(parameter.asType()));
+				}
+				out.println("\tprivate static final java.lang.reflect.Method METHOD_" + i + " = method("
+						+ join(arguments) + ");");
+			}
+		}
+		if (result.size() > Collections.frequency(result, null)) {
+			out.println();
+		}
+		return result;
+	}
+
+	/**
+	 * Write the injection of one field or method, exactly like junit-spring's reflective injection: Values which are
+	 * not known are not set on fields, but are passed as null to methods.
+	 *
+	 * @param out
+	 *            Where to write to.
+	 * @param member
+	 *            The field or method.
+	 * @param reflectionName
+	 *            The name of the constant holding the Field or Method of the member, null if it is accessed directly.
+	 */
+	private void writeMemberInjection(PrintWriter out, Element member, String reflectionName) {
+		String valueKey = annotationValue(findAnnotation(member, VALUE));
+		if (member.getKind() == ElementKind.FIELD) {
+			String value;
+			if (valueKey != null) {
+				out.println("\t\t{");
+				out.println("\t\t\tObject value = " + lookUpValue(valueKey, member.asType()) + ";");
+				out.println("\t\t\tif (value != null) {");
+				out.print("\t\t\t\t");
+				value = "value";
+			} else {
+				out.print("\t\t");
+				value = lookUpInstance(member.asType());
+			}
+			if (reflectionName != null) {
+				out.println("set(" + reflectionName + ", instance, " + value + ");");
+			} else {
+				out.println("instance." + member.getSimpleName() + " = "
+						+ (valueKey != null ? cast(member.asType()) : "") + value + ";");
+			}
+			if (valueKey != null) {
+				out.println("\t\t\t}");
+				out.println("\t\t}");
+			}
+			return;
+		}
+		ExecutableElement method = (ExecutableElement) member;
+		List<String> arguments = new ArrayList<String>();
+		for (VariableElement parameter : method.getParameters()) {
+			if (valueKey != null) {
+				arguments.add(cast(parameter.asType()) + lookUpValue(valueKey, parameter.asType()));
+			} else {
+				arguments.add(lookUpInstance(parameter.asType()));
+			}
+		}
+		if (reflectionName != null) {
+			arguments.add(0, "instance");
+			arguments.add(0, reflectionName);
+			out.println("\t\tinvoke(" + join(arguments) + ");");
+		} else {
+			out.println("\t\tinstance." + method.getSimpleName() + "(" + join(arguments) + ");");
+		}
+	}
+
+	/**
+	 * Write the static methods the injector uses for fields and methods it cannot access directly. Failures of the
+	 * lookup mean the bean changed since the injector was generated, so they are IllegalStateExceptions. Exceptions
+	 * thrown by an injected method are rethrown as they are, if possible.
+	 *
+	 * @param out
+	 *            Where to write to.
+	 * @param injectorSimpleName
+	 *            The name of the injector class.
+	 */
+	private static void writeReflectionHelpers(PrintWriter out, String injectorSimpleName) {
+		String[] lines = { "",
+				"private static Class<?> type(String name) {",
+				"\ttry {",
+				"\t\treturn Class.forName(name, false, " + injectorSimpleName + ".class.getClassLoader());",
+				"\t} catch (ClassNotFoundException e) {",
+				"\t\tthrow new IllegalStateException(e);",
+				"\t}",
+				"}",
+				"",
+				"private static java.lang.reflect.Field field(Class<?> type, String name) {",
+				"\ttry {",
+				"\t\tjava.lang.reflect.Field result = type.getDeclaredField(name);",
+				"\t\tresult.setAccessible(true);",
+				"\t\treturn result;",
+				"\t} catch (NoSuchFieldException e) {",
+				"\t\tthrow new IllegalStateException(e);",
+				"\t}",
+				"}",
+				"",
+				"private static java.lang.reflect.Method method(Class<?> type, String name, Class<?>... parameters) {",
+				"\ttry {",
+				"\t\tjava.lang.reflect.Method result = type.getDeclaredMethod(name, parameters);",
+				"\t\tresult.setAccessible(true);",
+				"\t\treturn result;",
+				"\t} catch (NoSuchMethodException e) {",
+				"\t\tthrow new IllegalStateException(e);",
+				"\t}",
+				"}",
+				"",
+				"private static void set(java.lang.reflect.Field field, Object instance, Object value) {",
+				"\ttry {",
+				"\t\tfield.set(instance, value);",
+				"\t} catch (IllegalAccessException e) {",
+				"\t\tthrow new IllegalStateException(e);",
+				"\t}",
+				"}",
+				"",
+				"private static void invoke(java.lang.reflect.Method method, Object instance, Object... arguments) {",
+				"\ttry {",
+				"\t\tmethod.invoke(instance, arguments);",
+				"\t} catch (IllegalAccessException e) {",
+				"\t\tthrow new IllegalStateException(e);",
+				"\t} catch (java.lang.reflect.InvocationTargetException e) {",
+				"\t\tif (e.getCause() instanceof RuntimeException) {",
+				"\t\t\tthrow (RuntimeException) e.getCause();",
+				"\t\t}",
+				"\t\tif (e.getCause() instanceof Error) {",
+				"\t\t\tthrow (Error) e.getCause();",
+				"\t\t}",
+				"\t\tthrow new IllegalStateException(e.getCause());",
+				"\t}",
+				"}" };
+		for (String line : lines) {
+			out.println(line.isEmpty() ? line : "\t" + line);
+		}
+	}
+
+	/**
+	 * @param member
+	 *            A field or method the injector accesses by reflection.
+	 * @param beanPackage
+	 *            The package of the injector.
+	 * @return The expression giving the class declaring the member: its class literal if it can be named in the
+	 *         injector, otherwise a lookup by its binary name.
+	 */
+	private String declaringClass(Element member, PackageElement beanPackage) {
+		TypeElement declaringClass = (TypeElement) member.getEnclosingElement();
+		if (isAccessible(declaringClass, beanPackage)) {
+			return processingEnv.getTypeUtils().erasure(declaringClass.asType()) + ".class";
+		}
+		return "type(" + literal(processingEnv.getElementUtils().getBinaryName(declaringClass).toString()) + ")";
+	}
+
+	/**
+	 * @param type
+	 *            An autowired type.
+	 * @return The expression which looks up an instance of that type.
+	 */
+	private String lookUpInstance(TypeMirror type) {
+		return cast(type) + "provider.getInstance(" + classLiteral(type) + ")";
+	}
+
+	/**
+	 * @param valueKey
+	 *            The key of a Value annotation.
+	 * @param type
+	 *            The type of the annotated field or parameter.
+	 * @return The expression which looks up the value converted to that type, with its type arguments if it has any,
+	 *         so that e.g. a List&lt;Integer&gt; gets Integers.
+	 */
+	private String lookUpValue(String valueKey, TypeMirror type) {
+		if (type.getKind() == TypeKind.DECLARED && !((DeclaredType) type).getTypeArguments().isEmpty()) {
+			return "provider.getValue(" + literal(valueKey) + ", " + typeDescriptor(type) + ")";
+		}
+		return "provider.getValue(" + literal(valueKey) + ", " + classLiteral(type) + ")";
+	}
+
+	/**
+	 * @param type
+	 *            A type.
+	 * @return The expression creating Spring's TypeDescriptor of the type, with the element types of collections and
+	 *         maps. Other type arguments, wildcards and type variables are erased.
+	 */
+	private String typeDescriptor(TypeMirror type) {
+		if (type.getKind() == TypeKind.WILDCARD) {
+			TypeMirror bound = ((WildcardType) type).getExtendsBound();
+			return typeDescriptor(bound != null ? bound : objectType());
+		}
+		if (type.getKind() == TypeKind.DECLARED) {
+			List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+			if (arguments.size() == 1 && isSubtypeOf(type, "java.util.Collection")) {
+				return TYPE_DESCRIPTOR + ".collection(" + classLiteral(type) + ", " + typeDescriptor(arguments.get(0))
+						+ ")";
+			}
+			if (arguments.size() == 2 && isSubtypeOf(type, "java.util.Map")) {
+				return TYPE_DESCRIPTOR + ".map(" + classLiteral(type) + ", " + typeDescriptor(arguments.get(0)) + ", "
+						+ typeDescriptor(arguments.get(1)) + ")";
+			}
+		}
+		return TYPE_DESCRIPTOR + ".valueOf(" + classLiteral(type) + ")";
+	}
+
+	/**
+	 * @param type
+	 *            A declared type.
+	 * @param supertype
+	 *            The qualified name of a class or interface.
+	 * @return true, if the erasure of the type is a subtype of the erasure of the other one.
+	 */
+	private boolean isSubtypeOf(TypeMirror type, String supertype) {
+		Types types = processingEnv.getTypeUtils();
+		TypeElement element = processingEnv.getElementUtils().getTypeElement(supertype);
+		return types.isSubtype(types.erasure(type), types.erasure(element.asType()));
+	}
+
+	/**
+	 * @return The type java.lang.Object.
+	 */
+	private TypeMirror objectType() {
+		return processingEnv.getElementUtils().getTypeElement("java.lang.Object").asType();
+	}
+
+	/**
+	 * @param type
+	 *            The type of a field or parameter.
+	 * @return The class literal of its erasure, e.g. java.util.List.class or int.class.
+	 */
+	private String classLiteral(TypeMirror type) {
+		return processingEnv.getTypeUtils().erasure(type) + ".class";
+	}
+
+	/**
+	 * @param type
+	 *            The type to cast to.
+	 * @return The cast expression, primitives are cast to their wrapper and unboxed by the compiler.
+	 */
+	private String cast(TypeMirror type) {
+		if (type.getKind().isPrimitive()) {
+			return "(" + processingEnv.getTypeUtils().boxedClass((PrimitiveType) type)
+					.getQualifiedName() + ") ";
+		}
+		return "(" + type + ") ";
+	}
+
+	/**
+	 * @param annotation
+	 *            A Value annotation, may be null.
+	 * @return Its value, null if the annotation is null.
+	 */
+	private static String annotationValue(AnnotationMirror annotation) {
+		if (annotation == null) {
+			return null;
+		}
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation
+				.getElementValues().entrySet()) {
+			if (entry.getKey().getSimpleName().contentEquals("value")) {
+				return (String) entry.getValue().getValue();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param element
+	 *            An element.
+	 * @param annotationName
+	 *            Qualified name of an annotation.
+	 * @return The annotation on the element, null if it is not present.
+	 */
+	private static AnnotationMirror findAnnotation(Element element, String annotationName) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(
+					annotationName)) {
+				return annotation;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param type
+	 *            A class.
+	 * @return true, if the class and all classes it is nested in are public, and nested ones are static.
+	 */
+	private static boolean isPublicAndStatic(TypeElement type) {
+		for (Element current = type; current.getKind().isClass() || current.getKind().isInterface(); current = current
+				.getEnclosingElement()) {
+			Set<Modifier> modifiers = current.getModifiers();
+			if (!modifiers.contains(Modifier.PUBLIC)) {
+				return false;
+			}
+			if (((TypeElement) current).getNestingKind() != NestingKind.TOP_LEVEL
+					&& !modifiers.contains(Modifier.STATIC)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param type
+	 *            A class.
+	 * @return Its superclass, null if it is Object.
+	 */
+	private static TypeElement superclassOf(TypeElement type) {
+		TypeMirror superclass = type.getSuperclass();
+		if (superclass.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		TypeElement result = (TypeElement) ((DeclaredType) superclass).asElement();
+		return result.getQualifiedName().contentEquals("java.lang.Object") ? null : result;
+	}
+
+	/**
+	 * @param value
+	 *            A string.
+	 * @return A Java string literal of it.
+	 */
+	private static String literal(String value) {
+		StringBuilder result = new StringBuilder("\"");
+		for (char c : value.toCharArray()) {
+			switch (c) {
+			case '"':
+				result.append("\\\"");
+				break;
+			case '\\':
+				result.append("\\\\");
+				break;
+			case '\n':
+				result.append("\\n");
+				break;
+			case '\r':
+				result.append("\\r");
+				break;
+			case '\t':
+				result.append("\\t");
+				break;
+			default:
+				result.append(c);
+			}
+		}
+		return result.append('"').toString();
+	}
+
+	/**
+	 * @param parts
+	 *            Expressions.
+	 * @return The expressions separated by commas.
+	 */
+	private static String join(List<String> parts) {
+		StringBuilder result = new StringBuilder();
+		for (String part : parts) {
+			if (result.length() > 0) {
+				result.append(", ");
+			}
+			result.append(part);
+		}
+		return result.toString();
+	}
+
+}
@@ -0,0 +1,329 @@
+package com.cellent.spring.utils.junit_spring.processor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cellent.spring.utils.junit_spring.api.BeanInjector;
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+
+/**
+ * Compiles sample beans with the {@link InjectorProcessor} and checks that the generated injectors are used by a
+ * context and inject the same as reflection would.
+ * 
+ * @author bjoern
+ */
+public class InjectorProcessorTest {
+
+	/** Where the sample sources are written to. */
+	private File sourceDir;
+
+	/** Where the sample classes are compiled to. */
+	private File classDir;
+
+	/** Create the directories. */
+	@Before
+	public void init() throws IOException {
+		sourceDir = createTempDir("sources");
+		classDir = createTempDir("classes");
+	}
+
+	/** Remove the directories. */
+	@After
+	public void cleanUp() {
+		delete(sourceDir);
+		delete(classDir);
+	}
+
+	/**
+	 * Constructor, field, setter and Value injection are done by the generated injector.
+	 */
+	@Test
+	public void testGeneratedInjectorInjectsLikeReflection() throws Exception {
+		writeSource("reflectionlike/Service.java", "package reflectionlike; public interface Service {}");
+		writeSource("reflectionlike/Other.java", "package reflectionlike; public interface Other {}");
+		writeSource("reflectionlike/Base.java", "package reflectionlike;\n" //
+				+ "import org.springframework.beans.factory.annotation.Autowired;\n" //
+				+ "public abstract class Base {\n" //
+				+ "  @Autowired protected Other inherited;\n" //
+				+ "  public Other getInherited() { return inherited; }\n" //
+				+ "}");
+		writeSource("reflectionlike/SampleBean.java", "package reflectionlike;\n" //
+				+ "import org.springframework.beans.factory.annotation.Autowired;\n" //
+				+ "import org.springframework.beans.factory.annotation.Value;\n" //
+				+ "public class SampleBean extends Base {\n" //
+				+ "  private final Service constructorService;\n" //
+				+ "  private final int answer;\n" //
+				+ "  @Autowired Service fieldService;\n" //
+				+ "  @Value(\"name\") String name;\n" //
+				+ "  @Value(\"missing\") String missing = \"default\";\n" //
+				+ "  @Value(\"ports\") java.util.List<Integer> ports;\n" //
+				+ "  private Other setterOther;\n" //
+				+ "  @Autowired public SampleBean(Service service, @Value(\"answer\") int answer) {\n" //
+				+ "    this.constructorService = service; this.answer = answer;\n" //
+				+ "  }\n" //
+				+ "  @Autowired public void setOther(Other other) { this.setterOther = other; }\n" //
+				+ "  public Service getConstructorService() { return constructorService; }\n" //
+				+ "  public int getAnswer() { return answer; }\n" //
+				+ "  public Service getFieldService() { return fieldService; }\n" //
+				+ "  public String getName() { return name; }\n" //
+				+ "  public String getMissing() { return missing; }\n" //
+				+ "  public java.util.List<Integer> getPorts() { return ports; }\n" //
+				+ "  public Other getSetterOther() { return setterOther; }\n" //
+				+ "}");
+		ClassLoader classLoader = compile();
+		Class<?> beanClass = classLoader.loadClass("reflectionlike.SampleBean");
+		Class<?> injectorClass = classLoader.loadClass("reflectionlike.SampleBean_Injector");
+		assertTrue(BeanInjector.class.isAssignableFrom(injectorClass));
+
+		TestApplicationContext context = new MockitoApplicationContext();
+		context.setValue("answer", "42");
+		context.setValue("name", "sample");
+		context.setValue("ports", "1,2");
+		Object bean = context.createInstance(beanClass);
+		Object service = context.getInstance(classLoader.loadClass("reflectionlike.Service"));
+		Object other = context.getInstance(classLoader.loadClass("reflectionlike.Other"));
+		assertSame(service, get(bean, "getConstructorService"));
+		assertEquals(Integer.valueOf(42), get(bean, "getAnswer"));
+		assertSame(service, get(bean, "getFieldService"));
+		assertEquals("sample", get(bean, "getName"));
+		assertEquals("default", get(bean, "getMissing"));
+		assertEquals(Arrays.asList(1, 2), get(bean, "getPorts"));
+		assertSame(other, get(bean, "getSetterOther"));
+		assertSame(other, get(bean, "getInherited"));
+	}
+
+	/**
+	 * Private fields and methods, and members of classes the injector cannot name, are injected through reflection
+	 * objects of the generated injector.
+	 */
+	@Test
+	public void testPrivateMembers() throws Exception {
+		writeSource("privatemembers/Service.java", "package privatemembers; public interface Service {}");
+		writeSource("privatemembers/hidden/Hidden.java", "package privatemembers.hidden;\n" //
+				+ "import org.springframework.beans.factory.annotation.Autowired;\n" //
+				+ "class Hidden {\n" //
+				+ "  @Autowired private privatemembers.Service hiddenService;\n" //
+				+ "  public privatemembers.Service getHiddenService() { return hiddenService; }\n" //
+				+ "}");
+		writeSource("privatemembers/hidden/Visible.java",
+				"package privatemembers.hidden; public class Visible extends Hidden {}");
+		writeSource("privatemembers/PrivateBean.java", "package privatemembers;\n" //
+				+ "import org.springframework.beans.factory.annotation.Autowired;\n" //
+				+ "import org.springframework.beans.factory.annotation.Value;\n" //
+				+ "public class PrivateBean extends privatemembers.hidden.Visible {\n" //
+				+ "  @Autowired private Service service;\n" //
+				+ "  @Value(\"answer\") private int answer;\n" //
+				+ "  private Service setterService;\n" //
+				+ "  @Autowired private void setService(Service service) { this.setterService = service; }\n" //
+				+ "  public Service getService() { return service; }\n" //
+				+ "  public int getAnswer() { return answer; }\n" //
+				+ "  public Service getSetterService() { return setterService; }\n" //
+				+ "}");
+		ClassLoader classLoader = compile();
+		assertNotNull(classLoader.loadClass("privatemembers.PrivateBean_Injector"));
+
+		TestApplicationContext context = new MockitoApplicationContext();
+		context.setValue("answer", "42");
+		Object bean = context.createInstance(classLoader.loadClass("privatemembers.PrivateBean"));
+		Object service = context.getInstance(classLoader.loadClass("privatemembers.Service"));
+		assertSame(service, get(bean, "getService"));
+		assertEquals(Integer.valueOf(42), get(bean, "getAnswer"));
+		assertSame(service, get(bean, "getSetterService"));
+		assertSame(service, get(bean, "getHiddenService"));
+	}
+
+	/**
+	 * The setup described in the README for production beans: they are compiled without the processor and without
+	 * junit-spring, the processor runs over their sources with the test class path only, and the injectors are compiled
+	 * separately, like test sources.
+	 */
+	@Test
+	public void testInjectorsForSeparatelyCompiledClasses() throws Exception {
+		writeSource("production/Service.java", "package production; public interface Service {}");
+		writeSource("production/ProductionBean.java", "package production;\n" //
+				+ "import org.springframework.beans.factory.annotation.Autowired;\n" //
+				+ "public class ProductionBean {\n" //
+				+ "  @Autowired private Service service;\n" //
+				+ "  public Service getService() { return service; }\n" //
+				+ "}");
+		File mainClasses = createTempDir("main-classes");
+		File injectorSources = createTempDir("injector-sources");
+		try {
+			compile(sourceDir, testClassPath(), mainClasses, "-proc:none");
+			assertFalse(new File(mainClasses, "production/ProductionBean_Injector.class").exists());
+			String testClassPath = testClassPath() + File.pathSeparator + mainClasses.getPath();
+			compile(sourceDir, testClassPath, classDir, "-proc:only", "-s", injectorSources.getPath());
+			assertTrue(new File(injectorSources, "production/ProductionBean_Injector.java").exists());
+			assertFalse(new File(classDir, "production/ProductionBean.class").exists());
+			compile(injectorSources, testClassPath, classDir, "-proc:none");
+
+			ClassLoader classLoader = new URLClassLoader(new URL[] { mainClasses.toURI().toURL(),
+					classDir.toURI().toURL() }, getClass().getClassLoader());
+			assertNotNull(classLoader.loadClass("production.ProductionBean_Injector"));
+			TestApplicationContext context = new MockitoApplicationContext();
+			Object bean = context.createInstance(classLoader.loadClass("production.ProductionBean"));
+			assertSame(context.getInstance(classLoader.loadClass("production.Service")), get(bean, "getService"));
+		} finally {
+			delete(mainClasses);
+			delete(injectorSources);
+		}
+	}
+
+	/**
+	 * Nested classes get an injector named after their binary name.
+	 */
+	@Test
+	public void testNestedClass() throws Exception {
+		writeSource("nested/Outer.java", "package nested;\n" //
+				+ "import org.springframework.beans.factory.annotation.Autowired;\n" //
+				+ "public class Outer {\n" //
+				+ "  public static class Inner {\n" //
+				+ "    @Autowired public Runnable runnable;\n" //
+				+ "  }\n" //
+				+ "}");
+		ClassLoader classLoader = compile();
+		assertNotNull(classLoader.loadClass("nested.Outer_Inner_Injector"));
+	}
+
+	/**
+	 * Compile all sources written so far with the processor.
+	 * 
+	 * @return A class loader for the compiled classes.
+	 */
+	private ClassLoader compile() throws IOException {
+		compile(sourceDir, testClassPath(), classDir, "-s", classDir.getPath());
+		return new URLClassLoader(new URL[] { classDir.toURI().toURL() }, getClass().getClassLoader());
+	}
+
+	/**
+	 * Compile all sources of a directory with the processor.
+	 * 
+	 * @param sources
+	 *            The source directory.
+	 * @param classPath
+	 *            The class path to compile against.
+	 * @param output
+	 *            Where to put the classes.
+	 * @param options
+	 *            Further compiler options.
+	 */
+	private static void compile(File sources, String classPath, File output, String... options) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+		try {
+			List<File> files = new ArrayList<File>();
+			collectSources(sources, files);
+			Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(files);
+			List<String> allOptions = new ArrayList<String>(Arrays.asList("-classpath", classPath, "-d",
+					output.getPath()));
+			allOptions.addAll(Arrays.asList(options));
+			CompilationTask task = compiler.getTask(null, fileManager, null, allOptions, null, units);
+			task.setProcessors(Arrays.asList(new InjectorProcessor()));
+			assertTrue("Compilation failed.", task.call().booleanValue());
+		} finally {
+			fileManager.close();
+		}
+	}
+
+	/**
+	 * @return The class path of this test, which contains junit-spring and Spring.
+	 */
+	private static String testClassPath() {
+		String result = System.getProperty("surefire.test.class.path");
+		return result != null ? result : System.getProperty("java.class.path");
+	}
+
+	/**
+	 * Call a getter.
+	 * 
+	 * @param bean
+	 *            The bean.
+	 * @param getter
+	 *            Name of the getter.
+	 * @return Its result.
+	 */
+	private static Object get(Object bean, String getter) throws Exception {
+		return bean.getClass().getMethod(getter).invoke(bean);
+	}
+
+	/**
+	 * Write a source file.
+	 * 
+	 * @param path
+	 *            Path relative to the source directory.
+	 * @param source
+	 *            The source code.
+	 */
+	private void writeSource(String path, String source) throws IOException {
+		File file = new File(sourceDir, path);
+		file.getParentFile().mkdirs();
+		Writer writer = new FileWriter(file);
+		try {
+			writer.write(source);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * @param dir
+	 *            A directory.
+	 * @param sources
+	 *            Where to add all java files in it.
+	 */
+	private static void collectSources(File dir, List<File> sources) {
+		for (File file : dir.listFiles()) {
+			if (file.isDirectory()) {
+				collectSources(file, sources);
+			} else if (file.getName().endsWith(".java")) {
+				sources.add(file);
+			}
+		}
+	}
+
+	/**
+	 * @param prefix
+	 *            Prefix of its name.
+	 * @return A new empty directory.
+	 */
+	private static File createTempDir(String prefix) throws IOException {
+		File result = File.createTempFile(prefix, "");
+		result.delete();
+		result.mkdirs();
+		return result;
+	}
+
+	/**
+	 * @param file
+	 *            File or directory to delete recursively.
+	 */
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,200 @@
+package com.cellent.spring.utils.junit_spring.jupiter;
+
+import java.lang.reflect.Method;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ExtensionContext.Namespace;
+import org.junit.jupiter.api.extension.ExtensionContext.Store.CloseableResource;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolutionException;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.impl.backing.AbstractTestApplicationContext;
+
+/**
+ * JUnit Jupiter extension which resolves parameters of type {@link TestApplicationContext}. Every test class gets one
+ * base context, kept in the store of the class: {@link BeforeAll}-methods get the base context itself and set up what
+ * all tests have in common. Every test gets a fork of it, which is also given to the Before- and AfterEach-methods of
+ * that test and closed after it:
+ *
+ * <pre>
+ * &#064;ExtendWith(TestApplicationContextExtension.class)
+ * class MyBeanTest {
+ *
+ * 	&#064;BeforeAll
+ * 	static void setUp(TestApplicationContext base) {
+ * 		base.setValue(&quot;url&quot;, &quot;http://localhost&quot;);
+ * 	}
+ *
+ * 	&#064;Test
+ * 	void test(TestApplicationContext context) {
+ * 		MyBean bean = context.createInstance(MyBean.class);
+ * 		...
+ * 	}
+ * }
+ * </pre>
+ *
+ * Forks do not change the base context, so the tests of a class may run concurrently. Every fork also creates its own
+ * mocks, even of the types the base context mocked already (see
+ * {@link AbstractTestApplicationContext#setOwnMocks(boolean)}), so a test stubs and verifies mocks no other test
+ * touches. Only beans the base context created itself keep the mocks of the base context, so create the beans a test
+ * is about in the context of the test. {@link Nested} test classes share the base context of their outermost class.
+ *
+ * With {@link ExtendWith}, the base contexts are {@link MockitoApplicationContext}s. Register the extension with
+ * {@link RegisterExtension} to use another kind of context, e.g.
+ * <code>new TestApplicationContextExtension(EasyMockApplicationContext::new)</code>.
+ *
+ * @author bjoern
+ */
+public class TestApplicationContextExtension implements ParameterResolver {
+
+	/**
+	 * The namespace of all contexts in the extension stores.
+	 */
+	private static final Namespace NAMESPACE = Namespace.create(TestApplicationContextExtension.class);
+
+	/**
+	 * Key of the base context in the store of a test class.
+	 */
+	private static final String BASE_CONTEXT = "baseContext";
+
+	/**
+	 * Key of the fork of the base context in the store of a test.
+	 */
+	private static final String TEST_CONTEXT = "testContext";
+
+	/**
+	 * Creates the base contexts.
+	 */
+	private final Supplier<? extends TestApplicationContext> baseContextFactory;
+
+	/**
+	 * Constructor of this class, with {@link MockitoApplicationContext}s as base contexts.
+	 */
+	public TestApplicationContextExtension() {
+		this(MockitoApplicationContext::new);
+	}
+
+	/**
+	 * Constructor of this class.
+	 *
+	 * @param baseContextFactory
+	 *            Creates the base context of every test class.
+	 */
+	public TestApplicationContextExtension(Supplier<? extends TestApplicationContext> baseContextFactory) {
+		this.baseContextFactory = baseContextFactory;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.junit.jupiter.api.extension.ParameterResolver#supportsParameter(org.junit.jupiter.api.extension.
+	 * ParameterContext, org.junit.jupiter.api.extension.ExtensionContext)
+	 */
+	@Override
+	public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+		// Constructors are left out, as they may be called for a test with the extension context of its class.
+		return parameterContext.getDeclaringExecutable() instanceof Method
+				&& TestApplicationContext.class.isAssignableFrom(parameterContext.getParameter().getType());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.junit.jupiter.api.extension.ParameterResolver#resolveParameter(org.junit.jupiter.api.extension.
+	 * ParameterContext, org.junit.jupiter.api.extension.ExtensionContext)
+	 */
+	@Override
+	public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+		TestApplicationContext result = extensionContext.getTestMethod().isPresent() ? testContext(extensionContext)
+				: baseContext(extensionContext);
+		Class<?> type = parameterContext.getParameter().getType();
+		if (!type.isInstance(result)) {
+			throw new ParameterResolutionException("The context is a " + result.getClass().getName() + ", not a "
+					+ type.getName() + ". Register the extension with a factory of the right contexts.");
+		}
+		return result;
+	}
+
+	/**
+	 * Give the fork of the base context for the given test, created on first call.
+	 *
+	 * @param testExtensionContext
+	 *            The extension context of a test.
+	 * @return The context of the test.
+	 */
+	private TestApplicationContext testContext(ExtensionContext testExtensionContext) {
+		return testExtensionContext.getStore(NAMESPACE).getOrComputeIfAbsent(TEST_CONTEXT,
+				key -> new ClosingContext(forkWithOwnMocks(baseContext(testExtensionContext))), ClosingContext.class).context;
+	}
+
+	/**
+	 * @param baseContext
+	 *            A base context.
+	 * @return A fork of it, which creates its own mocks if the kind of context supports this.
+	 */
+	private static TestApplicationContext forkWithOwnMocks(TestApplicationContext baseContext) {
+		TestApplicationContext result = baseContext.fork();
+		if (result instanceof AbstractTestApplicationContext) {
+			((AbstractTestApplicationContext) result).setOwnMocks(true);
+		}
+		return result;
+	}
+
+	/**
+	 * Give the base context of the outermost test class the given extension context belongs to, created on first call
+	 * from that class or any class nested in it. So nested test classes share the base context of their enclosing
+	 * class, whether or not it was used before.
+	 *
+	 * @param extensionContext
+	 *            The extension context of a test class or of anything in it.
+	 * @return The base context.
+	 */
+	private TestApplicationContext baseContext(ExtensionContext extensionContext) {
+		ExtensionContext classExtensionContext = extensionContext;
+		while (classExtensionContext.getParent().flatMap(ExtensionContext::getTestClass).isPresent()) {
+			classExtensionContext = classExtensionContext.getParent().get();
+		}
+		return classExtensionContext.getStore(NAMESPACE)
+				.getOrComputeIfAbsent(BASE_CONTEXT, key -> new ClosingContext(baseContextFactory.get()),
+						ClosingContext.class).context;
+	}
+
+	/**
+	 * Entry of a context in an extension store, closing it when the test or test class is done.
+	 */
+	private static final class ClosingContext implements CloseableResource {
+
+		/**
+		 * The context.
+		 */
+		private final TestApplicationContext context;
+
+		/**
+		 * Constructor of this class.
+		 *
+		 * @param context
+		 *            The context.
+		 */
+		ClosingContext(TestApplicationContext context) {
+			this.context = context;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.junit.jupiter.api.extension.ExtensionContext.Store.CloseableResource#close()
+		 */
+		@Override
+		public void close() {
+			context.close();
+		}
+	}
+}
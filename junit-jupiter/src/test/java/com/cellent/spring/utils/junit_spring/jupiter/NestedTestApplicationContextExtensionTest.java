@@ -0,0 +1,93 @@
+package com.cellent.spring.utils.junit_spring.jupiter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+
+/**
+ * Nested test classes share one base context, although the enclosing class does not use it before them.
+ *
+ * @author bjoern
+ */
+@ExtendWith(TestApplicationContextExtension.class)
+class NestedTestApplicationContextExtensionTest {
+
+	/** The base contexts given to the nested classes. */
+	private static final Set<TestApplicationContext> BASE_CONTEXTS = Collections
+			.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<TestApplicationContext, Boolean>()));
+
+	/**
+	 * Both nested classes got the base context of this class.
+	 *
+	 * @param base
+	 *            The base context of this class.
+	 */
+	@AfterAll
+	static void tearDown(TestApplicationContext base) {
+		assertEquals(Collections.singleton(base), BASE_CONTEXTS);
+	}
+
+	/**
+	 * A nested class.
+	 */
+	@Nested
+	@TestInstance(Lifecycle.PER_CLASS)
+	class First {
+
+		/**
+		 * @param base
+		 *            The base context.
+		 */
+		@BeforeAll
+		void setUp(TestApplicationContext base) {
+			BASE_CONTEXTS.add(base);
+		}
+
+		/**
+		 * @param context
+		 *            The context of the test.
+		 */
+		@Test
+		void test(TestApplicationContext context) {
+			assertFalse(BASE_CONTEXTS.contains(context));
+		}
+	}
+
+	/**
+	 * Another nested class.
+	 */
+	@Nested
+	@TestInstance(Lifecycle.PER_CLASS)
+	class Second {
+
+		/**
+		 * @param base
+		 *            The base context.
+		 */
+		@BeforeAll
+		void setUp(TestApplicationContext base) {
+			BASE_CONTEXTS.add(base);
+		}
+
+		/**
+		 * @param context
+		 *            The context of the test.
+		 */
+		@Test
+		void test(TestApplicationContext context) {
+			assertFalse(BASE_CONTEXTS.contains(context));
+		}
+	}
+}
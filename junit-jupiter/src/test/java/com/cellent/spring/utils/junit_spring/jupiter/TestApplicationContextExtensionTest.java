@@ -0,0 +1,163 @@
+package com.cellent.spring.utils.junit_spring.jupiter;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.RepetitionInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+
+/**
+ * Tests of this class run concurrently, each with its own fork of the base context set up in {@link #setUp}.
+ *
+ * @author bjoern
+ */
+@ExtendWith(TestApplicationContextExtension.class)
+@Execution(ExecutionMode.CONCURRENT)
+class TestApplicationContextExtensionTest {
+
+	/** Number of repetitions of the concurrent test. */
+	private static final int REPETITIONS = 16;
+
+	/** The base context given to {@link #setUp}. */
+	private static TestApplicationContext baseContext;
+
+	/** The mock the base context created. */
+	private static MyDelegate baseDelegate;
+
+	/** The contexts given to the tests. */
+	private static final Set<TestApplicationContext> TEST_CONTEXTS = Collections
+			.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<TestApplicationContext, Boolean>()));
+
+	/** The context given to {@link #beforeEach}. */
+	private TestApplicationContext beforeEachContext;
+
+	/**
+	 * Set up what all tests have in common.
+	 *
+	 * @param base
+	 *            The base context.
+	 */
+	@BeforeAll
+	static void setUp(TestApplicationContext base) {
+		baseContext = base;
+		base.setValue("greeting", "baseline");
+		baseDelegate = base.getInstance(MyDelegate.class);
+	}
+
+	/**
+	 * Every test got its own context, none of them is the base context, and the base context and its mock were not
+	 * changed.
+	 *
+	 * @param base
+	 *            The base context.
+	 */
+	@AfterAll
+	static void tearDown(TestApplicationContext base) {
+		assertSame(baseContext, base);
+		assertEquals(REPETITIONS + 2, TEST_CONTEXTS.size());
+		assertFalse(TEST_CONTEXTS.contains(base));
+		assertEquals("baseline", base.getValue("greeting"));
+		assertSame(baseDelegate, base.getInstance(MyDelegate.class));
+		verifyZeroInteractions(baseDelegate);
+	}
+
+	/**
+	 * Remember the context of the test.
+	 *
+	 * @param context
+	 *            The context of the test.
+	 */
+	@BeforeEach
+	void beforeEach(TestApplicationContext context) {
+		beforeEachContext = context;
+		TEST_CONTEXTS.add(context);
+	}
+
+	/**
+	 * Concurrent tests change their contexts and stub and verify their own mocks without seeing each other's changes.
+	 *
+	 * @param context
+	 *            The context of the test.
+	 * @param repetition
+	 *            The repetition.
+	 * @throws InterruptedException
+	 *             Not expected.
+	 */
+	@RepeatedTest(REPETITIONS)
+	void testIsolation(TestApplicationContext context, RepetitionInfo repetition) throws InterruptedException {
+		assertSame(beforeEachContext, context);
+		assertEquals("baseline", context.getValue("greeting"));
+		String greeting = "repetition " + repetition.getCurrentRepetition();
+		context.setValue("greeting", greeting);
+		MyBean bean = context.createInstance(MyBean.class);
+		assertNotSame(baseDelegate, bean.delegate);
+		when(bean.delegate.greet()).thenReturn(greeting);
+		Thread.sleep(5);
+		assertEquals(greeting, bean.greeting);
+		assertEquals(greeting, context.getInstance(MyDelegate.class).greet());
+		verify(context.getInstance(MyDelegate.class)).greet();
+	}
+
+	/**
+	 * The type of the parameter may be the type of the contexts.
+	 *
+	 * @param context
+	 *            The context of the test.
+	 */
+	@Test
+	void testConcreteType(MockitoApplicationContext context) {
+		assertSame(beforeEachContext, context);
+	}
+
+	/**
+	 * Another test.
+	 *
+	 * @param context
+	 *            The context of the test.
+	 */
+	@Test
+	void testBaseline(TestApplicationContext context) {
+		assertEquals("baseline", context.getValue("greeting"));
+	}
+
+	/**
+	 * A bean with an injected delegate and value.
+	 */
+	public static class MyBean {
+
+		/** A delegate. */
+		@Autowired
+		MyDelegate delegate;
+
+		/** A value. */
+		@Value("greeting")
+		String greeting;
+	}
+
+	/**
+	 * A delegate.
+	 */
+	public interface MyDelegate {
+
+		/**
+		 * @return A greeting.
+		 */
+		String greet();
+	}
+}
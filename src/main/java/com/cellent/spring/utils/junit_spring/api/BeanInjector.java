@@ -0,0 +1,48 @@
+package com.cellent.spring.utils.junit_spring.api;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.convert.TypeDescriptor;
+
+/**
+ * Creates and injects instances of one bean class by plain Java code instead of Spring's reflective injection.
+ * Implementations are usually generated at compile time by the injector annotation processor, which names them after
+ * the bean class plus "_Injector" in the same package (nested classes use "_" instead of "$"), e.g.
+ * com.acme.MyBean_Injector for com.acme.MyBean. If such a class exists, a {@link TestApplicationContext} uses it instead
+ * of Spring's reflective injection.
+ * 
+ * Implementations need a public default constructor and must behave exactly like the reflective injection: resolve
+ * {@link Autowired} dependencies by {@link BeanInstanceProvider#getInstance(Class)} and {@link Value}s by
+ * {@link BeanInstanceProvider#getValue(String, Class)}, or by {@link BeanInstanceProvider#getValue(String, TypeDescriptor)}
+ * for generic types, so that they are converted to the type of the field or parameter. Generated injectors still set
+ * private members, and members they cannot name otherwise, through Field and Method objects.
+ * 
+ * @param <T>
+ *            The bean class.
+ * @author bjoern
+ */
+public interface BeanInjector<T> {
+
+	/**
+	 * Create an instance by the constructor {@link TestApplicationContext#createInstance(Class)} would use, i.e. the
+	 * default or the {@link Autowired} constructor.
+	 * 
+	 * @param provider
+	 *            Provides the constructor arguments.
+	 * @return A new instance, on which no field and setter injection has been done yet.
+	 * @throws IllegalArgumentException
+	 *             If a {@link Value} needed by the constructor is not known to the provider.
+	 */
+	T newInstance(BeanInstanceProvider provider);
+
+	/**
+	 * Do field and setter injection on the given instance, including all superclasses.
+	 * 
+	 * @param instance
+	 *            The instance to inject.
+	 * @param provider
+	 *            Provides the dependencies and {@link Value}s.
+	 */
+	void injectMembers(T instance, BeanInstanceProvider provider);
+
+}
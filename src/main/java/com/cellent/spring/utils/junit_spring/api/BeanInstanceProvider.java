@@ -5,6 +5,7 @@ import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.core.convert.TypeDescriptor;
 
 /**
  * Interface for our custom bean factory to look up instances in the "application context".
@@ -20,8 +21,11 @@ public interface BeanInstanceProvider {
 	 * @param clazz
 	 *            The desired class.
 	 * @return An instance of the desired class, either a newly created mock or the instance already known to the context.
+	 * @throws NoSuchBeanDefinitionException
+	 *             If several instances known to the context are of the desired class, so it is ambiguous which one is
+	 *             meant.
 	 */
-	<T> T getInstance(Class<T> clazz);
+	<T> T getInstance(Class<T> clazz) throws NoSuchBeanDefinitionException;
 
 	/**
 	 * Provide the object which was registered under the given {@link Value} -Key. If none os known, null will be returned.
@@ -33,8 +37,37 @@ public interface BeanInstanceProvider {
 	Object getValue(String value);
 
 	/**
-	 * If this class is used by applicationContextAware {@link BeanFactory#getBean(Class)} needs to instantiate Mocks but
-	 * no real instances. To make this distinction possible, we need this switch.
+	 * Provide the object which was registered under the given {@link Value}-Key, converted to the type of the field or
+	 * parameter it is injected into, e.g. the String "42" to an int. If none is known, null will be returned.
+	 * 
+	 * @param value
+	 *            The key of the {@link Value}-Annotation.
+	 * @param type
+	 *            The type of the field or parameter.
+	 * @return The converted value of this annotation or null if no such value is known.
+	 * @throws IllegalArgumentException
+	 *             If the value cannot be converted to the type.
+	 */
+	<T> T getValue(String value, Class<T> type);
+
+	/**
+	 * Like {@link #getValue(String, Class)}, for a field or parameter of a generic type: the value is converted to the
+	 * declared type with its type arguments, e.g. "1,2" to a List of Integers for a List&lt;Integer&gt;.
+	 * 
+	 * @param value
+	 *            The key of the {@link Value}-Annotation.
+	 * @param type
+	 *            The declared type of the field or parameter, e.g. new TypeDescriptor(field).
+	 * @return The converted value of this annotation or null if no such value is known.
+	 * @throws IllegalArgumentException
+	 *             If the value cannot be converted to the type.
+	 */
+	Object getValue(String value, TypeDescriptor type);
+
+	/**
+	 * Tell whether an {@link ApplicationContextAware} was initialized with this context. Its
+	 * {@link BeanFactory#getBean(Class)} gives mocks or registered instances, never new real instances, while
+	 * createInstance keeps creating real instances.
 	 * 
 	 * @return true, if the {@link ApplicationContext} in this class is used by an {@link ApplicationContextAware}
 	 *         -Instance.
@@ -0,0 +1,33 @@
+package com.cellent.spring.utils.junit_spring.api;
+
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * The operations of a {@link TestApplicationContext} which are reported to a {@link ContextOperationListener}.
+ * 
+ * @author bjoern
+ */
+public enum ContextOperation {
+
+	/**
+	 * A mock was created for a type nothing was known for.
+	 */
+	MOCK_CREATION,
+
+	/**
+	 * A real instance was created by {@link TestApplicationContext#createInstance(Class)}, including the resolution of
+	 * its constructor arguments, but without field and setter injection.
+	 */
+	INSTANTIATION,
+
+	/**
+	 * Field and setter injection was done on an instance.
+	 */
+	INJECTION,
+
+	/**
+	 * {@link InitializingBean#afterPropertiesSet()} was called on an instance.
+	 */
+	AFTER_PROPERTIES_SET
+
+}
@@ -0,0 +1,26 @@
+package com.cellent.spring.utils.junit_spring.api;
+
+/**
+ * Listener which is told about every {@link ContextOperation} a {@link TestApplicationContext} performs and how long it
+ * took. Use it to find out where the time of the test setup goes.
+ * 
+ * Durations of operations which trigger other operations include those, e.g. the {@link ContextOperation#INJECTION}
+ * into a bean includes the {@link ContextOperation#MOCK_CREATION} of its dependencies.
+ * 
+ * @author bjoern
+ */
+public interface ContextOperationListener {
+
+	/**
+	 * Called after an operation has finished. May be called by several threads at the same time.
+	 * 
+	 * @param operation
+	 *            The operation which was performed.
+	 * @param type
+	 *            The type which was mocked, instantiated, injected or initialized.
+	 * @param durationNanos
+	 *            The duration of the operation in nanoseconds.
+	 */
+	void operationFinished(ContextOperation operation, Class<?> type, long durationNanos);
+
+}
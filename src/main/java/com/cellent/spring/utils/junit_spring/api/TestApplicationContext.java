@@ -1,5 +1,8 @@
 package com.cellent.spring.utils.junit_spring.api;
 
+import java.io.Closeable;
+import java.util.concurrent.Callable;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContextAware;
@@ -17,12 +20,13 @@ import org.springframework.context.ApplicationContextAware;
  * All Beans which are autowired into the class will be created with your favorite mocking framework.
  * 
  * You may also register {@link Value}s here to be injected into the corresponding fields in the class under test by using
- * {@link #setValue(String, Object)}. You may retrieve these values by using {@link #getValue(String)}.
+ * {@link #setValue(String, Object)} or {@link #loadValues(String)}. You may retrieve these values by using
+ * {@link #getValue(String)}.
  * 
  * @author bjoern
  * 
  */
-public interface TestApplicationContext extends BeanInstanceProvider {
+public interface TestApplicationContext extends BeanInstanceProvider, Closeable {
 
 	/**
 	 * Create an instance (no mock!) if the desired class. All fields of this instance will be subject to
@@ -55,14 +59,71 @@ public interface TestApplicationContext extends BeanInstanceProvider {
 	 */
 	void setValue(String key, Object value);
 
+	/**
+	 * Register all entries of a properties file as {@link Value}s, e.g. the property files of the production
+	 * configuration. Values registered by {@link #setValue(String, Object)} take precedence over them, and later files
+	 * over earlier ones. Each file is read once per JVM and then shared by all contexts, as long as it is not modified.
+	 * 
+	 * A {@link Value} which is not registered as it is, but contains placeholders like "${db.url}" or
+	 * "${db.user:sa}", gets the values registered under the keys of the placeholders, or their defaults.
+	 * Placeholders in registered values are resolved as well. Then "#{...}" expressions are evaluated, on the beans
+	 * registered by {@link #registerInstance(String, Object)} and on systemProperties and systemEnvironment.
+	 * 
+	 * @param location
+	 *            Where the file is, e.g. "classpath:application.properties" or "file:src/main/config/db.properties".
+	 * @throws IllegalArgumentException
+	 *             If the file cannot be read.
+	 */
+	void loadValues(String location);
+
+	/**
+	 * Create the beans and mocks of a Spring XML file, e.g. the context.xml of a Springockito test, and register them by
+	 * their names. Each "bean" element is instantiated like by {@link #createInstance(Class)}, each "mockito:mock"
+	 * element becomes the mock of its class, and each "property" element with a "ref" or "value" attribute calls the
+	 * setter of its bean after injection and before afterPropertiesSet. The file is read once per JVM without schema
+	 * validation, as long as it is not modified; other elements and attributes are not supported.
+	 * 
+	 * @param location
+	 *            Where the file is, e.g. "classpath:context.xml" or "file:src/test/resources/context.xml".
+	 * @throws IllegalArgumentException
+	 *             If the file cannot be read or contains an element which is not supported.
+	 */
+	void loadBeans(String location);
+
 	/**
 	 * Put the applicationContext of this class into the given {@link ApplicationContextAware}. This way, classes using
 	 * this {@link ApplicationContextAware} can use this context without having to do injection.
 	 * 
+	 * All {@link ApplicationContextAware}s get the same application context, which looks up beans in the context bound
+	 * to the current thread. Calling this method binds this context to the current thread until it is closed. So tests
+	 * using the same static holder can run in parallel. Other threads do not see the binding; hand work to them by
+	 * {@link #inContext(Runnable)} or {@link #inContext(Callable)}.
+	 * 
 	 * @param applicationContextAware
 	 */
 	void initApplicationContextHolder(Class<? extends ApplicationContextAware> applicationContextAware);
 
+	/**
+	 * Give a task which runs the given one with this context bound to the thread running it, like
+	 * {@link #initApplicationContextHolder(Class)} binds it to the current thread. Afterwards, the thread is bound to
+	 * what it was bound to before, so pooled threads, e.g. of an executor, keep no context.
+	 * 
+	 * @param task
+	 *            The task to run on another thread.
+	 * @return The task running with this context.
+	 */
+	Runnable inContext(Runnable task);
+
+	/**
+	 * Give a task which calls the given one with this context bound to the thread running it, see
+	 * {@link #inContext(Runnable)}.
+	 * 
+	 * @param task
+	 *            The task to run on another thread.
+	 * @return The task running with this context.
+	 */
+	<V> Callable<V> inContext(Callable<V> task);
+
 	/**
 	 * Register an instance in the application context by using a certain name.
 	 * 
@@ -93,4 +154,44 @@ public interface TestApplicationContext extends BeanInstanceProvider {
 	 */
 	<T> void processInjection(T instance);
 
+	/**
+	 * Create a child context of this one. The child sees all instances, named beans and {@link Value}s known to this
+	 * context without copying them, but everything registered, set or created in the child stays in the child. This way
+	 * a fixture shared by several tests is set up once, and every test works on a cheap fork of it.
+	 * 
+	 * The child does not copy this context, but asks it when it needs something it does not know itself, so changes
+	 * made here after forking are seen by the child as follows:
+	 * <ul>
+	 * <li>{@link Value}s, loaded values and beans registered by name are looked up here on every access, so the child
+	 * always sees their current state, unless it set or registered its own ones.</li>
+	 * <li>The instance of a type is looked up here the first time the child needs that type, and the child keeps it
+	 * from then on. An instance registered here afterwards is only seen by children which have not needed its type
+	 * yet.</li>
+	 * <li>Instances the child took from here are the same objects, so stubbing, resetting or closing them here affects
+	 * the child.</li>
+	 * </ul>
+	 * Changes made here while a child is used on another thread are seen depending on which happens first, so set up
+	 * this context completely before forking it, as for a shared fixture.
+	 * 
+	 * @return A new child context using the same mocking framework.
+	 */
+	TestApplicationContext fork();
+
+	/**
+	 * Reset all mocks this context created itself, so they forget all stubbing, expectations and invocations. Instances
+	 * registered from outside and mocks of a parent context are not touched. Use this to reuse a context, or a fixture
+	 * to fork from, for several tests.
+	 */
+	void resetMocks();
+
+	/**
+	 * Discard this context at the end of a test. Beans created by {@link #createInstance(Class)} which implement
+	 * {@link org.springframework.beans.factory.DisposableBean} are destroyed, the mocks created by this context are reset,
+	 * everything registered or set is dropped, and {@link ApplicationContextAware}s do not find this context any more on
+	 * any thread. Resources the context keeps beyond its own lifetime, like pooled mocks, are given back. So neither this
+	 * context nor any instance obtained from it may be used afterwards. Calling this more than once has no further
+	 * effect.
+	 */
+	void close();
+
 }
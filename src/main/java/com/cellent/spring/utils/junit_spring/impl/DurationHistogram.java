@@ -0,0 +1,155 @@
+package com.cellent.spring.utils.junit_spring.impl;
+
+import java.util.Arrays;
+
+/**
+ * Counts of durations in logarithmic buckets, so that it takes the same memory however many durations are added.
+ * Durations below {@value #EXACT_LIMIT} nanoseconds have a bucket each; above, every power of two is split into
+ * {@value #SUB_BUCKETS} buckets, so a percentile is off by less than 1/{@value #SUB_BUCKETS} of its value. Count and
+ * total are exact.
+ *
+ * Not thread-safe; the {@link OperationStatisticsCollector} synchronizes.
+ *
+ * @author bjoern
+ */
+final class DurationHistogram {
+
+	/**
+	 * Number of buckets per power of two above {@link #EXACT_LIMIT}.
+	 */
+	private static final int SUB_BUCKETS = 64;
+
+	/**
+	 * Durations below this have a bucket each.
+	 */
+	private static final int EXACT_LIMIT = 2 * SUB_BUCKETS;
+
+	/**
+	 * Bit number of the highest bit of {@link #SUB_BUCKETS}.
+	 */
+	private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+	/**
+	 * The counts per bucket, grown up to the highest bucket used.
+	 */
+	private int[] counts = new int[0];
+
+	/**
+	 * How many durations were added.
+	 */
+	private int count;
+
+	/**
+	 * The sum of all durations.
+	 */
+	private long totalNanos;
+
+	/**
+	 * The longest duration.
+	 */
+	private long maxNanos;
+
+	/**
+	 * Add a duration.
+	 *
+	 * @param durationNanos
+	 *            The duration in nanoseconds; negative durations count as 0.
+	 */
+	void add(long durationNanos) {
+		long duration = Math.max(durationNanos, 0);
+		int index = indexOf(duration);
+		if (index >= counts.length) {
+			counts = Arrays.copyOf(counts, index + 1);
+		}
+		counts[index]++;
+		count++;
+		totalNanos += duration;
+		maxNanos = Math.max(maxNanos, duration);
+	}
+
+	/**
+	 * Add all durations of another histogram.
+	 *
+	 * @param other
+	 *            The other histogram.
+	 */
+	void addAll(DurationHistogram other) {
+		if (other.counts.length > counts.length) {
+			counts = Arrays.copyOf(counts, other.counts.length);
+		}
+		for (int i = 0; i < other.counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		totalNanos += other.totalNanos;
+		maxNanos = Math.max(maxNanos, other.maxNanos);
+	}
+
+	/**
+	 * @return A copy of this histogram.
+	 */
+	DurationHistogram copy() {
+		DurationHistogram result = new DurationHistogram();
+		result.addAll(this);
+		return result;
+	}
+
+	/**
+	 * @return How many durations were added.
+	 */
+	int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return The sum of all durations in nanoseconds.
+	 */
+	long getTotalNanos() {
+		return totalNanos;
+	}
+
+	/**
+	 * Give the duration of the given rank in the order of durations.
+	 *
+	 * @param rank
+	 *            The rank, between 1 and {@link #getCount()}.
+	 * @return The highest duration of the bucket holding this rank, but at most the longest duration added.
+	 */
+	long getNanosOfRank(int rank) {
+		int seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(highestOf(i), maxNanos);
+			}
+		}
+		return maxNanos;
+	}
+
+	/**
+	 * @param duration
+	 *            A duration, not negative.
+	 * @return The index of its bucket.
+	 */
+	private static int indexOf(long duration) {
+		if (duration < EXACT_LIMIT) {
+			return (int) duration;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(duration) - SUB_BUCKET_BITS;
+		return EXACT_LIMIT + (shift - 1) * SUB_BUCKETS + (int) (duration >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * @param index
+	 *            The index of a bucket.
+	 * @return The highest duration of the bucket.
+	 */
+	private static long highestOf(int index) {
+		if (index < EXACT_LIMIT) {
+			return index;
+		}
+		int shift = (index - EXACT_LIMIT) / SUB_BUCKETS + 1;
+		long lowest = (long) ((index - EXACT_LIMIT) % SUB_BUCKETS + SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
@@ -11,6 +11,23 @@ import com.cellent.spring.utils.junit_spring.impl.backing.AbstractTestApplicatio
  */
 public final class EasyMockApplicationContext extends AbstractTestApplicationContext {
 
+	/**
+	 * Create a context on its own.
+	 */
+	public EasyMockApplicationContext() {
+		super();
+	}
+
+	/**
+	 * Create a child context of the given one.
+	 * 
+	 * @param parent
+	 *            The context to fork from.
+	 */
+	private EasyMockApplicationContext(EasyMockApplicationContext parent) {
+		super(parent);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -22,4 +39,26 @@ public final class EasyMockApplicationContext extends AbstractTestApplicationCon
 		return EasyMock.createMock(clazz);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.cellent.spring.utils.junit_spring.impl.backing.AbstractTestApplicationContext#resetMockInstances(java.lang.Object[])
+	 */
+	@Override
+	protected void resetMockInstances(Object[] mocks) {
+		for (Object mock : mocks) {
+			EasyMock.reset(mock);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.cellent.spring.utils.junit_spring.api.TestApplicationContext#fork()
+	 */
+	@Override
+	public EasyMockApplicationContext fork() {
+		return new EasyMockApplicationContext(this);
+	}
+
 }
@@ -0,0 +1,247 @@
+package com.cellent.spring.utils.junit_spring.impl;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.mockito.Mockito;
+import org.mockito.cglib.proxy.Factory;
+import org.mockito.internal.InternalMockHandler;
+import org.mockito.internal.creation.MockSettingsImpl;
+import org.mockito.internal.creation.cglib.CglibMockMaker;
+import org.mockito.internal.handler.MockHandlerFactory;
+import org.mockito.internal.stubbing.InvocationContainer;
+import org.mockito.internal.util.ObjectMethodsGuru;
+import org.mockito.invocation.Invocation;
+import org.mockito.invocation.MockHandler;
+import org.mockito.mock.MockCreationSettings;
+import org.mockito.stubbing.Answer;
+import org.mockito.stubbing.VoidMethodStubbable;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+
+/**
+ * Placeholders for Mockito mocks of interfaces. A placeholder is a mock itself, so it can be stubbed and verified and it
+ * is the instance the context gives out for its interface, but it only gets the handler which records and stubs its
+ * invocations when it is used. Creating a mock by Mockito means looking up its class by cglib, which costs far more
+ * than the rest; a placeholder is instantiated from a mock of the same interface created before.
+ *
+ * Placeholders need Mockito's cglib mock maker; with another one, no placeholders are created.
+ *
+ * @author bjoern
+ */
+final class LazyMocks {
+
+	/**
+	 * Stands for a type whose mocks are not made by cglib, in {@link #TEMPLATES}.
+	 */
+	private static final Object NO_TEMPLATE = new Object();
+
+	/**
+	 * Installs the handlers of placeholders.
+	 */
+	private static final CglibMockMaker MOCK_MAKER = new CglibMockMaker();
+
+	/**
+	 * A mock of every interface placeholders were created for, to instantiate the placeholders from, for all contexts.
+	 */
+	private static final ConcurrentMap<Class<?>, Object> TEMPLATES = new ConcurrentHashMap<Class<?>, Object>();
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private LazyMocks() {
+	}
+
+	/**
+	 * Create a placeholder for the mock of the given interface.
+	 *
+	 * @param context
+	 *            The context which gives out the placeholder, to be asked for the interface when the placeholder is
+	 *            used.
+	 * @param clazz
+	 *            The interface.
+	 * @param stubOnly
+	 *            Whether the mock is to be stub-only.
+	 * @return The placeholder, null if Mockito does not make its mocks by cglib.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> T create(TestApplicationContext context, Class<T> clazz, boolean stubOnly) {
+		Object template = templateFor(clazz);
+		if (template == NO_TEMPLATE) {
+			return null;
+		}
+		MockSettingsImpl<T> settings = (MockSettingsImpl<T>) (stubOnly ? Mockito.withSettings().stubOnly() : Mockito
+				.withSettings());
+		MockCreationSettings<T> creationSettings = settings.confirm(clazz);
+		Factory factory = (Factory) template;
+		Object result = factory.newInstance(factory.getCallbacks());
+		MOCK_MAKER.resetMock(result, new LazyHandler<T>(context, clazz, creationSettings), creationSettings);
+		return (T) result;
+	}
+
+	/**
+	 * Set up a placeholder as complete mock, if it has not set itself up yet.
+	 *
+	 * @param placeholder
+	 *            A placeholder created by {@link #create(TestApplicationContext, Class, boolean)}.
+	 */
+	static void materialize(Object placeholder) {
+		MockHandler handler = MOCK_MAKER.getHandler(placeholder);
+		if (handler instanceof LazyHandler) {
+			((LazyHandler<?>) handler).materialize();
+		}
+	}
+
+	/**
+	 * @param clazz
+	 *            An interface.
+	 * @return A mock of the interface, made by cglib, or {@link #NO_TEMPLATE} if Mockito does not make its mocks by
+	 *         cglib.
+	 */
+	private static Object templateFor(Class<?> clazz) {
+		Object result = TEMPLATES.get(clazz);
+		if (result == null) {
+			result = Mockito.mock(clazz);
+			if (!(result instanceof Factory) || !(MOCK_MAKER.getHandler(result) instanceof InternalMockHandler)) {
+				result = NO_TEMPLATE;
+			}
+			Object existing = TEMPLATES.putIfAbsent(clazz, result);
+			if (existing != null) {
+				result = existing;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Handler of a placeholder: creates the handler of a complete mock when the placeholder is used, after asking the
+	 * context for the interface, so that the context knows the placeholder as its mock from then on.
+	 *
+	 * @param <T>
+	 *            The interface.
+	 */
+	private static final class LazyHandler<T> implements InternalMockHandler<T> {
+
+		/**
+		 * Version for serialization.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Tells toString apart.
+		 */
+		private static final ObjectMethodsGuru OBJECT_METHODS = new ObjectMethodsGuru();
+
+		/**
+		 * The context which gave out the placeholder.
+		 */
+		private final transient TestApplicationContext context;
+
+		/**
+		 * The interface.
+		 */
+		private final Class<T> type;
+
+		/**
+		 * The settings of the mock.
+		 */
+		private final MockCreationSettings<T> settings;
+
+		/**
+		 * The handler of the complete mock, null as long as the placeholder is not used.
+		 */
+		private volatile InternalMockHandler<T> delegate;
+
+		/**
+		 * Constructor of this class.
+		 *
+		 * @param context
+		 *            The context which gives out the placeholder.
+		 * @param type
+		 *            The interface.
+		 * @param settings
+		 *            The settings of the mock.
+		 */
+		LazyHandler(TestApplicationContext context, Class<T> type, MockCreationSettings<T> settings) {
+			this.context = context;
+			this.type = type;
+			this.settings = settings;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.mockito.invocation.MockHandler#handle(org.mockito.invocation.Invocation)
+		 */
+		@Override
+		public Object handle(Invocation invocation) throws Throwable {
+			if (delegate == null && OBJECT_METHODS.isToString(invocation.getMethod())) {
+				return settings.getDefaultAnswer().answer(invocation);
+			}
+			return delegate().handle(invocation);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.mockito.internal.InternalMockHandler#getMockSettings()
+		 */
+		@Override
+		public MockCreationSettings<T> getMockSettings() {
+			return settings;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.mockito.internal.InternalMockHandler#voidMethodStubbable(java.lang.Object)
+		 */
+		@Override
+		public VoidMethodStubbable<T> voidMethodStubbable(T mock) {
+			return delegate().voidMethodStubbable(mock);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.mockito.internal.InternalMockHandler#setAnswersForStubbing(java.util.List)
+		 */
+		@SuppressWarnings("rawtypes")
+		@Override
+		public void setAnswersForStubbing(List<Answer> answers) {
+			delegate().setAnswersForStubbing(answers);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.mockito.internal.InternalMockHandler#getInvocationContainer()
+		 */
+		@Override
+		public InvocationContainer getInvocationContainer() {
+			return delegate().getInvocationContainer();
+		}
+
+		/**
+		 * @return The handler of the complete mock, after the context was asked for the interface.
+		 */
+		private InternalMockHandler<T> delegate() {
+			if (delegate == null && context != null) {
+				context.getInstance(type);
+			}
+			return materialize();
+		}
+
+		/**
+		 * @return The handler of the complete mock, created on the first call.
+		 */
+		@SuppressWarnings("unchecked")
+		synchronized InternalMockHandler<T> materialize() {
+			if (delegate == null) {
+				delegate = new MockHandlerFactory().create(settings);
+			}
+			return delegate;
+		}
+	}
+}
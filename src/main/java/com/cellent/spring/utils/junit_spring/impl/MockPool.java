@@ -0,0 +1,102 @@
+package com.cellent.spring.utils.junit_spring.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mockito.Mockito;
+
+/**
+ * Mockito mocks which are not used by any context at the moment, per thread and mocked type. Creating a mock means
+ * generating or looking up its class, instantiating it and setting up its handler; a pooled mock only needs to be reset.
+ *
+ * Every mock is reset when it is given back and again when it is taken, so no stubbing and no recorded invocation of
+ * one test is seen by the next one. Stub-only mocks are pooled apart from mocks which record their invocations.
+ *
+ * @author bjoern
+ */
+final class MockPool {
+
+	/**
+	 * The free recording mocks of the current thread by the type they mock.
+	 */
+	private static final ThreadLocal<Map<Class<?>, List<Object>>> FREE_MOCKS = new FreeMocks();
+
+	/**
+	 * The free stub-only mocks of the current thread by the type they mock.
+	 */
+	private static final ThreadLocal<Map<Class<?>, List<Object>>> FREE_STUB_ONLY_MOCKS = new FreeMocks();
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private MockPool() {
+	}
+
+	/**
+	 * Give a free mock of the given type from the pool of the current thread, or a new one if there is none.
+	 *
+	 * @param clazz
+	 *            The type to mock.
+	 * @param stubOnly
+	 *            Whether the mock is to be stub-only.
+	 * @return A mock without any stubbing or recorded invocation.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> T take(Class<T> clazz, boolean stubOnly) {
+		List<Object> freeMocks = freeMocks(stubOnly).get().get(clazz);
+		if (freeMocks == null || freeMocks.isEmpty()) {
+			return stubOnly ? Mockito.mock(clazz, Mockito.withSettings().stubOnly()) : Mockito.mock(clazz);
+		}
+		T result = (T) freeMocks.remove(freeMocks.size() - 1);
+		Mockito.reset(result);
+		return result;
+	}
+
+	/**
+	 * Put a mock which is not used any more into the pool of the current thread.
+	 *
+	 * @param clazz
+	 *            The type the mock was taken for.
+	 * @param stubOnly
+	 *            Whether the mock was taken as stub-only mock.
+	 * @param mock
+	 *            The mock, which must not be used by anyone afterwards.
+	 */
+	static void giveBack(Class<?> clazz, boolean stubOnly, Object mock) {
+		Mockito.reset(mock);
+		Map<Class<?>, List<Object>> pool = freeMocks(stubOnly).get();
+		List<Object> freeMocks = pool.get(clazz);
+		if (freeMocks == null) {
+			freeMocks = new ArrayList<Object>(1);
+			pool.put(clazz, freeMocks);
+		}
+		freeMocks.add(mock);
+	}
+
+	/**
+	 * @param stubOnly
+	 *            Whether the pool of stub-only mocks is wanted.
+	 * @return The pool of stub-only or recording mocks of the current thread.
+	 */
+	private static ThreadLocal<Map<Class<?>, List<Object>>> freeMocks(boolean stubOnly) {
+		return stubOnly ? FREE_STUB_ONLY_MOCKS : FREE_MOCKS;
+	}
+
+	/**
+	 * Free mocks of a thread, empty at first.
+	 */
+	private static final class FreeMocks extends ThreadLocal<Map<Class<?>, List<Object>>> {
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.lang.ThreadLocal#initialValue()
+		 */
+		@Override
+		protected Map<Class<?>, List<Object>> initialValue() {
+			return new HashMap<Class<?>, List<Object>>();
+		}
+	}
+}
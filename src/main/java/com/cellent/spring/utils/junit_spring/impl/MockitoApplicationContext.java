@@ -1,5 +1,8 @@
 package com.cellent.spring.utils.junit_spring.impl;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.mockito.Mockito;
 
 import com.cellent.spring.utils.junit_spring.impl.backing.AbstractTestApplicationContext;
@@ -11,6 +14,103 @@ import com.cellent.spring.utils.junit_spring.impl.backing.AbstractTestApplicatio
  */
 public final class MockitoApplicationContext extends AbstractTestApplicationContext {
 
+	/**
+	 * If true, mocks are taken from the {@link MockPool} of the current thread and given back on {@link #close()}.
+	 */
+	private boolean poolMocks;
+
+	/**
+	 * If true, mocks do not record their invocations unless {@link #stubOnlyTypes} says otherwise.
+	 */
+	private boolean stubOnly;
+
+	/**
+	 * Types whose mocks record their invocations (false) or not (true), regardless of {@link #stubOnly}.
+	 */
+	private final Map<Class<?>, Boolean> stubOnlyTypes = new ConcurrentHashMap<Class<?>, Boolean>();
+
+	/**
+	 * The recording mocks this context took from the pool, with the type they were taken for. Identity is used as key, as mocks
+	 * answer equals and hashCode themselves.
+	 */
+	private final Map<IdentityKey, Class<?>> pooledMocks = new ConcurrentHashMap<IdentityKey, Class<?>>();
+
+	/**
+	 * Like {@link #pooledMocks}, for the stub-only mocks.
+	 */
+	private final Map<IdentityKey, Class<?>> pooledStubOnlyMocks = new ConcurrentHashMap<IdentityKey, Class<?>>();
+
+	/**
+	 * Create a context on its own.
+	 */
+	public MockitoApplicationContext() {
+		super();
+	}
+
+	/**
+	 * Create a child context of the given one.
+	 * 
+	 * @param parent
+	 *            The context to fork from.
+	 */
+	private MockitoApplicationContext(MockitoApplicationContext parent) {
+		super(parent);
+		poolMocks = parent.poolMocks;
+		stubOnly = parent.stubOnly;
+		stubOnlyTypes.putAll(parent.stubOnlyTypes);
+	}
+
+	/**
+	 * Decide whether mocks are created for this context only (the default) or taken from a pool of mocks which earlier
+	 * contexts on the same thread have given back. Pooled mocks are reset, so they do not remember any stubbing or
+	 * invocation, and they are given back by {@link #close()}. So a test must not keep a mock or a bean using it after
+	 * closing its context. Placeholders of lazy mocks are not pooled. Forks created afterwards pool their mocks as well.
+	 * 
+	 * @param poolMocks
+	 *            true to take mocks from the pool and give them back on close, false to create new mocks.
+	 */
+	public void setPoolMocks(boolean poolMocks) {
+		this.poolMocks = poolMocks;
+	}
+
+	/**
+	 * Decide whether the mocks this context creates record their invocations (the default) or are stub-only. A stub-only
+	 * mock answers as stubbed, but keeps no invocation, so it needs no memory for beans calling it millions of times,
+	 * and it cannot be verified. Forks created afterwards take this setting over.
+	 * 
+	 * @param stubOnly
+	 *            true for stub-only mocks, false for mocks which can be verified.
+	 * @see #setStubOnly(Class, boolean)
+	 */
+	public void setStubOnly(boolean stubOnly) {
+		this.stubOnly = stubOnly;
+	}
+
+	/**
+	 * Decide for a single type whether its mocks record their invocations, e.g. to verify the one delegate a test is
+	 * about while all other mocks are stub-only. Affects mocks created afterwards only. Forks created afterwards take
+	 * this setting over.
+	 * 
+	 * @param clazz
+	 *            The mocked type.
+	 * @param stubOnly
+	 *            true for a stub-only mock, false for a mock which can be verified.
+	 * @see #setStubOnly(boolean)
+	 */
+	public void setStubOnly(Class<?> clazz, boolean stubOnly) {
+		stubOnlyTypes.put(clazz, stubOnly);
+	}
+
+	/**
+	 * @param clazz
+	 *            The mocked type.
+	 * @return true if the mock of the type is to be stub-only.
+	 */
+	private boolean isStubOnly(Class<?> clazz) {
+		Boolean result = stubOnlyTypes.get(clazz);
+		return result == null ? stubOnly : result.booleanValue();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -18,7 +118,121 @@ public final class MockitoApplicationContext extends AbstractTestApplicationCont
 	 */
 	@Override
 	protected <T> T createMockInstance(Class<T> clazz) {
-		return Mockito.mock(clazz);
+		boolean stubOnlyMock = isStubOnly(clazz);
+		if (!poolMocks) {
+			return stubOnlyMock ? Mockito.mock(clazz, Mockito.withSettings().stubOnly()) : Mockito.mock(clazz);
+		}
+		T result = MockPool.take(clazz, stubOnlyMock);
+		(stubOnlyMock ? pooledStubOnlyMocks : pooledMocks).put(new IdentityKey(result), clazz);
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.cellent.spring.utils.junit_spring.impl.backing.AbstractTestApplicationContext#createLazyMockInstance(java.lang.Class)
+	 */
+	@Override
+	protected <T> T createLazyMockInstance(Class<T> clazz) {
+		return LazyMocks.create(this, clazz, isStubOnly(clazz));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.cellent.spring.utils.junit_spring.impl.backing.AbstractTestApplicationContext#materializeMockInstance(java.lang.Object)
+	 */
+	@Override
+	protected void materializeMockInstance(Object placeholder) {
+		LazyMocks.materialize(placeholder);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.cellent.spring.utils.junit_spring.impl.backing.AbstractTestApplicationContext#resetMockInstances(java.lang.Object[])
+	 */
+	@Override
+	protected void resetMockInstances(Object[] mocks) {
+		Mockito.reset(mocks);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.cellent.spring.utils.junit_spring.impl.backing.AbstractTestApplicationContext#releaseMockInstances()
+	 */
+	@Override
+	protected void releaseMockInstances() {
+		releaseMockInstances(pooledMocks, false);
+		releaseMockInstances(pooledStubOnlyMocks, true);
+	}
+
+	/**
+	 * Give the pooled mocks of the given map back to the pool.
+	 * 
+	 * @param mocks
+	 *            The pooled mocks with the type they were taken for.
+	 * @param stubOnlyMocks
+	 *            Whether these are stub-only mocks.
+	 */
+	private static void releaseMockInstances(Map<IdentityKey, Class<?>> mocks, boolean stubOnlyMocks) {
+		for (IdentityKey key : mocks.keySet()) {
+			Class<?> clazz = mocks.remove(key);
+			if (clazz != null) {
+				MockPool.giveBack(clazz, stubOnlyMocks, key.object);
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.cellent.spring.utils.junit_spring.api.TestApplicationContext#fork()
+	 */
+	@Override
+	public MockitoApplicationContext fork() {
+		return new MockitoApplicationContext(this);
+	}
+
+	/**
+	 * Map key comparing an object by identity.
+	 */
+	private static final class IdentityKey {
+
+		/**
+		 * The object.
+		 */
+		private final Object object;
+
+		/**
+		 * Constructor of this class.
+		 * 
+		 * @param object
+		 *            The object.
+		 */
+		IdentityKey(Object object) {
+			this.object = object;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(object);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof IdentityKey && ((IdentityKey) obj).object == object;
+		}
+	}
 }
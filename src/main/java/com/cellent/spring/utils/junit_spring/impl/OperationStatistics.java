@@ -0,0 +1,71 @@
+package com.cellent.spring.utils.junit_spring.impl;
+
+import com.cellent.spring.utils.junit_spring.api.ContextOperation;
+
+/**
+ * Snapshot of the durations of one {@link ContextOperation} on one type, as collected by an
+ * {@link OperationStatisticsCollector}.
+ * 
+ * @author bjoern
+ */
+public final class OperationStatistics {
+
+	/**
+	 * The durations in nanoseconds, not to be changed.
+	 */
+	private final DurationHistogram durations;
+
+	/**
+	 * Constructor of this class.
+	 * 
+	 * @param durations
+	 *            The durations in nanoseconds. The histogram is kept, so it must not be changed afterwards.
+	 */
+	OperationStatistics(DurationHistogram durations) {
+		this.durations = durations;
+	}
+
+	/**
+	 * @return How often the operation was performed.
+	 */
+	public int getCount() {
+		return durations.getCount();
+	}
+
+	/**
+	 * @return The sum of all durations in nanoseconds.
+	 */
+	public long getTotalNanos() {
+		return durations.getTotalNanos();
+	}
+
+	/**
+	 * Give the duration which the given share of all operations did not exceed (nearest rank method). Durations from
+	 * 128 nanoseconds on are kept in buckets, so the result may be up to 1/64 above the actual duration.
+	 * 
+	 * @param percentile
+	 *            The percentile, between 0 and 100, e.g. 50 for the median or 99.
+	 * @return The duration in nanoseconds, 0 if the operation was never performed.
+	 */
+	public long getPercentileNanos(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100, but was " + percentile);
+		}
+		if (durations.getCount() == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(percentile / 100 * durations.getCount());
+		return durations.getNanosOfRank(Math.max(rank, 1));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "count=" + getCount() + ", total=" + getTotalNanos() / 1000 + "us, p50=" + getPercentileNanos(50) / 1000
+				+ "us, p90=" + getPercentileNanos(90) / 1000 + "us, p99=" + getPercentileNanos(99) / 1000 + "us";
+	}
+}
@@ -0,0 +1,123 @@
+package com.cellent.spring.utils.junit_spring.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.cellent.spring.utils.junit_spring.api.ContextOperation;
+import com.cellent.spring.utils.junit_spring.api.ContextOperationListener;
+
+/**
+ * Listener which counts the durations of all operations in a histogram per operation and type, so it needs the same
+ * memory however long a suite runs. Register one instance at all contexts of
+ * interest (e.g. in a common base class of your tests) and print it at the end to see where setup time goes.
+ * 
+ * @author bjoern
+ */
+public class OperationStatisticsCollector implements ContextOperationListener {
+
+	/**
+	 * The durations collected so far.
+	 */
+	private final Map<Key, DurationHistogram> durations = new LinkedHashMap<Key, DurationHistogram>();
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.cellent.spring.utils.junit_spring.api.ContextOperationListener#operationFinished(com.cellent.spring.utils.
+	 * junit_spring.api.ContextOperation, java.lang.Class, long)
+	 */
+	@Override
+	public synchronized void operationFinished(ContextOperation operation, Class<?> type, long durationNanos) {
+		Key key = new Key(operation, type);
+		DurationHistogram durationsOfKey = durations.get(key);
+		if (durationsOfKey == null) {
+			durationsOfKey = new DurationHistogram();
+			durations.put(key, durationsOfKey);
+		}
+		durationsOfKey.add(durationNanos);
+	}
+
+	/**
+	 * Give the statistics of an operation on a type.
+	 * 
+	 * @param operation
+	 *            The operation.
+	 * @param type
+	 *            The type the operation was performed on.
+	 * @return The statistics collected so far. If the operation was never performed on this type, the count is 0.
+	 */
+	public synchronized OperationStatistics getStatistics(ContextOperation operation, Class<?> type) {
+		DurationHistogram durationsOfKey = durations.get(new Key(operation, type));
+		if (durationsOfKey == null) {
+			return new OperationStatistics(new DurationHistogram());
+		}
+		return new OperationStatistics(durationsOfKey.copy());
+	}
+
+	/**
+	 * Give the statistics of an operation summed up over all types.
+	 * 
+	 * @param operation
+	 *            The operation.
+	 * @return The statistics collected so far.
+	 */
+	public synchronized OperationStatistics getStatistics(ContextOperation operation) {
+		DurationHistogram all = new DurationHistogram();
+		for (Entry<Key, DurationHistogram> entry : durations.entrySet()) {
+			if (entry.getKey().operation == operation) {
+				all.addAll(entry.getValue());
+			}
+		}
+		return new OperationStatistics(all);
+	}
+
+	/**
+	 * Forget everything collected so far.
+	 */
+	public synchronized void clear() {
+		durations.clear();
+	}
+
+	/**
+	 * @return One line per operation and type with its statistics, in order of first occurrence.
+	 */
+	@Override
+	public synchronized String toString() {
+		StringBuilder result = new StringBuilder();
+		for (Entry<Key, DurationHistogram> entry : durations.entrySet()) {
+			result.append(entry.getKey().operation).append(' ').append(entry.getKey().type.getName()).append(": ")
+					.append(new OperationStatistics(entry.getValue().copy())).append('\n');
+		}
+		return result.toString();
+	}
+
+	/**
+	 * An operation on a type.
+	 */
+	private static final class Key {
+
+		private final ContextOperation operation;
+
+		private final Class<?> type;
+
+		Key(ContextOperation operation, Class<?> type) {
+			this.operation = operation;
+			this.type = type;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return operation == other.operation && type == other.type;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * operation.hashCode() + type.hashCode();
+		}
+	}
+}
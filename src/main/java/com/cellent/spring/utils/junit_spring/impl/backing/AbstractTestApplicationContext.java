@@ -1,22 +1,35 @@
 package com.cellent.spring.utils.junit_spring.impl.backing;
 
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.springframework.beans.BeansException;
 import org.springframework.beans.TypeConverter;
 import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.DependencyDescriptor;
-import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
-import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.convert.TypeDescriptor;
 
+import com.cellent.spring.utils.junit_spring.api.BeanInjector;
+import com.cellent.spring.utils.junit_spring.api.BeanInstanceProvider;
+import com.cellent.spring.utils.junit_spring.api.ContextOperation;
+import com.cellent.spring.utils.junit_spring.api.ContextOperationListener;
 import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
 
 /**
@@ -28,11 +41,38 @@ import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
  */
 public abstract class AbstractTestApplicationContext implements TestApplicationContext {
 
+	/**
+	 * Stands for a {@link Value} which was explicitly set to null, because {@link #atValueMap} cannot hold null.
+	 */
+	static final Object NULL_VALUE = new Object();
+
+	/**
+	 * Value of {@link #listeners} as long as no listener is registered.
+	 */
+	private static final ContextOperationListener[] NO_LISTENERS = new ContextOperationListener[0];
+
+	/**
+	 * The context this one was forked from, null if it was not forked. Everything which is not found in this context is
+	 * looked up there.
+	 */
+	private final AbstractTestApplicationContext parent;
+
 	/**
 	 * A Map with all {@link Value}s.
 	 */
 	private Map<String, Object> atValueMap;
 
+	/**
+	 * The entries of the properties files loaded by {@link #loadValues(String)}, the latest first. The maps are shared
+	 * with all contexts loading the same file.
+	 */
+	private final List<Map<String, String>> loadedValues = new CopyOnWriteArrayList<Map<String, String>>();
+
+	/**
+	 * Converts values to the types they are injected as. Forks use the one of their root context.
+	 */
+	private final ValueConverter valueConverter;
+
 	/**
 	 * Cache for beans in the context. Will be used by
 	 * {@link SpringMockBeanFactory#resolveDependency(DependencyDescriptor, String, Set, TypeConverter)}
@@ -40,6 +80,19 @@ public abstract class AbstractTestApplicationContext implements TestApplicationC
 	@SuppressWarnings("rawtypes")
 	private Map<Class, Object> mockInstanceMap;
 
+	/**
+	 * One lock per class for which an instance is looked up or created, so that every mock is created only once even if
+	 * several threads ask for it at the same time.
+	 */
+	@SuppressWarnings("rawtypes")
+	private ConcurrentMap<Class, Object> instanceCreationLocks;
+
+	/**
+	 * All registered instances by every type they can be assigned to. Used to find an instance for a type which is not
+	 * yet a key in {@link #mockInstanceMap}.
+	 */
+	private TypeIndex typeIndex;
+
 	/**
 	 * @see AutowiredAnnotationBeanPostProcessor. This will be effectively important to call
 	 *      {@link SpringMockBeanFactory#resolveDependency(DependencyDescriptor, String, Set, TypeConverter)} .
@@ -47,37 +100,123 @@ public abstract class AbstractTestApplicationContext implements TestApplicationC
 	private AutowiredAnnotationBeanPostProcessor autowirePostProcessor;
 
 	/**
-	 * To instantiate by Spring and do constructor injection. Will be using {@link SpringMockBeanFactory#getBean(Class)}.
+	 * To instantiate by Spring and do constructor injection. All dependencies are resolved here. It is used without an
+	 * application context around it, which would only add events, messages, resources and an environment nobody asks
+	 * for.
+	 */
+	private SpringMockBeanFactory beanFactory;
+
+	/**
+	 * If true, field and setter injection is done by a post processor shared by all contexts, so that the injection
+	 * metadata of a class is only collected once.
+	 */
+	private boolean shareInjectionMetadata;
+
+	/**
+	 * If true, classes injected often are injected by a {@link FastInjector} instead of Spring's post processor.
+	 */
+	private boolean useFastInjection = true;
+
+	/**
+	 * If true, interfaces without known instance are injected as placeholders, which are set up as mocks when they are
+	 * used.
+	 */
+	private volatile boolean lazyMocks;
+
+	/**
+	 * If true, this context creates its own mocks instead of using the mocks its parent created.
+	 */
+	private volatile boolean ownMocks;
+
+	/**
+	 * The placeholders handed out by this context which are not set up as mocks yet, by their interface.
+	 */
+	private final ConcurrentMap<Class<?>, Object> lazyMockInstances = new ConcurrentHashMap<Class<?>, Object>();
+
+	/**
+	 * Where injected beans look up their dependencies.
+	 */
+	private final BeanInstanceProvider injectionProvider = new InjectionProvider();
+
+	/**
+	 * True once an {@link ApplicationContextAware} was initialized with this context.
 	 */
-	ApplicationContext applicationContext;
+	private volatile boolean usedByApplicationContextAware;
 
 	/**
-	 * If this class is used by applicationContextAware {@link BeanFactory#getBean(Class)} needs to instantiate Mocks but
-	 * no real instances. To make this distinction possible, we need this switch.
+	 * Links the threads this context is bound to with it, for {@link ApplicationContextAware}s.
 	 */
-	private boolean usedByApplicationContextAware;
+	private final ApplicationContextRouting.Binding routingBinding = new ApplicationContextRouting.Binding(this);
+
+	/**
+	 * The {@link DisposableBean}s created by {@link #createInstance(Class)}, in order of creation.
+	 */
+	private final Queue<DisposableBean> createdDisposableBeans = new ConcurrentLinkedQueue<DisposableBean>();
+
+	/**
+	 * True once this context is closed.
+	 */
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	/**
+	 * The mocks this context created itself, in order of creation.
+	 */
+	private final Queue<Object> createdMocks = new ConcurrentLinkedQueue<Object>();
 
 	/**
 	 * If one registers beans by specific names, here is where they are stored.
 	 */
 	private Map<String, Object> beanByNameMap;
 
+	/**
+	 * The listeners which are told about every operation. The array is replaced on every change, so it can be read
+	 * without locking.
+	 */
+	private volatile ContextOperationListener[] listeners = NO_LISTENERS;
+
 	/**
 	 * Create an object (you might call it context or factory as well) which allows to do spring autowiring also in test
 	 * classes without any special test runner. Eventually, instantiate the class under Test by
 	 * {@link #createInstance(Class)}.
+	 * 
+	 * The context may be used by several threads at the same time, e.g. by test methods run in parallel.
 	 */
-	@SuppressWarnings("rawtypes")
 	public AbstractTestApplicationContext() {
+		this(null);
+	}
+
+	/**
+	 * Create a context which sees all instances, named beans and {@link Value}s of the given parent, as long as it does
+	 * not register its own ones. Nothing registered or created in this context is visible to the parent.
+	 * 
+	 * @param parent
+	 *            The context to fork from, null for a context on its own.
+	 * @see #fork()
+	 */
+	@SuppressWarnings("rawtypes")
+	protected AbstractTestApplicationContext(AbstractTestApplicationContext parent) {
+		this.parent = parent;
+		valueConverter = parent == null ? new ValueConverter() : parent.valueConverter;
 		// Init the object cache ({@link #mockInstanceMap},
 		// Pseudo-ApplicationContext) and the {@link #autowirePostProcessor}.
-		mockInstanceMap = new HashMap<Class, Object>();
-		beanByNameMap = new HashMap<String, Object>();
-		atValueMap = new HashMap<String, Object>();
+		mockInstanceMap = new ConcurrentHashMap<Class, Object>();
+		instanceCreationLocks = new ConcurrentHashMap<Class, Object>();
+		beanByNameMap = new ConcurrentHashMap<String, Object>();
+		atValueMap = new ConcurrentHashMap<String, Object>();
+		typeIndex = new TypeIndex();
 		// Spring Infrastructure
 		autowirePostProcessor = new AutowiredAnnotationBeanPostProcessor();
-		applicationContext = new GenericApplicationContext(new SpringMockBeanFactory(this));
-		autowirePostProcessor.setBeanFactory(applicationContext.getAutowireCapableBeanFactory());
+		beanFactory = new SpringMockBeanFactory(this, injectionProvider);
+		autowirePostProcessor.setBeanFactory(beanFactory);
+		if (parent != null) {
+			shareInjectionMetadata = parent.shareInjectionMetadata;
+			useFastInjection = parent.useFastInjection;
+			beanFactory.setUseInjectionPlans(parent.beanFactory.isUseInjectionPlans());
+			lazyMocks = parent.lazyMocks;
+			listeners = parent.listeners;
+		} else {
+			MockPrewarmer.startIfConfigured(getClass());
+		}
 	}
 
 	/*
@@ -87,11 +226,35 @@ public abstract class AbstractTestApplicationContext implements TestApplicationC
 	 */
 	@Override
 	public <T> T createInstance(Class<T> clazz) {
-		T result = applicationContext.getBean(clazz);
+		T result = instantiate(clazz);
 		postProcessBean(result);
 		return result;
 	}
 
+	/**
+	 * Instantiate the given class by Spring, doing constructor injection, but neither field and setter injection nor
+	 * initialization.
+	 * 
+	 * @param clazz
+	 *            The class to instantiate.
+	 * @return The new instance.
+	 */
+	<T> T instantiate(Class<T> clazz) {
+		ContextOperationListener[] currentListeners = listeners;
+		T result;
+		if (currentListeners.length == 0) {
+			result = beanFactory.getBean(clazz);
+		} else {
+			long start = System.nanoTime();
+			result = beanFactory.getBean(clazz);
+			fireOperationFinished(currentListeners, ContextOperation.INSTANTIATION, clazz, start);
+		}
+		if (result instanceof DisposableBean) {
+			createdDisposableBeans.add((DisposableBean) result);
+		}
+		return result;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -110,7 +273,129 @@ public abstract class AbstractTestApplicationContext implements TestApplicationC
 	 */
 	@Override
 	public <T> void processInjection(T instance) {
-		autowirePostProcessor.processInjection(instance);
+		ContextOperationListener[] currentListeners = listeners;
+		if (currentListeners.length == 0) {
+			doProcessInjection(instance);
+			return;
+		}
+		long start = System.nanoTime();
+		doProcessInjection(instance);
+		fireOperationFinished(currentListeners, ContextOperation.INJECTION, instance.getClass(), start);
+	}
+
+	/**
+	 * Do field and setter injection on the given instance: by the injector generated for its class if there is one,
+	 * by a {@link FastInjector} if the class has been injected often enough, otherwise either by the post processor of
+	 * this context or by the one shared by all contexts.
+	 * 
+	 * @param instance
+	 *            The instance whose fields and setters shall be autowired.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> void doProcessInjection(T instance) {
+		BeanInjector<T> injector = GeneratedInjectors.forClass((Class<T>) instance.getClass());
+		FastInjector fastInjector;
+		if (injector != null) {
+			injector.injectMembers(instance, injectionProvider);
+		} else if (useFastInjection && (fastInjector = FastInjector.forClass(instance.getClass())) != null) {
+			fastInjector.injectMembers(instance, injectionProvider);
+		} else if (shareInjectionMetadata) {
+			SharedAutowirePostProcessor.processInjection(beanFactory, instance);
+		} else {
+			autowirePostProcessor.processInjection(instance);
+		}
+	}
+
+	/**
+	 * Decide whether the {@link Autowired}- and {@link Value}-metadata Spring collects for each class is kept for this
+	 * context only (the default) or shared with all other contexts in this JVM which share it as well. Sharing saves
+	 * scanning every class again in every test; the instances injected are still the ones of this context.
+	 * 
+	 * @param shareInjectionMetadata
+	 *            true to use the metadata shared by all contexts, false to use metadata of this context only.
+	 */
+	public void setShareInjectionMetadata(boolean shareInjectionMetadata) {
+		this.shareInjectionMetadata = shareInjectionMetadata;
+	}
+
+	/**
+	 * Decide whether classes which have been injected a few times in this JVM are injected by a {@link FastInjector}
+	 * from then on (the default) or always by Spring's post processor. Both inject exactly the same fields and methods.
+	 * 
+	 * @param useFastInjection
+	 *            true to use fast injectors for classes injected often, false to always use Spring.
+	 */
+	public void setUseFastInjection(boolean useFastInjection) {
+		this.useFastInjection = useFastInjection;
+	}
+
+	/**
+	 * Decide whether the constructor of a class, its parameter types and {@link Value}-keys are resolved once per class
+	 * for all contexts (the default) or again on every instantiation. Both use the same constructor; switching this off
+	 * only serves to measure what the cached plans save. Forks created afterwards take this setting over.
+	 * 
+	 * @param useInjectionPlans
+	 *            true to use the plan cached for each class, false to resolve the constructor every time.
+	 */
+	public void setUseInjectionPlans(boolean useInjectionPlans) {
+		beanFactory.setUseInjectionPlans(useInjectionPlans);
+	}
+
+	/**
+	 * Decide whether mocks of interfaces are set up completely when a bean is injected (the default) or only when they
+	 * are used. Lazily, a bean gets a placeholder which is cheap to create, but already is the mock the context gives
+	 * out for its interface: it is set up completely as soon as one of its methods is invoked, it is stubbed or
+	 * verified, or the test asks for it by {@link #getInstance(Class)}. Only mocking frameworks which can create such
+	 * placeholders create mocks lazily, the others create them when a bean is injected. Forks created afterwards create
+	 * their mocks lazily as well.
+	 * 
+	 * @param lazyMocks
+	 *            true to inject placeholders for interfaces, false to inject mocks.
+	 * @see #createLazyMockInstance(Class)
+	 */
+	public void setLazyMocks(boolean lazyMocks) {
+		this.lazyMocks = lazyMocks;
+	}
+
+	/**
+	 * Decide whether this fork uses the mocks its parent created (the default) or creates its own ones for the same
+	 * types, so that stubbing and verifying them does not affect other forks of the same parent, e.g. of tests running
+	 * at the same time. Instances registered in the parent are still used, and so are beans the parent created, which
+	 * keep the mocks of the parent. Affects mocks looked up afterwards only; forks of this context do not take this
+	 * setting over.
+	 * 
+	 * @param ownMocks
+	 *            true to create own mocks, false to use the mocks of the parent.
+	 */
+	public void setOwnMocks(boolean ownMocks) {
+		this.ownMocks = ownMocks;
+	}
+
+	/**
+	 * Give the instance of a class which is injected into a bean: a placeholder, if mocks are created lazily and a mock
+	 * of an interface would be needed, otherwise the same as {@link #getInstance(Class)}.
+	 * 
+	 * @param clazz
+	 *            The desired class.
+	 * @return The instance to inject.
+	 */
+	private Object getInstanceForInjection(Class<?> clazz) {
+		if (!lazyMocks || !clazz.isInterface() || mockInstanceMap.get(clazz) != null) {
+			return getInstance(clazz);
+		}
+		synchronized (lockFor(clazz)) {
+			Object result = lazyMockInstances.get(clazz);
+			if (result == null && mockInstanceMap.get(clazz) == null && findKnownInstanceOf(clazz) == null) {
+				result = createLazyMockInstance(clazz);
+				if (result != null) {
+					lazyMockInstances.put(clazz, result);
+				}
+			}
+			if (result != null) {
+				return result;
+			}
+		}
+		return getInstance(clazz);
 	}
 
 	/**
@@ -119,10 +404,17 @@ public abstract class AbstractTestApplicationContext implements TestApplicationC
 	 * @param result
 	 *            An instantiated bean which may implement {@link InitializingBean}.
 	 */
-	private <T> void executeAfterPropertiesSetIfNecessary(T result) {
+	<T> void executeAfterPropertiesSetIfNecessary(T result) {
 		if (result instanceof InitializingBean) {
 			InitializingBean initializingBean = (InitializingBean) result;
+			ContextOperationListener[] currentListeners = listeners;
+			if (currentListeners.length == 0) {
+				safeExecuteAfterPropertiesSet(initializingBean);
+				return;
+			}
+			long start = System.nanoTime();
 			safeExecuteAfterPropertiesSet(initializingBean);
+			fireOperationFinished(currentListeners, ContextOperation.AFTER_PROPERTIES_SET, result.getClass(), start);
 		}
 	}
 
@@ -150,6 +442,7 @@ public abstract class AbstractTestApplicationContext implements TestApplicationC
 	@Override
 	public void registerInstance(Object beanInstance) {
 		mockInstanceMap.put(beanInstance.getClass(), beanInstance);
+		typeIndex.add(beanInstance);
 	}
 
 	/*
@@ -160,15 +453,203 @@ public abstract class AbstractTestApplicationContext implements TestApplicationC
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T> T getInstance(Class<T> clazz) {
-		if (mockInstanceMap.containsKey(clazz) || discoverInstanceOf(clazz))
-			return (T) mockInstanceMap.get(clazz);
-		else {
-			T result = createMockInstance(clazz);
-			registerInstance(result);
+		Object result = mockInstanceMap.get(clazz);
+		if (result == null) {
+			result = discoverOrCreateInstanceOf(clazz);
+		}
+		return (T) result;
+	}
+
+	/**
+	 * Find a registered instance of the given class or, if there is none, create a mock and register it. This is done
+	 * while holding the lock of this class, so concurrent calls for the same class end up with the same instance, while
+	 * calls for other classes are not blocked.
+	 * 
+	 * @param clazz
+	 *            The desired class.
+	 * @return The instance which is from now on known to the context for this class.
+	 */
+	private Object discoverOrCreateInstanceOf(Class<?> clazz) {
+		synchronized (lockFor(clazz)) {
+			Object result = mockInstanceMap.get(clazz);
+			if (result == null) {
+				result = findKnownInstanceOf(clazz);
+				if (result == null) {
+					result = createAndReportMockInstance(clazz);
+					createdMocks.add(result);
+					registerInstance(result);
+				}
+				mockInstanceMap.put(clazz, result);
+			}
 			return result;
 		}
 	}
 
+	/**
+	 * Create a new mock of the given class, which is reset and released like the mocks this context creates on
+	 * demand, but is neither registered nor given out for its class.
+	 * 
+	 * @param clazz
+	 *            The desired class.
+	 * @return A new mock of the desired class.
+	 */
+	Object createMock(Class<?> clazz) {
+		Object result = createAndReportMockInstance(clazz);
+		createdMocks.add(result);
+		return result;
+	}
+
+	/**
+	 * If a placeholder of the given class was handed out, set it up as mock by {@link #materializeMockInstance(Object)},
+	 * tell the listeners about it and register it. Must be called holding the lock of the class.
+	 * 
+	 * @param clazz
+	 *            The desired class.
+	 * @return The placeholder, which is a complete mock now, or null if none was handed out.
+	 */
+	private Object materializeLazyMockInstanceOf(Class<?> clazz) {
+		Object result = lazyMockInstances.remove(clazz);
+		if (result == null) {
+			return null;
+		}
+		ContextOperationListener[] currentListeners = listeners;
+		if (currentListeners.length == 0) {
+			materializeMockInstance(result);
+		} else {
+			long start = System.nanoTime();
+			materializeMockInstance(result);
+			fireOperationFinished(currentListeners, ContextOperation.MOCK_CREATION, clazz, start);
+		}
+		createdMocks.add(result);
+		registerInstance(result);
+		mockInstanceMap.put(clazz, result);
+		return result;
+	}
+
+	/**
+	 * Create a mock by {@link #createMockInstance(Class)} and tell the listeners about it.
+	 * 
+	 * @param clazz
+	 *            The desired class.
+	 * @return A Mock of the desired class.
+	 */
+	private Object createAndReportMockInstance(Class<?> clazz) {
+		ContextOperationListener[] currentListeners = listeners;
+		if (currentListeners.length == 0) {
+			return createMockInstance(clazz);
+		}
+		long start = System.nanoTime();
+		Object result = createMockInstance(clazz);
+		fireOperationFinished(currentListeners, ContextOperation.MOCK_CREATION, clazz, start);
+		return result;
+	}
+
+	/**
+	 * Register a listener which is told about every operation of this context from now on. Forks of this context
+	 * created afterwards report to the same listeners. If no listener is registered, operations are not even timed.
+	 * 
+	 * @param listener
+	 *            The listener to add.
+	 */
+	public synchronized void addListener(ContextOperationListener listener) {
+		ContextOperationListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+		newListeners[listeners.length] = listener;
+		listeners = newListeners;
+	}
+
+	/**
+	 * Remove a listener which was registered by {@link #addListener(ContextOperationListener)}.
+	 * 
+	 * @param listener
+	 *            The listener to remove.
+	 */
+	public synchronized void removeListener(ContextOperationListener listener) {
+		List<ContextOperationListener> newListeners = new ArrayList<ContextOperationListener>(Arrays.asList(listeners));
+		newListeners.remove(listener);
+		listeners = newListeners.isEmpty() ? NO_LISTENERS : newListeners
+				.toArray(new ContextOperationListener[newListeners.size()]);
+	}
+
+	/**
+	 * Tell the listeners that an operation has finished now.
+	 * 
+	 * @param currentListeners
+	 *            The listeners to tell.
+	 * @param operation
+	 *            The operation which has finished.
+	 * @param type
+	 *            The type the operation was performed on.
+	 * @param start
+	 *            The {@link System#nanoTime()} at which the operation started.
+	 */
+	private static void fireOperationFinished(ContextOperationListener[] currentListeners, ContextOperation operation,
+			Class<?> type, long start) {
+		long duration = System.nanoTime() - start;
+		for (ContextOperationListener listener : currentListeners) {
+			listener.operationFinished(operation, type, duration);
+		}
+	}
+
+	/**
+	 * Find an instance of the given class which is already known to this context or, if none is, to its parent. No mock
+	 * is created. With {@link #setOwnMocks(boolean)}, mocks created by the parent are not taken.
+	 * 
+	 * @param clazz
+	 *            The desired class.
+	 * @return The known instance or null, if none is known.
+	 */
+	private Object findKnownInstanceOf(Class<?> clazz) {
+		Object result = mockInstanceMap.get(clazz);
+		if (result == null) {
+			result = materializeLazyMockInstanceOf(clazz);
+		}
+		if (result == null && discoverInstanceOf(clazz)) {
+			result = mockInstanceMap.get(clazz);
+		}
+		if (result == null && parent != null) {
+			synchronized (parent.lockFor(clazz)) {
+				result = parent.findKnownInstanceOf(clazz);
+			}
+			if (result != null && ownMocks && parent.isCreatedMock(result)) {
+				result = null;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param instance
+	 *            An instance known to this context.
+	 * @return true, if this context or one of its parents created it as mock.
+	 */
+	private boolean isCreatedMock(Object instance) {
+		for (Object mock : createdMocks) {
+			if (mock == instance) {
+				return true;
+			}
+		}
+		return parent != null && parent.isCreatedMock(instance);
+	}
+
+	/**
+	 * Give the lock which guards looking up and creating the instance of a class.
+	 * 
+	 * @param clazz
+	 *            The class which shall be looked up.
+	 * @return The same lock object for every call with the same class.
+	 */
+	private Object lockFor(Class<?> clazz) {
+		Object lock = instanceCreationLocks.get(clazz);
+		if (lock == null) {
+			Object newLock = new Object();
+			lock = instanceCreationLocks.putIfAbsent(clazz, newLock);
+			if (lock == null) {
+				lock = newLock;
+			}
+		}
+		return lock;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -176,7 +657,7 @@ public abstract class AbstractTestApplicationContext implements TestApplicationC
 	 */
 	@Override
 	public void setValue(String key, Object value) {
-		atValueMap.put(key, value);
+		atValueMap.put(key, value == null ? NULL_VALUE : value);
 	}
 
 	/*
@@ -186,7 +667,118 @@ public abstract class AbstractTestApplicationContext implements TestApplicationC
 	 */
 	@Override
 	public Object getValue(String value) {
-		return atValueMap.get(value);
+		Object result = findValue(value);
+		if (result == null) {
+			result = resolveValue(value);
+		}
+		return result == NULL_VALUE ? null : result;
+	}
+
+	/**
+	 * Resolve the placeholders of a {@link Value} which is not registered as it is, and then evaluate its expressions,
+	 * like Spring does.
+	 * 
+	 * @param value
+	 *            The text of the {@link Value}.
+	 * @return The value, {@link #NULL_VALUE} if a placeholder resolves to a value set to null, null if a placeholder
+	 *         cannot be resolved or there is nothing to resolve.
+	 */
+	private Object resolveValue(String value) {
+		Object result = null;
+		String text = value;
+		if (ValueExpression.hasPlaceholders(value)) {
+			result = ValueExpression.parse(value).resolve(this);
+			if (!(result instanceof String)) {
+				return result;
+			}
+			text = (String) result;
+		}
+		if (BeanExpressions.hasExpressions(text)) {
+			return BeanExpressions.evaluate(text, this);
+		}
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.cellent.spring.utils.junit_spring.api.BeanInstanceProvider#getValue(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T getValue(String value, Class<T> type) {
+		return (T) getValue(value, TypeDescriptor.valueOf(type));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.cellent.spring.utils.junit_spring.api.BeanInstanceProvider#getValue(java.lang.String,
+	 * org.springframework.core.convert.TypeDescriptor)
+	 */
+	@Override
+	public Object getValue(String value, TypeDescriptor type) {
+		Object result = getValue(value);
+		return result == null ? null : valueConverter.convert(value, result, type);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.cellent.spring.utils.junit_spring.api.TestApplicationContext#loadValues(java.lang.String)
+	 */
+	@Override
+	public void loadValues(String location) {
+		loadedValues.add(0, PropertiesFiles.load(location));
+	}
+
+	/**
+	 * Convert a value which is not registered, but written somewhere else, e.g. in a bean property of an XML file.
+	 * 
+	 * @param value
+	 *            The value.
+	 * @param type
+	 *            The declared type to convert to.
+	 * @return The converted value.
+	 * @throws IllegalArgumentException
+	 *             If the value cannot be converted.
+	 */
+	Object convertValue(String value, TypeDescriptor type) {
+		return valueConverter.convert(value, value, type);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.cellent.spring.utils.junit_spring.api.TestApplicationContext#loadBeans(java.lang.String)
+	 */
+	@Override
+	public void loadBeans(String location) {
+		ContextFiles.load(location).applyTo(this);
+	}
+
+	/**
+	 * Look up the value registered under exactly the given key: set in this context, loaded by it, or known to its
+	 * parent.
+	 * 
+	 * @param key
+	 *            The key.
+	 * @return The value, {@link #NULL_VALUE} if it was set to null, null if none is known.
+	 */
+	Object findValue(String key) {
+		Object result = atValueMap.get(key);
+		if (result == null && !loadedValues.isEmpty()) {
+			for (Map<String, String> values : loadedValues) {
+				result = values.get(key);
+				if (result != null) {
+					break;
+				}
+			}
+		}
+		if (result == null && parent != null) {
+			return parent.findValue(key);
+		}
+		return result;
 	}
 
 	/*
@@ -198,9 +790,10 @@ public abstract class AbstractTestApplicationContext implements TestApplicationC
 	@Override
 	public void initApplicationContextHolder(Class<? extends ApplicationContextAware> applicationContextAware) {
 		try {
-			applicationContextAware.newInstance().setApplicationContext(this.applicationContext);
-			// after using this, getBean needs to behave differently, so this
-			// switch was included.
+			// All ApplicationContextAwares get the same routing context, which
+			// looks up beans in the context bound to the current thread.
+			applicationContextAware.newInstance().setApplicationContext(ApplicationContextRouting.getApplicationContext());
+			ApplicationContextRouting.bind(routingBinding);
 			usedByApplicationContextAware = true;
 		} catch (BeansException e) {
 			throw new RuntimeException("I should be able to instantiate the applicationContextAware ...", e);
@@ -211,6 +804,26 @@ public abstract class AbstractTestApplicationContext implements TestApplicationC
 		}
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.cellent.spring.utils.junit_spring.api.TestApplicationContext#inContext(java.lang.Runnable)
+	 */
+	@Override
+	public Runnable inContext(Runnable task) {
+		return ApplicationContextRouting.bound(routingBinding, task);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.cellent.spring.utils.junit_spring.api.TestApplicationContext#inContext(java.util.concurrent.Callable)
+	 */
+	@Override
+	public <V> Callable<V> inContext(Callable<V> task) {
+		return ApplicationContextRouting.bound(routingBinding, task);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -221,24 +834,28 @@ public abstract class AbstractTestApplicationContext implements TestApplicationC
 	}
 
 	/**
-	 * Search for a class in a set of known instances. If one is found, a pair of class/object will be cached in
-	 * {@link #mockInstanceMap} and true is returned, otherwise false.
+	 * Search for a class in the set of registered instances. If exactly one is found, a pair of class/object will be
+	 * cached in {@link #mockInstanceMap} and true is returned, if none is found false is returned.
 	 * 
 	 * If true is returned, you can obtain your instance via {@link Map#get(Object)} on {@link #mockInstanceMap}.
 	 * 
 	 * @param clazz
 	 *            The class you are looking for.
 	 * @return true, if {@link #mockInstanceMap} holds an instance of this class, false otherwise.
+	 * @throws NoSuchBeanDefinitionException
+	 *             If several registered instances are of the given class, so the desired one is ambiguous.
 	 */
-	private <T> boolean discoverInstanceOf(Class<T> clazz) {
-		Collection<Object> instances = mockInstanceMap.values();
-		for (Object object : instances) {
-			if (clazz.isInstance(object)) {
-				mockInstanceMap.put(clazz, object);
-				return true;
-			}
+	private <T> boolean discoverInstanceOf(Class<T> clazz) throws NoSuchBeanDefinitionException {
+		List<Object> candidates = typeIndex.candidatesFor(clazz);
+		if (candidates.isEmpty()) {
+			return false;
+		}
+		if (candidates.size() > 1) {
+			throw new NoSuchBeanDefinitionException(clazz, "expected single matching bean but found "
+					+ candidates.size() + ": " + candidates);
 		}
-		return false;
+		mockInstanceMap.put(clazz, candidates.get(0));
+		return true;
 	}
 
 	/*
@@ -250,7 +867,7 @@ public abstract class AbstractTestApplicationContext implements TestApplicationC
 	@Override
 	public void registerInstance(String name, Object instance) {
 		this.beanByNameMap.put(name, instance);
-		this.mockInstanceMap.put(instance.getClass(), instance);
+		registerInstance(instance);
 	}
 
 	/*
@@ -260,13 +877,137 @@ public abstract class AbstractTestApplicationContext implements TestApplicationC
 	 */
 	@Override
 	public Object getInstance(String name) throws NoSuchBeanDefinitionException {
-		Object result = this.beanByNameMap.get(name);
+		Object result = findInstance(name);
 		if (result != null) {
 			return result;
 		}
 		throw new NoSuchBeanDefinitionException(name);
 	}
 
+	/**
+	 * Look up the bean registered under the given name in this context or its parent.
+	 * 
+	 * @param name
+	 *            The name of the bean.
+	 * @return The bean, null if none is registered under this name.
+	 */
+	Object findInstance(String name) {
+		Object result = this.beanByNameMap.get(name);
+		if (result == null && parent != null) {
+			return parent.findInstance(name);
+		}
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.cellent.spring.utils.junit_spring.api.TestApplicationContext#close()
+	 */
+	@Override
+	public void close() {
+		if (!closed.compareAndSet(false, true)) {
+			return;
+		}
+		RuntimeException destroyFailure = destroyCreatedBeans();
+		ApplicationContextRouting.unbind(routingBinding);
+		resetMocks();
+		releaseMockInstances();
+		createdMocks.clear();
+		mockInstanceMap.clear();
+		instanceCreationLocks.clear();
+		beanByNameMap.clear();
+		atValueMap.clear();
+		loadedValues.clear();
+		if (parent == null) {
+			valueConverter.clear();
+		}
+		typeIndex.clear();
+		lazyMockInstances.clear();
+		if (destroyFailure != null) {
+			throw destroyFailure;
+		}
+	}
+
+	/**
+	 * Call {@link DisposableBean#destroy()} on all beans created by this context, the latest first, like Spring does
+	 * on shutdown. All beans are destroyed even if some of them fail.
+	 * 
+	 * @return The failure of the first bean which could not be destroyed, null if all were destroyed.
+	 */
+	private RuntimeException destroyCreatedBeans() {
+		RuntimeException result = null;
+		List<DisposableBean> beans = new ArrayList<DisposableBean>(createdDisposableBeans);
+		createdDisposableBeans.clear();
+		for (int i = beans.size() - 1; i >= 0; i--) {
+			try {
+				beans.get(i).destroy();
+			} catch (Exception e) {
+				if (result == null) {
+					result = new RuntimeException("Class is DisposableBean, but calling destroy leads to an error: "
+							+ e.getMessage(), e);
+				}
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.cellent.spring.utils.junit_spring.api.TestApplicationContext#resetMocks()
+	 */
+	@Override
+	public void resetMocks() {
+		Object[] mocks = createdMocks.toArray();
+		if (mocks.length > 0) {
+			resetMockInstances(mocks);
+		}
+	}
+
+	/**
+	 * Reset mocks created by {@link #createMockInstance(Class)}, so they forget all expectations, stubbing and
+	 * invocations.
+	 * 
+	 * @param mocks
+	 *            The mocks, all created by this context.
+	 */
+	protected abstract void resetMockInstances(Object[] mocks);
+
+	/**
+	 * Give back the mocks this context created, if the mocking framework keeps them beyond the lifetime of the context.
+	 * Called by {@link #close()}; does nothing by default.
+	 */
+	protected void releaseMockInstances() {
+	}
+
+	/**
+	 * Create a placeholder for the mock of the given interface, which is cheaper to create than the mock, but is a mock
+	 * of the mocking framework already, so that the test can stub and verify it. It is set up completely by
+	 * {@link #materializeMockInstance(Object)} before it is given out by {@link #getInstance(Class)}, and it must set
+	 * itself up when it is used before, by asking this context for its interface. By default, there are no
+	 * placeholders.
+	 * 
+	 * @param clazz
+	 *            The interface.
+	 * @return The placeholder, null if the mocking framework cannot create placeholders, so that the mock is created
+	 *         right away.
+	 * @see #setLazyMocks(boolean)
+	 */
+	protected <T> T createLazyMockInstance(Class<T> clazz) {
+		return null;
+	}
+
+	/**
+	 * Set up a placeholder created by {@link #createLazyMockInstance(Class)} as complete mock, if it has not set itself
+	 * up yet. Does nothing by default.
+	 * 
+	 * @param placeholder
+	 *            The placeholder.
+	 */
+	protected void materializeMockInstance(Object placeholder) {
+	}
+
 	/**
 	 * Create a mocked instance of the desired class (for example via EasyMock or Mockito).
 	 * 
@@ -275,4 +1016,74 @@ public abstract class AbstractTestApplicationContext implements TestApplicationC
 	 * @return A Mock of the desired class.
 	 */
 	protected abstract <T> T createMockInstance(Class<T> clazz);
+
+	/**
+	 * The view of this context injected beans get: the same as the context, except that dependencies are looked up by
+	 * {@link AbstractTestApplicationContext#getInstanceForInjection(Class)}.
+	 */
+	private final class InjectionProvider implements BeanInstanceProvider {
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see com.cellent.spring.utils.junit_spring.api.BeanInstanceProvider#getInstance(java.lang.Class)
+		 */
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> T getInstance(Class<T> clazz) {
+			return (T) getInstanceForInjection(clazz);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see com.cellent.spring.utils.junit_spring.api.BeanInstanceProvider#getValue(java.lang.String)
+		 */
+		@Override
+		public Object getValue(String value) {
+			return AbstractTestApplicationContext.this.getValue(value);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see com.cellent.spring.utils.junit_spring.api.BeanInstanceProvider#getValue(java.lang.String,
+		 * java.lang.Class)
+		 */
+		@Override
+		public <T> T getValue(String value, Class<T> type) {
+			return AbstractTestApplicationContext.this.getValue(value, type);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see com.cellent.spring.utils.junit_spring.api.BeanInstanceProvider#getValue(java.lang.String,
+		 * org.springframework.core.convert.TypeDescriptor)
+		 */
+		@Override
+		public Object getValue(String value, TypeDescriptor type) {
+			return AbstractTestApplicationContext.this.getValue(value, type);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see com.cellent.spring.utils.junit_spring.api.BeanInstanceProvider#isUsedByApplicationContextAware()
+		 */
+		@Override
+		public boolean isUsedByApplicationContextAware() {
+			return AbstractTestApplicationContext.this.isUsedByApplicationContextAware();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see com.cellent.spring.utils.junit_spring.api.BeanInstanceProvider#getInstance(java.lang.String)
+		 */
+		@Override
+		public Object getInstance(String name) {
+			return AbstractTestApplicationContext.this.getInstance(name);
+		}
+	}
 }
@@ -0,0 +1,213 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import java.util.concurrent.Callable;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanNotOfRequiredTypeException;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+
+/**
+ * The one {@link ApplicationContext} all {@link ApplicationContextAware}s get, for all test contexts. Every bean lookup
+ * is handed over to the test context bound to the current thread, so static holders can be shared by tests running in
+ * parallel, each of them seeing its own instances.
+ *
+ * A context is bound to the thread which initializes an {@link ApplicationContextAware} with it. Other threads only see
+ * it while they run a task bound by {@link #bound(Binding, Runnable)}, so threads of shared pools never keep the context
+ * of a test which happened to start them. Threads see the context through a {@link Binding}, which is cleared when the
+ * context is unbound, so no thread keeps a closed context reachable.
+ *
+ * @author bjoern
+ */
+final class ApplicationContextRouting {
+
+	/**
+	 * The test context bound to the current thread.
+	 */
+	private static final ThreadLocal<Binding> BOUND_CONTEXT = new ThreadLocal<Binding>();
+
+	/**
+	 * The application context given to all {@link ApplicationContextAware}s.
+	 */
+	private static final ApplicationContext ROUTING_APPLICATION_CONTEXT = new MinimalApplicationContext(
+			new RoutingBeanFactory());
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private ApplicationContextRouting() {
+	}
+
+	/**
+	 * @return The application context which routes to the test context bound to the current thread.
+	 */
+	static ApplicationContext getApplicationContext() {
+		return ROUTING_APPLICATION_CONTEXT;
+	}
+
+	/**
+	 * Route all lookups of the current thread to the given context.
+	 *
+	 * @param binding
+	 *            The binding of the test context, the same for all threads.
+	 */
+	static void bind(Binding binding) {
+		BOUND_CONTEXT.set(binding);
+	}
+
+	/**
+	 * Give a task which routes the lookups of the thread running it to the given context while it runs.
+	 *
+	 * @param binding
+	 *            The binding of the test context.
+	 * @param task
+	 *            The task.
+	 * @return The bound task.
+	 */
+	static Runnable bound(final Binding binding, final Runnable task) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				Binding previous = BOUND_CONTEXT.get();
+				BOUND_CONTEXT.set(binding);
+				try {
+					task.run();
+				} finally {
+					restore(previous);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Give a task which routes the lookups of the thread calling it to the given context while it runs.
+	 *
+	 * @param binding
+	 *            The binding of the test context.
+	 * @param task
+	 *            The task.
+	 * @return The bound task.
+	 */
+	static <V> Callable<V> bound(final Binding binding, final Callable<V> task) {
+		return new Callable<V>() {
+			@Override
+			public V call() throws Exception {
+				Binding previous = BOUND_CONTEXT.get();
+				BOUND_CONTEXT.set(binding);
+				try {
+					return task.call();
+				} finally {
+					restore(previous);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Bind the current thread to what it was bound to before a bound task ran.
+	 *
+	 * @param previous
+	 *            The former binding, may be null.
+	 */
+	private static void restore(Binding previous) {
+		if (previous == null) {
+			BOUND_CONTEXT.remove();
+		} else {
+			BOUND_CONTEXT.set(previous);
+		}
+	}
+
+	/**
+	 * Stop routing the lookups of all threads to the context of the given binding. The current thread forgets the
+	 * binding, other threads find it empty.
+	 *
+	 * @param binding
+	 *            The binding of the test context.
+	 */
+	static void unbind(Binding binding) {
+		binding.context = null;
+		if (BOUND_CONTEXT.get() == binding) {
+			BOUND_CONTEXT.remove();
+		}
+	}
+
+	/**
+	 * @return The test context bound to the current thread.
+	 * @throws IllegalStateException
+	 *             If there is none.
+	 */
+	private static AbstractTestApplicationContext boundContext() {
+		Binding binding = BOUND_CONTEXT.get();
+		AbstractTestApplicationContext result = binding == null ? null : binding.context;
+		if (result == null) {
+			throw new IllegalStateException("No test application context bound to thread "
+					+ Thread.currentThread().getName() + ", call initApplicationContextHolder first.");
+		}
+		return result;
+	}
+
+	/**
+	 * The link of threads to a test context, which outlives the context without keeping it reachable.
+	 */
+	static final class Binding {
+
+		/**
+		 * The test context, null once it is unbound.
+		 */
+		private volatile AbstractTestApplicationContext context;
+
+		/**
+		 * Constructor of this class.
+		 *
+		 * @param context
+		 *            The test context.
+		 */
+		Binding(AbstractTestApplicationContext context) {
+			this.context = context;
+		}
+	}
+
+	/**
+	 * Bean factory which looks up every bean in the test context bound to the current thread. Lookups by type give the
+	 * instance the test would get by getInstance, i.e. a mock or a registered instance, never a new real instance.
+	 */
+	private static final class RoutingBeanFactory extends DefaultListableBeanFactory {
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.beans.factory.support.DefaultListableBeanFactory#getBean(java.lang.Class)
+		 */
+		@Override
+		public <T> T getBean(Class<T> requiredType) throws BeansException {
+			return boundContext().getInstance(requiredType);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.beans.factory.support.AbstractBeanFactory#getBean(java.lang.String)
+		 */
+		@Override
+		public Object getBean(String name) throws BeansException {
+			return boundContext().getInstance(name);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.beans.factory.support.AbstractBeanFactory#getBean(java.lang.String,
+		 * java.lang.Class)
+		 */
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> T getBean(String name, Class<T> requiredType) throws BeansException {
+			Object result = getBean(name);
+			if (requiredType != null && !requiredType.isInstance(result)) {
+				throw new BeanNotOfRequiredTypeException(name, requiredType, result.getClass());
+			}
+			return (T) result;
+		}
+	}
+}
@@ -0,0 +1,228 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.expression.MapAccessor;
+import org.springframework.expression.AccessException;
+import org.springframework.expression.BeanResolver;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.ExpressionException;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParserContext;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * Evaluates "#{...}" expressions in {@link Value}s like Spring does: after placeholders are resolved, against the beans
+ * of the context. Beans registered by name are variables of the expression ("#{myBean.timeout * 2}") and can be
+ * referenced with "@myBean"; systemProperties and systemEnvironment are known as well.
+ *
+ * Every expression text is parsed once per JVM, and the parsed expression is used by all contexts.
+ *
+ * @author bjoern
+ */
+final class BeanExpressions {
+
+	/**
+	 * Start of an expression.
+	 */
+	private static final String PREFIX = "#{";
+
+	/**
+	 * Parses all expressions; it is thread-safe.
+	 */
+	private static final SpelExpressionParser PARSER = new SpelExpressionParser();
+
+	/**
+	 * All expressions parsed so far. Entries are never removed; the texts come from annotations and property files, so
+	 * there is a fixed number of them.
+	 */
+	private static final ConcurrentMap<String, Expression> PARSED = new ConcurrentHashMap<String, Expression>();
+
+	/**
+	 * Accessors of properties of all evaluations; they are stateless but for caches of reflected members, which are
+	 * better shared.
+	 */
+	private static final List<PropertyAccessor> SHARED_PROPERTY_ACCESSORS = Arrays.<PropertyAccessor> asList(
+			new MapAccessor(), new ReflectivePropertyAccessor());
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private BeanExpressions() {
+	}
+
+	/**
+	 * @param text
+	 *            The text of a {@link Value} with placeholders resolved.
+	 * @return true if it may contain an expression.
+	 */
+	static boolean hasExpressions(String text) {
+		return text.indexOf(PREFIX) >= 0;
+	}
+
+	/**
+	 * Evaluate the expressions in the given text. A text which is a single expression gives its value as it is,
+	 * otherwise the values are joined with the literal text.
+	 *
+	 * @param text
+	 *            The text of a {@link Value} with placeholders resolved.
+	 * @param context
+	 *            Where beans are looked up.
+	 * @return The value of the text.
+	 * @throws IllegalArgumentException
+	 *             If the text cannot be parsed or evaluated.
+	 */
+	static Object evaluate(String text, AbstractTestApplicationContext context) {
+		try {
+			Expression expression = PARSED.get(text);
+			if (expression == null) {
+				expression = PARSER.parseExpression(text, ParserContext.TEMPLATE_EXPRESSION);
+				PARSED.putIfAbsent(text, expression);
+			}
+			return expression.getValue(createEvaluationContext(context));
+		} catch (ExpressionException e) {
+			throw new IllegalArgumentException("@Value-Annotation " + text + " cannot be evaluated.", e);
+		}
+	}
+
+	/**
+	 * @param context
+	 *            Where beans are looked up.
+	 * @return A new evaluation context on the beans of the given context.
+	 */
+	private static EvaluationContext createEvaluationContext(AbstractTestApplicationContext context) {
+		ContextBeans beans = new ContextBeans(context);
+		StandardEvaluationContext result = new StandardEvaluationContext(beans);
+		result.addPropertyAccessor(beans);
+		for (PropertyAccessor propertyAccessor : SHARED_PROPERTY_ACCESSORS) {
+			result.addPropertyAccessor(propertyAccessor);
+		}
+		result.setBeanResolver(beans);
+		return result;
+	}
+
+	/**
+	 * The root object of all expressions, whose properties are the beans of the context.
+	 */
+	private static final class ContextBeans implements PropertyAccessor, BeanResolver {
+
+		/**
+		 * Name of the system properties, which are a bean unless another bean is registered under this name.
+		 */
+		private static final String SYSTEM_PROPERTIES = "systemProperties";
+
+		/**
+		 * Name of the environment variables, which are a bean unless another bean is registered under this name.
+		 */
+		private static final String SYSTEM_ENVIRONMENT = "systemEnvironment";
+
+		/**
+		 * Where beans are looked up.
+		 */
+		private final AbstractTestApplicationContext context;
+
+		/**
+		 * Constructor of this class.
+		 *
+		 * @param context
+		 *            Where beans are looked up.
+		 */
+		ContextBeans(AbstractTestApplicationContext context) {
+			this.context = context;
+		}
+
+		/**
+		 * @param name
+		 *            A bean name.
+		 * @return The bean, null if none is known under this name.
+		 */
+		private Object findBean(String name) {
+			Object result = context.findInstance(name);
+			if (result == null && SYSTEM_PROPERTIES.equals(name)) {
+				return System.getProperties();
+			}
+			if (result == null && SYSTEM_ENVIRONMENT.equals(name)) {
+				return System.getenv();
+			}
+			return result;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.expression.PropertyAccessor#getSpecificTargetClasses()
+		 */
+		@Override
+		public Class<?>[] getSpecificTargetClasses() {
+			return new Class<?>[] { ContextBeans.class };
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.expression.PropertyAccessor#canRead(org.springframework.expression.EvaluationContext,
+		 * java.lang.Object, java.lang.String)
+		 */
+		@Override
+		public boolean canRead(EvaluationContext evaluationContext, Object target, String name) {
+			return findBean(name) != null;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.expression.PropertyAccessor#read(org.springframework.expression.EvaluationContext,
+		 * java.lang.Object, java.lang.String)
+		 */
+		@Override
+		public TypedValue read(EvaluationContext evaluationContext, Object target, String name) {
+			return new TypedValue(findBean(name));
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.expression.PropertyAccessor#canWrite(org.springframework.expression.EvaluationContext,
+		 * java.lang.Object, java.lang.String)
+		 */
+		@Override
+		public boolean canWrite(EvaluationContext evaluationContext, Object target, String name) {
+			return false;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.expression.PropertyAccessor#write(org.springframework.expression.EvaluationContext,
+		 * java.lang.Object, java.lang.String, java.lang.Object)
+		 */
+		@Override
+		public void write(EvaluationContext evaluationContext, Object target, String name, Object newValue)
+				throws AccessException {
+			throw new AccessException("Beans cannot be replaced by an expression.");
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.expression.BeanResolver#resolve(org.springframework.expression.EvaluationContext,
+		 * java.lang.String)
+		 */
+		@Override
+		public Object resolve(EvaluationContext evaluationContext, String beanName) throws AccessException {
+			Object result = findBean(beanName);
+			if (result == null) {
+				throw new AccessException("No bean named " + beanName + " registered.");
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,566 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import java.beans.PropertyDescriptor;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * The Spring XML files loaded as beans, e.g. the context.xml of a Springockito test. A file is streamed once per JVM,
+ * without schema validation and without bean definitions: every "bean" element becomes a class to instantiate,
+ * every "mockito:mock" element a class to mock, and every "property" element a setter to call. These are then applied
+ * to every context loading the file. A file is read again once it is modified.
+ *
+ * Only what a test context needs is understood; any other element or attribute is reported instead of being ignored,
+ * as it would change what the beans look like.
+ *
+ * @author bjoern
+ */
+final class ContextFiles {
+
+	/**
+	 * Namespace of the Spring bean elements.
+	 */
+	private static final String BEANS_NAMESPACE = "http://www.springframework.org/schema/beans";
+
+	/**
+	 * Namespace of the Springockito elements.
+	 */
+	private static final String MOCKITO_NAMESPACE = "http://www.mockito.org/spring/mockito";
+
+	/**
+	 * The attributes of a "bean" element which are understood. Every bean is created once per context, so the only
+	 * scope understood is singleton; laziness does not matter in a test context.
+	 */
+	private static final Set<String> BEAN_ATTRIBUTES = new HashSet<String>(Arrays.asList("id", "name", "class",
+			"scope", "lazy-init"));
+
+	/**
+	 * The attributes of a "mockito:mock" element which are understood.
+	 */
+	private static final Set<String> MOCK_ATTRIBUTES = new HashSet<String>(Arrays.asList("id", "name", "class"));
+
+	/**
+	 * The attributes of a "property" element which are understood.
+	 */
+	private static final Set<String> PROPERTY_ATTRIBUTES = new HashSet<String>(Arrays.asList("name", "ref", "value"));
+
+	/**
+	 * Finds the files.
+	 */
+	private static final ResourceLoader RESOURCE_LOADER = new DefaultResourceLoader();
+
+	/**
+	 * Creates the readers; it is thread-safe once configured.
+	 */
+	private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+	/**
+	 * The files read so far, by location.
+	 */
+	private static final ConcurrentMap<String, ContextFile> FILES = new ConcurrentHashMap<String, ContextFile>();
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private ContextFiles() {
+	}
+
+	/**
+	 * @return A factory for namespace aware readers which neither read DTDs nor resolve external entities.
+	 */
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory result = XMLInputFactory.newInstance();
+		result.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+		result.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		result.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		return result;
+	}
+
+	/**
+	 * Give the content of the given file, reading it if it was not read before or modified since.
+	 *
+	 * @param location
+	 *            Where the file is, e.g. "classpath:context.xml".
+	 * @return The content.
+	 * @throws IllegalArgumentException
+	 *             If the file cannot be read or contains something which is not understood.
+	 */
+	static ContextFile load(String location) {
+		Resource resource = RESOURCE_LOADER.getResource(location);
+		long lastModified = lastModifiedOf(resource);
+		ContextFile file = FILES.get(location);
+		if (file == null || file.lastModified != lastModified) {
+			file = read(resource, lastModified);
+			FILES.put(location, file);
+		}
+		return file;
+	}
+
+	/**
+	 * @param resource
+	 *            A file.
+	 * @return When it was modified, 0 if this is not known.
+	 */
+	private static long lastModifiedOf(Resource resource) {
+		try {
+			return resource.lastModified();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Stream the file.
+	 *
+	 * @param resource
+	 *            The file.
+	 * @param lastModified
+	 *            When it was modified.
+	 * @return Its content.
+	 * @throws IllegalArgumentException
+	 *             If the file cannot be read or contains something which is not understood.
+	 */
+	private static ContextFile read(Resource resource, long lastModified) {
+		try {
+			InputStream in = new BufferedInputStream(resource.getInputStream());
+			try {
+				XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+				try {
+					return read(reader, lastModified);
+				} finally {
+					reader.close();
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Cannot read beans from " + resource.getDescription(), e);
+		} catch (XMLStreamException e) {
+			throw new IllegalArgumentException("Cannot read beans from " + resource.getDescription(), e);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Cannot read beans from " + resource.getDescription() + ": "
+					+ e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Read the elements below the root "beans" element.
+	 *
+	 * @param reader
+	 *            The reader, before the root element.
+	 * @param lastModified
+	 *            When the file was modified.
+	 * @return The content of the file.
+	 * @throws XMLStreamException
+	 *             If the file is no well-formed XML.
+	 */
+	private static ContextFile read(XMLStreamReader reader, long lastModified) throws XMLStreamException {
+		reader.nextTag();
+		requireElement(reader, BEANS_NAMESPACE, "beans");
+		List<MockElement> mocks = new ArrayList<MockElement>();
+		List<BeanElement> beans = new ArrayList<BeanElement>();
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			if (isElement(reader, MOCKITO_NAMESPACE, "mock")) {
+				requireAttributes(reader, MOCK_ATTRIBUTES);
+				mocks.add(new MockElement(nameOf(reader), classOf(reader)));
+				skipToEnd(reader);
+			} else if (isElement(reader, BEANS_NAMESPACE, "bean")) {
+				beans.add(readBean(reader));
+			} else {
+				throw new IllegalArgumentException("Element " + reader.getName() + " is not supported.");
+			}
+		}
+		return new ContextFile(lastModified, mocks, beans);
+	}
+
+	/**
+	 * Read a "bean" element with its "property" elements.
+	 *
+	 * @param reader
+	 *            The reader, at the start of the element.
+	 * @return The bean.
+	 * @throws XMLStreamException
+	 *             If the file is no well-formed XML.
+	 */
+	private static BeanElement readBean(XMLStreamReader reader) throws XMLStreamException {
+		requireAttributes(reader, BEAN_ATTRIBUTES);
+		String name = nameOf(reader);
+		Class<?> clazz = classOf(reader);
+		String scope = reader.getAttributeValue(null, "scope");
+		if (scope != null && !"singleton".equals(scope)) {
+			throw new IllegalArgumentException("Scope " + scope + " of bean " + clazz.getName()
+					+ " is not supported, only singleton.");
+		}
+		List<PropertyElement> properties = new ArrayList<PropertyElement>();
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			if (!isElement(reader, BEANS_NAMESPACE, "property")) {
+				throw new IllegalArgumentException("Element " + reader.getName() + " in bean " + clazz.getName()
+						+ " is not supported.");
+			}
+			requireAttributes(reader, PROPERTY_ATTRIBUTES);
+			properties.add(readProperty(reader, clazz));
+			skipToEnd(reader);
+		}
+		return new BeanElement(name, clazz, properties);
+	}
+
+	/**
+	 * Read a "property" element with either a "ref" or a "value" attribute.
+	 *
+	 * @param reader
+	 *            The reader, at the start of the element.
+	 * @param clazz
+	 *            The class of the bean.
+	 * @return The property.
+	 */
+	private static PropertyElement readProperty(XMLStreamReader reader, Class<?> clazz) {
+		String name = reader.getAttributeValue(null, "name");
+		String ref = reader.getAttributeValue(null, "ref");
+		String value = reader.getAttributeValue(null, "value");
+		if (name == null || (ref == null) == (value == null)) {
+			throw new IllegalArgumentException("A property of bean " + clazz.getName()
+					+ " needs a name and either a ref or a value.");
+		}
+		PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(clazz, name);
+		if (descriptor == null || descriptor.getWriteMethod() == null) {
+			throw new IllegalArgumentException("Bean " + clazz.getName() + " has no setter for property " + name
+					+ ".");
+		}
+		Method setter = descriptor.getWriteMethod();
+		setter.setAccessible(true);
+		return new PropertyElement(setter, ref, value);
+	}
+
+	/**
+	 * @param reader
+	 *            The reader, at the start of an element.
+	 * @param namespace
+	 *            The namespace of the expected element.
+	 * @param localName
+	 *            The name of the expected element.
+	 * @return true if it is the expected element.
+	 */
+	private static boolean isElement(XMLStreamReader reader, String namespace, String localName) {
+		return namespace.equals(reader.getNamespaceURI()) && localName.equals(reader.getLocalName());
+	}
+
+	/**
+	 * @param reader
+	 *            The reader, at the start of an element.
+	 * @param namespace
+	 *            The namespace of the expected element.
+	 * @param localName
+	 *            The name of the expected element.
+	 * @throws IllegalArgumentException
+	 *             If it is not the expected element.
+	 */
+	private static void requireElement(XMLStreamReader reader, String namespace, String localName) {
+		if (!isElement(reader, namespace, localName)) {
+			throw new IllegalArgumentException("Expected element " + localName + " but found " + reader.getName()
+					+ ".");
+		}
+	}
+
+	/**
+	 * @param reader
+	 *            The reader, at the start of an element.
+	 * @param understood
+	 *            The attributes without namespace which are understood.
+	 * @throws IllegalArgumentException
+	 *             If the element has another attribute.
+	 */
+	private static void requireAttributes(XMLStreamReader reader, Set<String> understood) {
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String namespace = reader.getAttributeNamespace(i);
+			boolean understoodAttribute = understood.contains(reader.getAttributeLocalName(i));
+			if ((namespace == null || namespace.length() == 0) && !understoodAttribute) {
+				throw new IllegalArgumentException("Attribute " + reader.getAttributeLocalName(i) + " of element "
+						+ reader.getName() + " is not supported.");
+			}
+		}
+	}
+
+	/**
+	 * @param reader
+	 *            The reader, at the start of a "bean" or "mockito:mock" element.
+	 * @return Its id, else the first of its names, null if it has neither.
+	 */
+	private static String nameOf(XMLStreamReader reader) {
+		String id = reader.getAttributeValue(null, "id");
+		if (id != null) {
+			return id;
+		}
+		String[] names = StringUtils.tokenizeToStringArray(reader.getAttributeValue(null, "name"), ",; ");
+		return names == null || names.length == 0 ? null : names[0];
+	}
+
+	/**
+	 * @param reader
+	 *            The reader, at the start of a "bean" or "mockito:mock" element.
+	 * @return The class named by its "class" attribute.
+	 * @throws IllegalArgumentException
+	 *             If there is no such attribute or class.
+	 */
+	private static Class<?> classOf(XMLStreamReader reader) {
+		String className = reader.getAttributeValue(null, "class");
+		if (className == null) {
+			throw new IllegalArgumentException("Element " + reader.getName() + " has no class.");
+		}
+		try {
+			return ClassUtils.forName(className, ClassUtils.getDefaultClassLoader());
+		} catch (ClassNotFoundException e) {
+			throw new IllegalArgumentException("Class " + className + " not found.", e);
+		} catch (LinkageError e) {
+			throw new IllegalArgumentException("Class " + className + " cannot be loaded.", e);
+		}
+	}
+
+	/**
+	 * Skip the rest of an element which must not have child elements.
+	 *
+	 * @param reader
+	 *            The reader, at the start of the element.
+	 * @throws XMLStreamException
+	 *             If the file is no well-formed XML.
+	 */
+	private static void skipToEnd(XMLStreamReader reader) throws XMLStreamException {
+		if (reader.nextTag() != XMLStreamConstants.END_ELEMENT) {
+			throw new IllegalArgumentException("Element " + reader.getName() + " is not supported here.");
+		}
+	}
+
+	/**
+	 * A file as read.
+	 */
+	static final class ContextFile {
+
+		/**
+		 * When the file was modified before it was read.
+		 */
+		private final long lastModified;
+
+		/**
+		 * The mocks, in order of the file.
+		 */
+		private final List<MockElement> mocks;
+
+		/**
+		 * The beans, in order of the file.
+		 */
+		private final List<BeanElement> beans;
+
+		/**
+		 * Constructor of this class.
+		 *
+		 * @param lastModified
+		 *            When the file was modified before it was read.
+		 * @param mocks
+		 *            The mocks, in order of the file.
+		 * @param beans
+		 *            The beans, in order of the file.
+		 */
+		ContextFile(long lastModified, List<MockElement> mocks, List<BeanElement> beans) {
+			this.lastModified = lastModified;
+			this.mocks = mocks;
+			this.beans = beans;
+		}
+
+		/**
+		 * Create the mocks and beans of the file in the given context and register them by their names. First a new mock
+		 * is registered for each mock element, then all beans are instantiated and registered, and only then the beans
+		 * are injected, get their properties set and are initialized. So a bean gets the other beans of the file
+		 * autowired by type regardless of their order, except in its constructor, where only the beans above it are
+		 * known.
+		 *
+		 * @param context
+		 *            The context.
+		 * @throws NoSuchBeanDefinitionException
+		 *             If a referenced bean is not known.
+		 * @throws IllegalArgumentException
+		 *             If a value cannot be converted.
+		 */
+		void applyTo(AbstractTestApplicationContext context) {
+			for (MockElement mock : mocks) {
+				register(context, mock.name, context.createMock(mock.clazz));
+			}
+			Object[] instances = new Object[beans.size()];
+			for (int i = 0; i < instances.length; i++) {
+				BeanElement bean = beans.get(i);
+				instances[i] = context.instantiate(bean.clazz);
+				register(context, bean.name, instances[i]);
+			}
+			for (int i = 0; i < instances.length; i++) {
+				context.processInjection(instances[i]);
+				for (PropertyElement property : beans.get(i).properties) {
+					property.applyTo(context, instances[i]);
+				}
+				context.executeAfterPropertiesSetIfNecessary(instances[i]);
+			}
+		}
+
+		/**
+		 * @param context
+		 *            The context.
+		 * @param name
+		 *            The name of the instance, null if it has none.
+		 * @param instance
+		 *            The instance to register.
+		 */
+		private static void register(AbstractTestApplicationContext context, String name, Object instance) {
+			if (name == null) {
+				context.registerInstance(instance);
+			} else {
+				context.registerInstance(name, instance);
+			}
+		}
+	}
+
+	/**
+	 * A "mockito:mock" element.
+	 */
+	private static final class MockElement {
+
+		/**
+		 * The name of the mock, null if it has none.
+		 */
+		private final String name;
+
+		/**
+		 * The mocked class.
+		 */
+		private final Class<?> clazz;
+
+		/**
+		 * Constructor of this class.
+		 *
+		 * @param name
+		 *            The name of the mock, null if it has none.
+		 * @param clazz
+		 *            The mocked class.
+		 */
+		MockElement(String name, Class<?> clazz) {
+			this.name = name;
+			this.clazz = clazz;
+		}
+	}
+
+	/**
+	 * A "bean" element.
+	 */
+	private static final class BeanElement {
+
+		/**
+		 * The name of the bean, null if it has none.
+		 */
+		private final String name;
+
+		/**
+		 * The class of the bean.
+		 */
+		private final Class<?> clazz;
+
+		/**
+		 * Its properties, in order of the file.
+		 */
+		private final List<PropertyElement> properties;
+
+		/**
+		 * Constructor of this class.
+		 *
+		 * @param name
+		 *            The name of the bean, null if it has none.
+		 * @param clazz
+		 *            The class of the bean.
+		 * @param properties
+		 *            Its properties, in order of the file.
+		 */
+		BeanElement(String name, Class<?> clazz, List<PropertyElement> properties) {
+			this.name = name;
+			this.clazz = clazz;
+			this.properties = properties;
+		}
+	}
+
+	/**
+	 * A "property" element.
+	 */
+	private static final class PropertyElement {
+
+		/**
+		 * The setter of the property.
+		 */
+		private final Method setter;
+
+		/**
+		 * The name of the referenced bean, null if a value is set.
+		 */
+		private final String ref;
+
+		/**
+		 * The value as written in the file, null if a bean is referenced.
+		 */
+		private final String value;
+
+		/**
+		 * Constructor of this class.
+		 *
+		 * @param setter
+		 *            The setter of the property.
+		 * @param ref
+		 *            The name of the referenced bean, null if a value is set.
+		 * @param value
+		 *            The value as written in the file, null if a bean is referenced.
+		 */
+		PropertyElement(Method setter, String ref, String value) {
+			this.setter = setter;
+			this.ref = ref;
+			this.value = value;
+		}
+
+		/**
+		 * Set the property of the given bean.
+		 *
+		 * @param context
+		 *            Where the referenced bean is looked up.
+		 * @param bean
+		 *            The bean.
+		 */
+		void applyTo(AbstractTestApplicationContext context, Object bean) {
+			Object argument = ref != null ? context.getInstance(ref) : context.convertValue(value, new TypeDescriptor(
+					new MethodParameter(setter, 0)));
+			try {
+				setter.invoke(bean, argument);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException("Cannot call " + setter, e);
+			} catch (InvocationTargetException e) {
+				throw new IllegalStateException("Calling " + setter + " failed: " + e.getTargetException(),
+						e.getTargetException());
+			}
+		}
+	}
+}
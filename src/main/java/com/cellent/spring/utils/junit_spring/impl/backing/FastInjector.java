@@ -0,0 +1,572 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.BridgeMethodResolver;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.util.ClassUtils;
+
+import com.cellent.spring.utils.junit_spring.api.BeanInstanceProvider;
+
+/**
+ * Field and setter injection for the classes injected most often, without Spring. Spring's
+ * {@link AutowiredAnnotationBeanPostProcessor} creates descriptors, resolves generics and makes members accessible on
+ * every injection. Once a class has been injected {@link #USES_BEFORE_COMPILATION} times, all of this is done once and
+ * an injector holding the accessible fields and methods with their resolved types is used from then on.
+ *
+ * Fields and methods are found, ordered and filled exactly like Spring does it with {@link SpringMockBeanFactory}:
+ * superclasses first, fields before methods, {@link Value}-fields are only set if a value is known, methods are always
+ * invoked. Fields are set and methods are invoked through a {@link MethodHandle} created once per member, which the JVM
+ * compiles like a direct access, instead of {@link Field#set(Object, Object)} and
+ * {@link Method#invoke(Object, Object...)} with their checks on every call.
+ *
+ * The members of every compiled injector are added to the {@link PlanIndex}. A class found there is injected by a fast
+ * injector from its first use on, without looking at annotations.
+ *
+ * @author bjoern
+ */
+final class FastInjector {
+
+	/**
+	 * How often a class is injected by Spring before its fast injector is built.
+	 */
+	static final int USES_BEFORE_COMPILATION = 3;
+
+	/**
+	 * Stands for a class which cannot be injected by a fast injector, because {@link #INJECTORS} cannot hold null.
+	 */
+	private static final Object NOT_COMPILABLE = new Object();
+
+	/**
+	 * The annotations Spring autowires by: {@link Autowired}, {@link Value} and javax.inject.Inject if present.
+	 */
+	private static final List<Class<? extends Annotation>> AUTOWIRED_ANNOTATION_TYPES = autowiredAnnotationTypes();
+
+	/**
+	 * How often each class has been injected without fast injector.
+	 */
+	private static final ConcurrentMap<Class<?>, AtomicInteger> USES = new ConcurrentHashMap<Class<?>, AtomicInteger>();
+
+	/**
+	 * The fast injectors (or {@link #NOT_COMPILABLE}) by the class they inject.
+	 */
+	private static final ConcurrentMap<Class<?>, Object> INJECTORS = new ConcurrentHashMap<Class<?>, Object>();
+
+	/**
+	 * The class this injector injects.
+	 */
+	private final Class<?> clazz;
+
+	/**
+	 * The fields and methods to inject, in the order of injection.
+	 */
+	private final InjectedMember[] members;
+
+	/**
+	 * Constructor of this class.
+	 *
+	 * @param clazz
+	 *            The class this injector injects.
+	 * @param members
+	 *            The fields and methods to inject, in the order of injection.
+	 */
+	private FastInjector(Class<?> clazz, List<InjectedMember> members) {
+		this.clazz = clazz;
+		this.members = members.toArray(new InjectedMember[members.size()]);
+	}
+
+	/**
+	 * Count a use of the given class and give its fast injector, if it has been used often enough or is in the
+	 * {@link PlanIndex}.
+	 *
+	 * @param clazz
+	 *            The class of the instance to inject.
+	 * @return The fast injector of the class, null if it shall still be injected by Spring.
+	 */
+	static FastInjector forClass(Class<?> clazz) {
+		Object result = INJECTORS.get(clazz);
+		if (result == null && (result = fromIndex(clazz)) != null) {
+			INJECTORS.putIfAbsent(clazz, result);
+		}
+		if (result == null) {
+			AtomicInteger uses = USES.get(clazz);
+			if (uses == null) {
+				AtomicInteger existing = USES.putIfAbsent(clazz, uses = new AtomicInteger());
+				if (existing != null) {
+					uses = existing;
+				}
+			}
+			if (uses.incrementAndGet() <= USES_BEFORE_COMPILATION) {
+				return null;
+			}
+			result = compile(clazz);
+			INJECTORS.putIfAbsent(clazz, result);
+			USES.remove(clazz);
+		}
+		return result == NOT_COMPILABLE ? null : (FastInjector) result;
+	}
+
+	/**
+	 * Build the injector of the given class from its members in the {@link PlanIndex}.
+	 *
+	 * @param clazz
+	 *            The class to build the injector for.
+	 * @return The injector, null if the class is not indexed or a member cannot be found or made accessible.
+	 */
+	private static Object fromIndex(Class<?> clazz) {
+		PlanIndex.MemberPlan[] plans = PlanIndex.findMembers(clazz);
+		if (plans == null) {
+			return null;
+		}
+		List<InjectedMember> members = new ArrayList<InjectedMember>(plans.length);
+		try {
+			for (PlanIndex.MemberPlan plan : plans) {
+				Class<?> declaringClass = PlanIndex.load(clazz, plan.declaringClass);
+				if (plan.parameterTypes == null) {
+					members.add(new InjectedField(makeAccessible(declaringClass.getDeclaredField(plan.name)),
+							plan.valueKey));
+				} else {
+					Method method = declaringClass.getDeclaredMethod(plan.name,
+							PlanIndex.load(clazz, plan.parameterTypes));
+					members.add(new InjectedMethod(makeAccessible(method),
+							PlanIndex.load(clazz, plan.resolvedParameterTypes), plan.valueKey, plan.required));
+				}
+			}
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (NoSuchFieldException e) {
+			return null;
+		} catch (NoSuchMethodException e) {
+			return null;
+		} catch (RuntimeException e) {
+			return null;
+		}
+		return new FastInjector(clazz, members);
+	}
+
+	/**
+	 * @param classes
+	 *            Classes.
+	 * @return Their names.
+	 */
+	private static String[] namesOf(Class<?>[] classes) {
+		String[] result = new String[classes.length];
+		for (int i = 0; i < classes.length; i++) {
+			result[i] = classes[i].getName();
+		}
+		return result;
+	}
+
+	/**
+	 * Do field and setter injection on the given instance.
+	 *
+	 * @param instance
+	 *            An instance of the class of this injector.
+	 * @param provider
+	 *            Where instances and values are looked up.
+	 * @throws BeanCreationException
+	 *             If a dependency cannot be resolved or a setter fails, like Spring's post processor would.
+	 */
+	void injectMembers(Object instance, BeanInstanceProvider provider) {
+		try {
+			for (InjectedMember member : members) {
+				member.inject(instance, provider);
+			}
+		} catch (Throwable e) {
+			throw new BeanCreationException("Injection of autowired dependencies failed for class [" + clazz + "]", e);
+		}
+	}
+
+	/**
+	 * Find all fields and methods Spring would inject and make them accessible.
+	 *
+	 * @param clazz
+	 *            The class to build the injector for.
+	 * @return The injector or {@link #NOT_COMPILABLE}, if a member cannot be made accessible.
+	 */
+	private static Object compile(Class<?> clazz) {
+		LinkedList<InjectedMember> members = new LinkedList<InjectedMember>();
+		Class<?> targetClass = clazz;
+		try {
+			do {
+				List<InjectedMember> currentMembers = new ArrayList<InjectedMember>();
+				for (Field field : targetClass.getDeclaredFields()) {
+					if (findAutowiredAnnotation(field) != null && !Modifier.isStatic(field.getModifiers())) {
+						currentMembers.add(new InjectedField(makeAccessible(field)));
+					}
+				}
+				for (Method method : targetClass.getDeclaredMethods()) {
+					Method bridgedMethod = BridgeMethodResolver.findBridgedMethod(method);
+					Annotation annotation = BridgeMethodResolver.isVisibilityBridgeMethodPair(method, bridgedMethod) ? findAutowiredAnnotation(bridgedMethod)
+							: findAutowiredAnnotation(method);
+					if (annotation != null && method.equals(ClassUtils.getMostSpecificMethod(method, clazz))
+							&& !Modifier.isStatic(method.getModifiers())) {
+						currentMembers.add(new InjectedMethod(makeAccessible(method), clazz, isRequired(annotation)));
+					}
+				}
+				members.addAll(0, currentMembers);
+				targetClass = targetClass.getSuperclass();
+			} while (targetClass != null && targetClass != Object.class);
+		} catch (RuntimeException e) {
+			// e.g. members of a module which is not open to us, leave them to Spring.
+			return NOT_COMPILABLE;
+		}
+		PlanIndex.MemberPlan[] plans = new PlanIndex.MemberPlan[members.size()];
+		for (int i = 0; i < plans.length; i++) {
+			plans[i] = members.get(i).toPlan();
+		}
+		PlanIndex.recordMembers(clazz, plans);
+		return new FastInjector(clazz, members);
+	}
+
+	/**
+	 * @param member
+	 *            A field or method.
+	 * @return The first annotation of the member Spring autowires by, null if there is none.
+	 */
+	private static Annotation findAutowiredAnnotation(AccessibleObject member) {
+		for (Class<? extends Annotation> type : AUTOWIRED_ANNOTATION_TYPES) {
+			Annotation annotation = member.getAnnotation(type);
+			if (annotation != null) {
+				return annotation;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param annotation
+	 *            The annotation a method is autowired by.
+	 * @return false only for {@link Autowired#required()} false.
+	 */
+	private static boolean isRequired(Annotation annotation) {
+		return !(annotation instanceof Autowired) || ((Autowired) annotation).required();
+	}
+
+	/**
+	 * @param member
+	 *            A field or method.
+	 * @return The same member, made accessible.
+	 */
+	private static <T extends AccessibleObject> T makeAccessible(T member) {
+		if (!member.isAccessible()) {
+			member.setAccessible(true);
+		}
+		return member;
+	}
+
+	/**
+	 * @param field
+	 *            An accessible field.
+	 * @return A handle setting the field, of type (Object, Object)void.
+	 * @throws IllegalArgumentException
+	 *             If the field cannot be set, e.g. because it is static and final.
+	 */
+	private static MethodHandle setterOf(Field field) {
+		try {
+			return MethodHandles.lookup().unreflectSetter(field)
+					.asType(MethodType.methodType(void.class, Object.class, Object.class));
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Cannot set field " + field, e);
+		}
+	}
+
+	/**
+	 * @param method
+	 *            An accessible method.
+	 * @return A handle invoking the method on an instance with an array of arguments, of type (Object, Object[])void.
+	 * @throws IllegalArgumentException
+	 *             If the method cannot be invoked.
+	 */
+	private static MethodHandle invokerOf(Method method) {
+		try {
+			int parameterCount = method.getParameterTypes().length;
+			return MethodHandles.lookup().unreflect(method)
+					.asType(MethodType.genericMethodType(parameterCount + 1).changeReturnType(void.class))
+					.asSpreader(Object[].class, parameterCount);
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Cannot invoke method " + method, e);
+		}
+	}
+
+	/**
+	 * @return The annotations Spring autowires by, in the same order as Spring.
+	 */
+	@SuppressWarnings("unchecked")
+	private static List<Class<? extends Annotation>> autowiredAnnotationTypes() {
+		List<Class<? extends Annotation>> result = new ArrayList<Class<? extends Annotation>>(3);
+		result.add(Autowired.class);
+		result.add(Value.class);
+		try {
+			result.add((Class<? extends Annotation>) AutowiredAnnotationBeanPostProcessor.class.getClassLoader()
+					.loadClass("javax.inject.Inject"));
+		} catch (ClassNotFoundException e) {
+			// JSR-330 is not available, Spring does not support it either.
+		}
+		return result;
+	}
+
+	/**
+	 * A field or method to inject.
+	 */
+	private interface InjectedMember {
+
+		/**
+		 * Inject the member of the given instance.
+		 *
+		 * @param instance
+		 *            The instance.
+		 * @param provider
+		 *            Where instances and values are looked up.
+		 * @throws Throwable
+		 *             If injection fails.
+		 */
+		void inject(Object instance, BeanInstanceProvider provider) throws Throwable;
+
+		/**
+		 * @return The member as entry of the {@link PlanIndex}.
+		 */
+		PlanIndex.MemberPlan toPlan();
+	}
+
+	/**
+	 * An injected field: a {@link Value} is only set if it is known.
+	 */
+	private static final class InjectedField implements InjectedMember {
+
+		/**
+		 * The accessible field.
+		 */
+		private final Field field;
+
+		/**
+		 * Sets {@link #field}.
+		 */
+		private final MethodHandle setter;
+
+		/**
+		 * The key of the {@link Value}-annotation of the field, null if it has none.
+		 */
+		private final String valueKey;
+
+		/**
+		 * The declared type of the field the {@link Value} is converted to, null if it has no {@link Value}-annotation.
+		 */
+		private final TypeDescriptor valueType;
+
+		/**
+		 * Constructor of this class.
+		 *
+		 * @param field
+		 *            The accessible field.
+		 */
+		InjectedField(Field field) {
+			this.field = field;
+			this.setter = setterOf(field);
+			Value value = field.getAnnotation(Value.class);
+			this.valueKey = value == null ? null : value.value();
+			this.valueType = value == null ? null : new TypeDescriptor(field);
+		}
+
+		/**
+		 * Constructor of this class for a field known from the {@link PlanIndex}.
+		 *
+		 * @param field
+		 *            The accessible field.
+		 * @param valueKey
+		 *            The key of the {@link Value}-annotation of the field, null if it has none.
+		 */
+		InjectedField(Field field, String valueKey) {
+			this.field = field;
+			this.setter = setterOf(field);
+			this.valueKey = valueKey;
+			this.valueType = valueKey == null ? null : new TypeDescriptor(field);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see com.cellent.spring.utils.junit_spring.impl.backing.FastInjector.InjectedMember#toPlan()
+		 */
+		@Override
+		public PlanIndex.MemberPlan toPlan() {
+			return new PlanIndex.MemberPlan(field.getDeclaringClass().getName(), field.getName(), null, null, valueKey,
+					true);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see com.cellent.spring.utils.junit_spring.impl.backing.FastInjector.InjectedMember#inject(java.lang.Object,
+		 * com.cellent.spring.utils.junit_spring.api.BeanInstanceProvider)
+		 */
+		@Override
+		public void inject(Object instance, BeanInstanceProvider provider) throws Throwable {
+			try {
+				Object value = valueKey != null ? provider.getValue(valueKey, valueType) : provider
+						.getInstance(field.getType());
+				if (value != null) {
+					setter.invokeExact(instance, value);
+				}
+			} catch (Throwable e) {
+				throw new BeanCreationException("Could not autowire field: " + field, e);
+			}
+		}
+	}
+
+	/**
+	 * An injected method: all parameters get the {@link Value} of the method if it has one, otherwise an instance of
+	 * their type.
+	 */
+	private static final class InjectedMethod implements InjectedMember {
+
+		/**
+		 * The accessible method.
+		 */
+		private final Method method;
+
+		/**
+		 * Invokes {@link #method}.
+		 */
+		private final MethodHandle invoker;
+
+		/**
+		 * The parameter types, with type variables resolved against the injected class.
+		 */
+		private final Class<?>[] parameterTypes;
+
+		/**
+		 * The key of the {@link Value}-annotation of the method, null if it has none.
+		 */
+		private final String valueKey;
+
+		/**
+		 * The declared parameter types the {@link Value} is converted to, null if the method has no
+		 * {@link Value}-annotation.
+		 */
+		private final TypeDescriptor[] valueTypes;
+
+		/**
+		 * If false, the method is not invoked if a parameter cannot be resolved.
+		 */
+		private final boolean required;
+
+		/**
+		 * Constructor of this class.
+		 *
+		 * @param method
+		 *            The accessible method.
+		 * @param clazz
+		 *            The injected class.
+		 * @param required
+		 *            If false, the method is not invoked if a parameter cannot be resolved.
+		 */
+		InjectedMethod(Method method, Class<?> clazz, boolean required) {
+			this.method = method;
+			this.invoker = invokerOf(method);
+			this.required = required;
+			parameterTypes = new Class<?>[method.getParameterTypes().length];
+			for (int i = 0; i < parameterTypes.length; i++) {
+				parameterTypes[i] = GenericTypeResolver.resolveParameterType(new MethodParameter(method, i), clazz);
+			}
+			Value value = method.getAnnotation(Value.class);
+			this.valueKey = value == null ? null : value.value();
+			this.valueTypes = valueKey == null ? null : valueTypesOf(method, parameterTypes);
+		}
+
+		/**
+		 * Constructor of this class for a method known from the {@link PlanIndex}.
+		 *
+		 * @param method
+		 *            The accessible method.
+		 * @param parameterTypes
+		 *            The parameter types, with type variables resolved against the injected class.
+		 * @param valueKey
+		 *            The key of the {@link Value}-annotation of the method, null if it has none.
+		 * @param required
+		 *            If false, the method is not invoked if a parameter cannot be resolved.
+		 */
+		InjectedMethod(Method method, Class<?>[] parameterTypes, String valueKey, boolean required) {
+			this.method = method;
+			this.invoker = invokerOf(method);
+			this.parameterTypes = parameterTypes;
+			this.valueKey = valueKey;
+			this.valueTypes = valueKey == null ? null : valueTypesOf(method, parameterTypes);
+			this.required = required;
+		}
+
+		/**
+		 * Give the types the {@link Value} of a method is converted to: the declared type of a parameter if it has type
+		 * arguments, otherwise its type resolved against the injected class.
+		 *
+		 * @param method
+		 *            The method.
+		 * @param parameterTypes
+		 *            The parameter types, with type variables resolved against the injected class.
+		 * @return The type of every parameter.
+		 */
+		private static TypeDescriptor[] valueTypesOf(Method method, Class<?>[] parameterTypes) {
+			TypeDescriptor[] result = new TypeDescriptor[parameterTypes.length];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = method.getGenericParameterTypes()[i] instanceof ParameterizedType ? new TypeDescriptor(
+						new MethodParameter(method, i)) : TypeDescriptor.valueOf(parameterTypes[i]);
+			}
+			return result;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see com.cellent.spring.utils.junit_spring.impl.backing.FastInjector.InjectedMember#toPlan()
+		 */
+		@Override
+		public PlanIndex.MemberPlan toPlan() {
+			return new PlanIndex.MemberPlan(method.getDeclaringClass().getName(), method.getName(),
+					namesOf(method.getParameterTypes()), namesOf(parameterTypes), valueKey, required);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see com.cellent.spring.utils.junit_spring.impl.backing.FastInjector.InjectedMember#inject(java.lang.Object,
+		 * com.cellent.spring.utils.junit_spring.api.BeanInstanceProvider)
+		 */
+		@Override
+		public void inject(Object instance, BeanInstanceProvider provider) throws Throwable {
+			Object[] arguments = new Object[parameterTypes.length];
+			try {
+				for (int i = 0; i < arguments.length; i++) {
+					arguments[i] = valueKey != null ? provider.getValue(valueKey, valueTypes[i]) : provider
+							.getInstance(parameterTypes[i]);
+					if (arguments[i] == null && !required) {
+						return;
+					}
+				}
+			} catch (Throwable e) {
+				throw new BeanCreationException("Could not autowire method: " + method, e);
+			}
+			// Exceptions of the method itself are thrown as they are.
+			invoker.invokeExact(instance, arguments);
+		}
+	}
+}
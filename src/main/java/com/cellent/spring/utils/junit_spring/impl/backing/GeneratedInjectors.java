@@ -0,0 +1,96 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.cellent.spring.utils.junit_spring.api.BeanInjector;
+
+/**
+ * Finds the {@link BeanInjector} generated for a class, if there is one. The result of the lookup is cached per class
+ * for all contexts, including the fact that there is none.
+ * 
+ * @author bjoern
+ */
+final class GeneratedInjectors {
+
+	/**
+	 * Suffix of the name of a generated injector.
+	 */
+	static final String INJECTOR_SUFFIX = "_Injector";
+
+	/**
+	 * Stands for a class without generated injector, because {@link #INJECTORS} cannot hold null.
+	 */
+	private static final Object NO_INJECTOR = new Object();
+
+	/**
+	 * The injectors (or {@link #NO_INJECTOR}) by the class they inject.
+	 */
+	private static final ConcurrentMap<Class<?>, Object> INJECTORS = new ConcurrentHashMap<Class<?>, Object>();
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private GeneratedInjectors() {
+	}
+
+	/**
+	 * Give the generated injector of exactly the given class.
+	 * 
+	 * @param clazz
+	 *            The bean class.
+	 * @return The injector of the class or null, if none was generated.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> BeanInjector<T> forClass(Class<T> clazz) {
+		Object result = INJECTORS.get(clazz);
+		if (result == null) {
+			result = loadInjector(clazz);
+			INJECTORS.putIfAbsent(clazz, result);
+		}
+		return result == NO_INJECTOR ? null : (BeanInjector<T>) result;
+	}
+
+	/**
+	 * Look for the injector of a class by its naming convention and instantiate it.
+	 * 
+	 * @param clazz
+	 *            The bean class.
+	 * @return The injector or {@link #NO_INJECTOR}.
+	 */
+	private static Object loadInjector(Class<?> clazz) {
+		ClassLoader classLoader = clazz.getClassLoader();
+		if (classLoader == null || clazz.isArray() || clazz.isPrimitive()) {
+			return NO_INJECTOR;
+		}
+		Class<?> injectorClass;
+		try {
+			injectorClass = Class.forName(injectorNameOf(clazz), true, classLoader);
+		} catch (ClassNotFoundException e) {
+			return NO_INJECTOR;
+		}
+		if (!BeanInjector.class.isAssignableFrom(injectorClass)) {
+			return NO_INJECTOR;
+		}
+		try {
+			return injectorClass.newInstance();
+		} catch (InstantiationException e) {
+			throw new IllegalStateException("Cannot instantiate generated injector " + injectorClass.getName(), e);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Cannot instantiate generated injector " + injectorClass.getName(), e);
+		}
+	}
+
+	/**
+	 * Give the name of the injector of a class: package, class name with "_" for "$", {@link #INJECTOR_SUFFIX}.
+	 * 
+	 * @param clazz
+	 *            The bean class.
+	 * @return The fully qualified name of the injector class.
+	 */
+	static String injectorNameOf(Class<?> clazz) {
+		String name = clazz.getName();
+		int packageEnd = name.lastIndexOf('.');
+		return name.substring(0, packageEnd + 1) + name.substring(packageEnd + 1).replace('$', '_') + INJECTOR_SUFFIX;
+	}
+}
@@ -0,0 +1,263 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.convert.TypeDescriptor;
+
+/**
+ * Everything {@link SpringMockBeanFactory} needs to know to instantiate a class: the constructor to use, its parameter
+ * types and the keys and declared types of {@link Value}-annotated parameters. A plan only depends on the class itself, so it is computed
+ * once per class and shared by all contexts in the JVM.
+ *
+ * @author bjoern
+ */
+final class InjectionPlan {
+
+	/**
+	 * All plans computed so far. Entries are never removed; this is fine in test scope, where the set of classes under
+	 * test is fixed.
+	 */
+	private static final ConcurrentMap<Class<?>, InjectionPlan> PLANS = new ConcurrentHashMap<Class<?>, InjectionPlan>();
+
+	/**
+	 * The constructor which is used to create instances.
+	 */
+	private final Constructor<?> constructor;
+
+	/**
+	 * Calls {@link #constructor} with an array of arguments, null if no handle may be created for it.
+	 */
+	private final MethodHandle instantiator;
+
+	/**
+	 * The parameter types of {@link #constructor}.
+	 */
+	private final Class<?>[] parameterTypes;
+
+	/**
+	 * For each parameter of {@link #constructor} the key of its {@link Value}-Annotation, or null if it has none.
+	 */
+	private final String[] valueKeys;
+
+	/**
+	 * For each parameter of {@link #constructor} with a {@link Value}-Annotation its declared type, or null if it has
+	 * none.
+	 */
+	private final TypeDescriptor[] valueTypes;
+
+	/**
+	 * Constructor of this class.
+	 *
+	 * @param constructor
+	 *            The constructor which is used to create instances.
+	 * @param cached
+	 *            Whether the plan is used for many instances, so that a method handle of the constructor pays off.
+	 */
+	private InjectionPlan(Constructor<?> constructor, boolean cached) {
+		this.constructor = makeAccessible(constructor);
+		this.instantiator = cached ? instantiatorOf(constructor) : null;
+		this.parameterTypes = constructor.getParameterTypes();
+		this.valueKeys = extractValueKeys(constructor.getParameterAnnotations());
+		this.valueTypes = new TypeDescriptor[valueKeys.length];
+		for (int i = 0; i < valueKeys.length; i++) {
+			if (valueKeys[i] != null) {
+				valueTypes[i] = new TypeDescriptor(new MethodParameter(constructor, i));
+			}
+		}
+	}
+
+	/**
+	 * Give the plan for the given class. It is computed on first use, or taken from the {@link PlanIndex} of former
+	 * runs, and cached afterwards. If the class has no usable constructor, nothing is cached and every call fails again.
+	 *
+	 * @param clazz
+	 *            The class which shall be instantiated.
+	 * @return The plan of the given class.
+	 * @throws IllegalArgumentException
+	 *             If the class has neither a default constructor nor exactly one {@link Autowired}-constructor.
+	 */
+	static InjectionPlan forClass(Class<?> clazz) {
+		InjectionPlan plan = PLANS.get(clazz);
+		if (plan == null) {
+			Constructor<?> constructor = PlanIndex.findConstructor(clazz);
+			if (constructor == null) {
+				constructor = getAutowiredOrOnlyConstructorOf(clazz);
+				PlanIndex.recordConstructor(clazz, constructor);
+			}
+			plan = new InjectionPlan(constructor, true);
+			InjectionPlan existing = PLANS.putIfAbsent(clazz, plan);
+			if (existing != null) {
+				plan = existing;
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * Compute the plan for the given class without caching it, like every instantiation did before plans were cached.
+	 * Only used to measure the benefit of the cache.
+	 *
+	 * @param clazz
+	 *            The class which shall be instantiated.
+	 * @return A new plan of the given class, without method handle.
+	 * @throws IllegalArgumentException
+	 *             If the class has neither a default constructor nor exactly one {@link Autowired}-constructor.
+	 */
+	static InjectionPlan resolve(Class<?> clazz) {
+		return new InjectionPlan(getAutowiredOrOnlyConstructorOf(clazz), false);
+	}
+
+	/**
+	 * @return The constructor which is used to create instances.
+	 */
+	Constructor<?> getConstructor() {
+		return constructor;
+	}
+
+	/**
+	 * Create an instance by the constructor, through a method handle which the JVM compiles like a direct call, or by
+	 * reflection if the constructor is not accessible to a handle.
+	 *
+	 * @param arguments
+	 *            The constructor arguments.
+	 * @return The new instance.
+	 * @throws Throwable
+	 *             Anything the constructor throws, or an exception of reflection if the arguments do not fit.
+	 */
+	Object newInstance(Object[] arguments) throws Throwable {
+		if (instantiator == null) {
+			return constructor.newInstance(arguments);
+		}
+		return instantiator.invokeExact(arguments);
+	}
+
+	/**
+	 * @return The parameter types of the constructor. The array is shared, so do not modify it.
+	 */
+	Class<?>[] getParameterTypes() {
+		return parameterTypes;
+	}
+
+	/**
+	 * @return For each constructor parameter the key of its {@link Value}-Annotation, or null if it has none. The array
+	 *         is shared, so do not modify it.
+	 */
+	String[] getValueKeys() {
+		return valueKeys;
+	}
+
+	/**
+	 * @return For each constructor parameter with a {@link Value}-Annotation its declared type including type
+	 *         arguments, or null if it has none. The array is shared, so do not modify it.
+	 */
+	TypeDescriptor[] getValueTypes() {
+		return valueTypes;
+	}
+
+	/**
+	 * Make the constructor accessible once, so that the access check is not repeated on every instantiation (like
+	 * Spring's BeanUtils does for every call).
+	 * 
+	 * @param constructor
+	 *            A public constructor.
+	 * @return The same constructor, accessible if this is permitted.
+	 */
+	private static Constructor<?> makeAccessible(Constructor<?> constructor) {
+		try {
+			constructor.setAccessible(true);
+		} catch (RuntimeException e) {
+			// Not permitted, e.g. by a security manager: keep the checks.
+		}
+		return constructor;
+	}
+
+	/**
+	 * @param constructor
+	 *            A constructor, made accessible if this was permitted.
+	 * @return A handle calling the constructor with an array of arguments, of type (Object[])Object, or null if the
+	 *         constructor is not accessible.
+	 */
+	private static MethodHandle instantiatorOf(Constructor<?> constructor) {
+		int parameterCount = constructor.getParameterTypes().length;
+		try {
+			return MethodHandles.lookup().unreflectConstructor(constructor)
+					.asType(MethodType.genericMethodType(parameterCount)).asSpreader(Object[].class, parameterCount);
+		} catch (IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Find the key of the {@link Value}-Annotation of every method parameter.
+	 *
+	 * @param parameterAnnotations
+	 *            The annotations of all method parameters.
+	 * @return For each parameter the key of its {@link Value}-Annotation, or null if it has none.
+	 */
+	private static String[] extractValueKeys(Annotation[][] parameterAnnotations) {
+		String[] result = new String[parameterAnnotations.length];
+		for (int i = 0; i < parameterAnnotations.length; i++) {
+			for (Annotation annotation : parameterAnnotations[i]) {
+				if (annotation instanceof Value) {
+					result[i] = ((Value) annotation).value();
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the constructor of the desired class.
+	 *
+	 * @param clazz
+	 *            desired Class.
+	 * @return The constructor of the given class.
+	 */
+	private static Constructor<?> getAutowiredOrOnlyConstructorOf(Class<?> clazz) {
+		Constructor<?>[] constructors = clazz.getConstructors();
+		// If there exists only one constructor, ...
+		if (constructors.length == 1) {
+			// ... and its parameterless, this is the default constructor ...
+			if (constructors[0].getParameterTypes().length == 0) {
+				// ... and should be returned.
+				return constructors[0];
+			}
+		}
+		// otherwise find autowired constructor and return this one.
+		return filterAutowiredConstructors(constructors);
+	}
+
+	/**
+	 * From a List of contructors, filter these which are annotated with {@link Autowired}. If there exist several, this
+	 * is ambigious and will result in an Exception.
+	 *
+	 * @param constructors
+	 *            All Constructors of the Class.
+	 * @return The {@link Autowired}-Constructor of this class.
+	 */
+	private static Constructor<?> filterAutowiredConstructors(Constructor<?>[] constructors) {
+		List<Constructor<?>> result = new ArrayList<Constructor<?>>(1);
+		for (Constructor<?> constructor : constructors) {
+			if (constructor.getAnnotation(Autowired.class) != null) {
+				result.add(constructor);
+			}
+		}
+		if (result.size() != 1) {
+			throw new IllegalArgumentException("Found not exactly one Autowired-Constructor, but " + result.size()
+					+ " Autowired-Constructors.");
+		}
+		return result.get(0);
+	}
+}
@@ -0,0 +1,428 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.MessageSourceResolvable;
+import org.springframework.context.NoSuchMessageException;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * An {@link ApplicationContext} which is nothing but its bean factory. A {@link GenericApplicationContext} creates an
+ * environment, a resource resolver and lifecycle and event infrastructure on construction, and loads their classes,
+ * though a test only looks up beans. Here, all bean lookups go to the bean factory; there are no messages, events are
+ * dropped as nobody listens, and an environment or resource resolver is only created if asked for.
+ *
+ * @author bjoern
+ */
+final class MinimalApplicationContext implements ApplicationContext {
+
+	/**
+	 * Where all beans are looked up.
+	 */
+	private final DefaultListableBeanFactory beanFactory;
+
+	/**
+	 * When this context was created.
+	 */
+	private final long startupDate = System.currentTimeMillis();
+
+	/**
+	 * The environment, null until asked for.
+	 */
+	private volatile Environment environment;
+
+	/**
+	 * Resolves resources, null until asked for.
+	 */
+	private volatile ResourcePatternResolver resourcePatternResolver;
+
+	/**
+	 * Constructor of this class.
+	 *
+	 * @param beanFactory
+	 *            Where all beans are looked up.
+	 */
+	MinimalApplicationContext(DefaultListableBeanFactory beanFactory) {
+		this.beanFactory = beanFactory;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.context.ApplicationContext#getId()
+	 */
+	@Override
+	public String getId() {
+		return ObjectUtils.identityToString(this);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.context.ApplicationContext#getDisplayName()
+	 */
+	@Override
+	public String getDisplayName() {
+		return getId();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.context.ApplicationContext#getStartupDate()
+	 */
+	@Override
+	public long getStartupDate() {
+		return startupDate;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.context.ApplicationContext#getParent()
+	 */
+	@Override
+	public ApplicationContext getParent() {
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.context.ApplicationContext#getAutowireCapableBeanFactory()
+	 */
+	@Override
+	public AutowireCapableBeanFactory getAutowireCapableBeanFactory() {
+		return beanFactory;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.core.env.EnvironmentCapable#getEnvironment()
+	 */
+	@Override
+	public Environment getEnvironment() {
+		if (environment == null) {
+			environment = new StandardEnvironment();
+		}
+		return environment;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.ListableBeanFactory#containsBeanDefinition(java.lang.String)
+	 */
+	@Override
+	public boolean containsBeanDefinition(String beanName) {
+		return beanFactory.containsBeanDefinition(beanName);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.ListableBeanFactory#getBeanDefinitionCount()
+	 */
+	@Override
+	public int getBeanDefinitionCount() {
+		return beanFactory.getBeanDefinitionCount();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.ListableBeanFactory#getBeanDefinitionNames()
+	 */
+	@Override
+	public String[] getBeanDefinitionNames() {
+		return beanFactory.getBeanDefinitionNames();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.ListableBeanFactory#getBeanNamesForType(java.lang.Class)
+	 */
+	@Override
+	public String[] getBeanNamesForType(Class<?> type) {
+		return beanFactory.getBeanNamesForType(type);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.ListableBeanFactory#getBeanNamesForType(java.lang.Class, boolean, boolean)
+	 */
+	@Override
+	public String[] getBeanNamesForType(Class<?> type, boolean includeNonSingletons, boolean allowEagerInit) {
+		return beanFactory.getBeanNamesForType(type, includeNonSingletons, allowEagerInit);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.ListableBeanFactory#getBeansOfType(java.lang.Class)
+	 */
+	@Override
+	public <T> Map<String, T> getBeansOfType(Class<T> type) throws BeansException {
+		return beanFactory.getBeansOfType(type);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.ListableBeanFactory#getBeansOfType(java.lang.Class, boolean, boolean)
+	 */
+	@Override
+	public <T> Map<String, T> getBeansOfType(Class<T> type, boolean includeNonSingletons, boolean allowEagerInit)
+			throws BeansException {
+		return beanFactory.getBeansOfType(type, includeNonSingletons, allowEagerInit);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.ListableBeanFactory#getBeansWithAnnotation(java.lang.Class)
+	 */
+	@Override
+	public Map<String, Object> getBeansWithAnnotation(Class<? extends Annotation> annotationType)
+			throws BeansException {
+		return beanFactory.getBeansWithAnnotation(annotationType);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.ListableBeanFactory#findAnnotationOnBean(java.lang.String,
+	 * java.lang.Class)
+	 */
+	@Override
+	public <A extends Annotation> A findAnnotationOnBean(String beanName, Class<A> annotationType) {
+		return beanFactory.findAnnotationOnBean(beanName, annotationType);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.HierarchicalBeanFactory#getParentBeanFactory()
+	 */
+	@Override
+	public BeanFactory getParentBeanFactory() {
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.HierarchicalBeanFactory#containsLocalBean(java.lang.String)
+	 */
+	@Override
+	public boolean containsLocalBean(String name) {
+		return beanFactory.containsLocalBean(name);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.BeanFactory#getBean(java.lang.String)
+	 */
+	@Override
+	public Object getBean(String name) throws BeansException {
+		return beanFactory.getBean(name);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.BeanFactory#getBean(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public <T> T getBean(String name, Class<T> requiredType) throws BeansException {
+		return beanFactory.getBean(name, requiredType);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.BeanFactory#getBean(java.lang.Class)
+	 */
+	@Override
+	public <T> T getBean(Class<T> requiredType) throws BeansException {
+		return beanFactory.getBean(requiredType);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.BeanFactory#getBean(java.lang.String, java.lang.Object[])
+	 */
+	@Override
+	public Object getBean(String name, Object... args) throws BeansException {
+		return beanFactory.getBean(name, args);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.BeanFactory#containsBean(java.lang.String)
+	 */
+	@Override
+	public boolean containsBean(String name) {
+		return beanFactory.containsBean(name);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.BeanFactory#isSingleton(java.lang.String)
+	 */
+	@Override
+	public boolean isSingleton(String name) throws NoSuchBeanDefinitionException {
+		return beanFactory.isSingleton(name);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.BeanFactory#isPrototype(java.lang.String)
+	 */
+	@Override
+	public boolean isPrototype(String name) throws NoSuchBeanDefinitionException {
+		return beanFactory.isPrototype(name);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.BeanFactory#isTypeMatch(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public boolean isTypeMatch(String name, Class<?> targetType) throws NoSuchBeanDefinitionException {
+		return beanFactory.isTypeMatch(name, targetType);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.BeanFactory#getType(java.lang.String)
+	 */
+	@Override
+	public Class<?> getType(String name) throws NoSuchBeanDefinitionException {
+		return beanFactory.getType(name);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.beans.factory.BeanFactory#getAliases(java.lang.String)
+	 */
+	@Override
+	public String[] getAliases(String name) {
+		return beanFactory.getAliases(name);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.context.MessageSource#getMessage(java.lang.String, java.lang.Object[],
+	 * java.lang.String, java.util.Locale)
+	 */
+	@Override
+	public String getMessage(String code, Object[] args, String defaultMessage, Locale locale) {
+		return defaultMessage;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.context.MessageSource#getMessage(java.lang.String, java.lang.Object[],
+	 * java.util.Locale)
+	 */
+	@Override
+	public String getMessage(String code, Object[] args, Locale locale) throws NoSuchMessageException {
+		throw new NoSuchMessageException(code, locale);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.context.MessageSource#getMessage(org.springframework.context.MessageSourceResolvable,
+	 * java.util.Locale)
+	 */
+	@Override
+	public String getMessage(MessageSourceResolvable resolvable, Locale locale) throws NoSuchMessageException {
+		if (resolvable.getDefaultMessage() != null) {
+			return resolvable.getDefaultMessage();
+		}
+		String[] codes = resolvable.getCodes();
+		throw new NoSuchMessageException(codes != null && codes.length > 0 ? codes[codes.length - 1] : null, locale);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.context.ApplicationEventPublisher#publishEvent(org.springframework.context.
+	 * ApplicationEvent)
+	 */
+	@Override
+	public void publishEvent(ApplicationEvent event) {
+		// Nobody listens.
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.core.io.support.ResourcePatternResolver#getResources(java.lang.String)
+	 */
+	@Override
+	public Resource[] getResources(String locationPattern) throws IOException {
+		return getResourcePatternResolver().getResources(locationPattern);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.core.io.ResourceLoader#getResource(java.lang.String)
+	 */
+	@Override
+	public Resource getResource(String location) {
+		return getResourcePatternResolver().getResource(location);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.core.io.ResourceLoader#getClassLoader()
+	 */
+	@Override
+	public ClassLoader getClassLoader() {
+		return beanFactory.getBeanClassLoader();
+	}
+
+	/**
+	 * @return The resource resolver, created on first use.
+	 */
+	private ResourcePatternResolver getResourcePatternResolver() {
+		if (resourcePatternResolver == null) {
+			resourcePatternResolver = new PathMatchingResourcePatternResolver(getClassLoader());
+		}
+		return resourcePatternResolver;
+	}
+}
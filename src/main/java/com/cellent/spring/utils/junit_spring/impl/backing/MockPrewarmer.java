@@ -0,0 +1,292 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import java.io.IOException;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+import org.springframework.util.ClassUtils;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+
+/**
+ * Creates the mocks of all {@link Autowired} dependencies of the classes in some packages in the background, so that the
+ * mocking framework has generated the mock classes before the tests need them. Without this, the first test mocking a
+ * type pays for generating its class.
+ *
+ * The classes are scanned on a daemon thread, and the mocks are created on daemon threads, one per idle core; nothing
+ * prewarmed is kept but the classes the mocking framework caches anyway. Start it in the code or, to start with the first
+ * context created in the JVM, set the system property {@value #PACKAGES_PROPERTY} to a comma separated list of packages.
+ *
+ * @author bjoern
+ */
+public final class MockPrewarmer {
+
+	/**
+	 * System property with the packages whose dependencies are prewarmed when the first context is created.
+	 */
+	public static final String PACKAGES_PROPERTY = "junit-spring.prewarm.packages";
+
+	/**
+	 * Creates the daemon threads of all prewarmers.
+	 */
+	private static final ThreadFactory DAEMON_THREADS = new ThreadFactory() {
+
+		/**
+		 * Number of the next thread.
+		 */
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+		 */
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread result = new Thread(runnable, "junit-spring-prewarm-" + threadNumber.incrementAndGet());
+			result.setDaemon(true);
+			result.setPriority(Thread.MIN_PRIORITY);
+			return result;
+		}
+	};
+
+	/**
+	 * True once the packages of {@link #PACKAGES_PROPERTY} were looked at.
+	 */
+	private static final AtomicBoolean STARTED_BY_PROPERTY = new AtomicBoolean();
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private MockPrewarmer() {
+	}
+
+	/**
+	 * Start prewarming the packages of {@link #PACKAGES_PROPERTY}, if set, with contexts of the given class. Only the
+	 * first call in the JVM does anything.
+	 *
+	 * @param contextClass
+	 *            The class of the context being created.
+	 */
+	static void startIfConfigured(Class<? extends TestApplicationContext> contextClass) {
+		if (STARTED_BY_PROPERTY.get() || !STARTED_BY_PROPERTY.compareAndSet(false, true)) {
+			return;
+		}
+		String packages = System.getProperty(PACKAGES_PROPERTY);
+		if (packages != null && packages.trim().length() > 0) {
+			prewarm(contextClass, packages.trim().split("\\s*,\\s*"));
+		}
+	}
+
+	/**
+	 * Start creating the mocks of all types which classes in the given packages or below get injected by
+	 * {@link Autowired} fields, methods or constructors. Mocks are created by getInstance of contexts of the given class,
+	 * which needs a public constructor without parameters; types which cannot be mocked are skipped.
+	 *
+	 * @param contextClass
+	 *            The class of contexts used by the tests.
+	 * @param basePackages
+	 *            The packages to scan, e.g. "com.example.service".
+	 * @return Completes with the types which were mocked, when all of them are.
+	 */
+	public static Future<Set<Class<?>>> prewarm(final Class<? extends TestApplicationContext> contextClass,
+			final String... basePackages) {
+		final ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+		FutureTask<Set<Class<?>>> result = new FutureTask<Set<Class<?>>>(new Callable<Set<Class<?>>>() {
+
+			/*
+			 * (non-Javadoc)
+			 *
+			 * @see java.util.concurrent.Callable#call()
+			 */
+			@Override
+			public Set<Class<?>> call() throws Exception {
+				return createMocks(contextClass, classLoader, findClassNames(classLoader, basePackages));
+			}
+		});
+		DAEMON_THREADS.newThread(result).start();
+		return result;
+	}
+
+	/**
+	 * Find the names of all classes in the given packages and below, without loading them.
+	 *
+	 * @param classLoader
+	 *            The class loader to scan.
+	 * @param basePackages
+	 *            The packages to scan.
+	 * @return The names of the classes.
+	 * @throws IOException
+	 *             If the class path cannot be read.
+	 */
+	static Queue<String> findClassNames(ClassLoader classLoader, String... basePackages) throws IOException {
+		PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(classLoader);
+		MetadataReaderFactory metadataReaderFactory = new SimpleMetadataReaderFactory(resolver);
+		Queue<String> result = new ConcurrentLinkedQueue<String>();
+		for (String basePackage : basePackages) {
+			String pattern = "classpath*:" + ClassUtils.convertClassNameToResourcePath(basePackage) + "/**/*.class";
+			for (Resource resource : resolver.getResources(pattern)) {
+				result.add(metadataReaderFactory.getMetadataReader(resource).getClassMetadata().getClassName());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Create the mocks of the dependencies of the given classes, on one daemon thread per core but the current one.
+	 *
+	 * @param contextClass
+	 *            The class of the contexts creating the mocks.
+	 * @param classLoader
+	 *            The class loader to load the classes by.
+	 * @param classNames
+	 *            The classes whose dependencies are mocked, consumed.
+	 * @return The types which were mocked.
+	 * @throws InterruptedException
+	 *             If interrupted while waiting for the threads.
+	 */
+	private static Set<Class<?>> createMocks(final Class<? extends TestApplicationContext> contextClass,
+			final ClassLoader classLoader, final Queue<String> classNames) throws InterruptedException {
+		final Set<Class<?>> seen = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+		final Set<Class<?>> mocked = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+		int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		List<Callable<Object>> workers = new ArrayList<Callable<Object>>(threads);
+		for (int i = 0; i < threads; i++) {
+			workers.add(new Callable<Object>() {
+
+				/*
+				 * (non-Javadoc)
+				 *
+				 * @see java.util.concurrent.Callable#call()
+				 */
+				@Override
+				public Object call() throws Exception {
+					TestApplicationContext context = contextClass.newInstance();
+					try {
+						for (String className = classNames.poll(); className != null; className = classNames.poll()) {
+							for (Class<?> type : dependencyTypesOf(className, classLoader)) {
+								if (seen.add(type) && tryMock(context, type)) {
+									mocked.add(type);
+								}
+							}
+						}
+					} finally {
+						context.close();
+					}
+					return null;
+				}
+			});
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads, DAEMON_THREADS);
+		try {
+			executor.invokeAll(workers);
+		} finally {
+			executor.shutdown();
+		}
+		return mocked;
+	}
+
+	/**
+	 * @param context
+	 *            The context creating the mock.
+	 * @param type
+	 *            The type to mock.
+	 * @return true if the context could give an instance of the type.
+	 */
+	private static boolean tryMock(TestApplicationContext context, Class<?> type) {
+		try {
+			context.getInstance(type);
+			return true;
+		} catch (RuntimeException e) {
+			// Final classes and the like cannot be mocked, tests will not get mocks of them either.
+			return false;
+		}
+	}
+
+	/**
+	 * Give the types of all {@link Autowired} fields, method parameters and constructor parameters of the given class
+	 * and its superclasses which a context would mock.
+	 *
+	 * @param className
+	 *            The name of the class.
+	 * @param classLoader
+	 *            The class loader to load it by.
+	 * @return The types, none if the class cannot be loaded.
+	 */
+	static Set<Class<?>> dependencyTypesOf(String className, ClassLoader classLoader) {
+		Set<Class<?>> result = new LinkedHashSet<Class<?>>();
+		try {
+			for (Class<?> clazz = Class.forName(className, false, classLoader); clazz != null
+					&& clazz != Object.class; clazz = clazz.getSuperclass()) {
+				for (Field field : clazz.getDeclaredFields()) {
+					if (isAutowired(field)) {
+						addMockable(result, field.getType());
+					}
+				}
+				for (Method method : clazz.getDeclaredMethods()) {
+					if (isAutowired(method)) {
+						addMockable(result, method.getParameterTypes());
+					}
+				}
+				for (Constructor<?> constructor : clazz.getDeclaredConstructors()) {
+					if (isAutowired(constructor)) {
+						addMockable(result, constructor.getParameterTypes());
+					}
+				}
+			}
+		} catch (ClassNotFoundException e) {
+			return Collections.emptySet();
+		} catch (LinkageError e) {
+			return Collections.emptySet();
+		}
+		return result;
+	}
+
+	/**
+	 * @param element
+	 *            A field, method or constructor.
+	 * @return true if it is annotated with {@link Autowired}.
+	 */
+	private static boolean isAutowired(AnnotatedElement element) {
+		return element.isAnnotationPresent(Autowired.class);
+	}
+
+	/**
+	 * Add the given types, leaving out those which are never mocked.
+	 *
+	 * @param types
+	 *            The set to add to.
+	 * @param candidates
+	 *            The types to add.
+	 */
+	private static void addMockable(Set<Class<?>> types, Class<?>... candidates) {
+		for (Class<?> candidate : candidates) {
+			if (!candidate.isPrimitive() && !candidate.isArray() && !candidate.getName().startsWith("java.")) {
+				types.add(candidate);
+			}
+		}
+	}
+}
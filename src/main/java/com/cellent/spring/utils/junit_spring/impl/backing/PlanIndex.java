@@ -0,0 +1,675 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Constructor;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * Index of the constructors {@link InjectionPlan} chooses and the members {@link FastInjector} injects, kept on disk
+ * across JVM runs. A JVM using the index memory-maps it on first use and finds the constructor and members of an
+ * indexed class by name instead of discovering them by reflection; a {@link FastInjector} is then used from the first
+ * injection on. Whatever is discovered anew is added to the file when the JVM shuts down, merged with what other JVMs,
+ * e.g. parallel test forks, have written meanwhile.
+ *
+ * Every entry holds a CRC32 of the bytecode of the class and all its superclasses. If the bytecode differs, the entry is
+ * stale: it is ignored, and the class is discovered and indexed again.
+ *
+ * The index is only used if the system property {@value #FILE_PROPERTY} names its file, e.g.
+ * target/junit-spring-plans.idx.
+ *
+ * @author bjoern
+ */
+final class PlanIndex {
+
+	/**
+	 * System property with the path of the index file.
+	 */
+	static final String FILE_PROPERTY = "junit-spring.plan-index";
+
+	/**
+	 * First bytes of an index file.
+	 */
+	private static final int MAGIC = 0x4A535049;
+
+	/**
+	 * Version of the file format.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Encoding of all strings in the file.
+	 */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * The index of this JVM, null if none is used.
+	 */
+	private static final PlanIndex INSTANCE = open(System.getProperty(FILE_PROPERTY));
+
+	/**
+	 * The index file.
+	 */
+	private final File file;
+
+	/**
+	 * The content of the file as read on opening, empty if there was none.
+	 */
+	private final ByteBuffer content;
+
+	/**
+	 * Offsets of the entries in {@link #content} by class name. Stale entries are removed once detected.
+	 */
+	private final ConcurrentMap<String, Integer> offsets;
+
+	/**
+	 * Entries discovered by this JVM, to be written on shutdown.
+	 */
+	private final ConcurrentMap<String, Entry> discovered = new ConcurrentHashMap<String, Entry>();
+
+	/**
+	 * The hashes of the entries found stale by this JVM, by class name, so they are not written again.
+	 */
+	private final ConcurrentMap<String, Long> staleHashes = new ConcurrentHashMap<String, Long>();
+
+	/**
+	 * Bytecode hashes by class, computed once per class.
+	 */
+	private final ConcurrentMap<Class<?>, Long> hashes = new ConcurrentHashMap<Class<?>, Long>();
+
+	/**
+	 * Constructor of this class.
+	 *
+	 * @param file
+	 *            The index file.
+	 * @param content
+	 *            The content of the file, empty if there is none.
+	 * @param offsets
+	 *            Offsets of the entries in the content by class name.
+	 */
+	private PlanIndex(File file, ByteBuffer content, Map<String, Integer> offsets) {
+		this.file = file;
+		this.content = content;
+		this.offsets = new ConcurrentHashMap<String, Integer>(offsets);
+	}
+
+	/**
+	 * Open the index in the given file and write it on shutdown. An unreadable file is treated as empty.
+	 *
+	 * @param path
+	 *            The path of the file, null to use no index.
+	 * @return The index, null if none is used.
+	 */
+	static PlanIndex open(String path) {
+		if (path == null || path.trim().length() == 0) {
+			return null;
+		}
+		final PlanIndex result = read(new File(path.trim()));
+		Runtime.getRuntime().addShutdownHook(new Thread("junit-spring-plan-index") {
+			@Override
+			public void run() {
+				try {
+					result.write();
+				} catch (IOException e) {
+					// The index is a cache only, the next JVM discovers everything again.
+				}
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Read the index file, mapping it into memory.
+	 *
+	 * @param file
+	 *            The file.
+	 * @return The index of the file, empty if it does not exist or cannot be read.
+	 */
+	static PlanIndex read(File file) {
+		ByteBuffer content = ByteBuffer.allocate(0);
+		Map<String, Integer> offsets = new HashMap<String, Integer>();
+		if (file.isFile()) {
+			try {
+				RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+				try {
+					ByteBuffer mapped = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+							randomAccessFile.length());
+					if (mapped.remaining() >= 8 && mapped.getInt() == MAGIC && mapped.getInt() == VERSION) {
+						while (mapped.hasRemaining()) {
+							int length = mapped.getInt();
+							int offset = mapped.position();
+							offsets.put(readString(mapped), offset);
+							// Buffer's position(int), as ByteBuffer's override does not exist before Java 9.
+							((Buffer) mapped).position(offset + length);
+						}
+						content = mapped;
+					}
+				} finally {
+					randomAccessFile.close();
+				}
+			} catch (IOException e) {
+				offsets.clear();
+			} catch (RuntimeException e) {
+				// Truncated or otherwise broken file: start with an empty index.
+				offsets.clear();
+			}
+		}
+		return new PlanIndex(file, content, offsets);
+	}
+
+	/**
+	 * @param clazz
+	 *            A class to instantiate.
+	 * @return The constructor {@link InjectionPlan} chose for the class before, null if there is no valid entry.
+	 */
+	static Constructor<?> findConstructor(Class<?> clazz) {
+		if (INSTANCE == null) {
+			return null;
+		}
+		Entry entry = INSTANCE.find(clazz);
+		if (entry == null || entry.constructorParameterTypes == null) {
+			return null;
+		}
+		try {
+			return clazz.getConstructor(load(clazz, entry.constructorParameterTypes));
+		} catch (NoSuchMethodException e) {
+			return null;
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Remember the constructor {@link InjectionPlan} chose for a class.
+	 *
+	 * @param clazz
+	 *            The class.
+	 * @param constructor
+	 *            Its constructor.
+	 */
+	static void recordConstructor(Class<?> clazz, Constructor<?> constructor) {
+		if (INSTANCE == null) {
+			return;
+		}
+		Class<?>[] parameterTypes = constructor.getParameterTypes();
+		String[] names = new String[parameterTypes.length];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = parameterTypes[i].getName();
+		}
+		INSTANCE.record(clazz, names, null);
+	}
+
+	/**
+	 * @param clazz
+	 *            A class to inject.
+	 * @return The members {@link FastInjector} injected for the class before, null if there is no valid entry.
+	 */
+	static MemberPlan[] findMembers(Class<?> clazz) {
+		if (INSTANCE == null) {
+			return null;
+		}
+		Entry entry = INSTANCE.find(clazz);
+		return entry == null ? null : entry.members;
+	}
+
+	/**
+	 * Remember the members {@link FastInjector} injects for a class.
+	 *
+	 * @param clazz
+	 *            The class.
+	 * @param members
+	 *            Its members, in order of injection.
+	 */
+	static void recordMembers(Class<?> clazz, MemberPlan[] members) {
+		if (INSTANCE != null) {
+			INSTANCE.record(clazz, null, members);
+		}
+	}
+
+	/**
+	 * Resolve a class name the way the given class would.
+	 *
+	 * @param clazz
+	 *            The class whose class loader is used.
+	 * @param name
+	 *            The name of a class, array or primitive type.
+	 * @return The class.
+	 * @throws ClassNotFoundException
+	 *             If the class does not exist any more.
+	 */
+	static Class<?> load(Class<?> clazz, String name) throws ClassNotFoundException {
+		try {
+			return ClassUtils.forName(name, clazz.getClassLoader());
+		} catch (LinkageError e) {
+			throw new ClassNotFoundException(name, e);
+		}
+	}
+
+	/**
+	 * @param clazz
+	 *            The class whose class loader is used.
+	 * @param names
+	 *            Names of classes.
+	 * @return The classes.
+	 * @throws ClassNotFoundException
+	 *             If a class does not exist any more.
+	 */
+	static Class<?>[] load(Class<?> clazz, String[] names) throws ClassNotFoundException {
+		Class<?>[] result = new Class<?>[names.length];
+		for (int i = 0; i < names.length; i++) {
+			result[i] = load(clazz, names[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Find the valid entry of a class, discovered by this JVM or read from the file.
+	 *
+	 * @param clazz
+	 *            The class.
+	 * @return The entry, null if there is none or it is stale.
+	 */
+	Entry find(Class<?> clazz) {
+		Entry result = discovered.get(clazz.getName());
+		if (result != null) {
+			return result;
+		}
+		Integer offset = offsets.get(clazz.getName());
+		if (offset == null) {
+			return null;
+		}
+		result = decode(offset.intValue());
+		Long hash = hashOf(clazz);
+		if (hash == null || hash.longValue() != result.hash) {
+			staleHashes.put(clazz.getName(), Long.valueOf(result.hash));
+			offsets.remove(clazz.getName());
+			return null;
+		}
+		return result;
+	}
+
+	/**
+	 * Add what was discovered about a class to its entry.
+	 *
+	 * @param clazz
+	 *            The class.
+	 * @param constructorParameterTypes
+	 *            The names of the parameter types of its constructor, null if not discovered.
+	 * @param members
+	 *            Its injected members, null if not discovered.
+	 */
+	synchronized void record(Class<?> clazz, String[] constructorParameterTypes, MemberPlan[] members) {
+		Entry known = find(clazz);
+		Long hash = hashOf(clazz);
+		if (hash == null) {
+			return;
+		}
+		Entry entry = new Entry(clazz.getName(), hash.longValue());
+		entry.constructorParameterTypes = constructorParameterTypes != null ? constructorParameterTypes
+				: known == null ? null : known.constructorParameterTypes;
+		entry.members = members != null ? members : known == null ? null : known.members;
+		discovered.put(clazz.getName(), entry);
+	}
+
+	/**
+	 * Write the index file, if anything was discovered: all entries of the file as it is now which were not found stale
+	 * or replaced, and all discovered entries. Other JVMs writing the same file wait on a lock file meanwhile, so no
+	 * JVM loses the entries of another. The file is replaced at once, so concurrent JVMs never read half of it.
+	 *
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	synchronized void write() throws IOException {
+		if (discovered.isEmpty()) {
+			return;
+		}
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (directory != null) {
+			directory.mkdirs();
+		}
+		RandomAccessFile lockFile = new RandomAccessFile(new File(file.getPath() + ".lock"), "rw");
+		try {
+			FileLock lock = lockFile.getChannel().lock();
+			try {
+				writeMerged(read(file), directory);
+			} finally {
+				lock.release();
+			}
+		} finally {
+			lockFile.close();
+		}
+	}
+
+	/**
+	 * Write the entries of the current file and the discovered ones to a temporary file and rename it to the index
+	 * file. Must be called holding the lock.
+	 *
+	 * @param current
+	 *            The index file as it is now.
+	 * @param directory
+	 *            The directory of the index file.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	private void writeMerged(PlanIndex current, File directory) throws IOException {
+		File temporaryFile = File.createTempFile(file.getName(), ".tmp", directory);
+		OutputStream out = new FileOutputStream(temporaryFile);
+		try {
+			DataOutputStream data = new DataOutputStream(out);
+			data.writeInt(MAGIC);
+			data.writeInt(VERSION);
+			for (Map.Entry<String, Integer> offset : current.offsets.entrySet()) {
+				int position = offset.getValue().intValue();
+				Long staleHash = staleHashes.get(offset.getKey());
+				if (discovered.containsKey(offset.getKey())
+						|| (staleHash != null && staleHash.longValue() == current.decode(position).hash)) {
+					continue;
+				}
+				ByteBuffer entry = current.content.duplicate();
+				((Buffer) entry).position(position - 4);
+				int length = entry.getInt();
+				byte[] bytes = new byte[length];
+				entry.get(bytes);
+				data.writeInt(length);
+				data.write(bytes);
+			}
+			for (Entry entry : discovered.values()) {
+				byte[] bytes = entry.encode();
+				data.writeInt(bytes.length);
+				data.write(bytes);
+			}
+			data.flush();
+		} finally {
+			out.close();
+		}
+		if (!temporaryFile.renameTo(file)) {
+			file.delete();
+			if (!temporaryFile.renameTo(file)) {
+				temporaryFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Decode the entry at the given offset of {@link #content}.
+	 *
+	 * @param offset
+	 *            The offset.
+	 * @return The entry.
+	 */
+	private Entry decode(int offset) {
+		ByteBuffer buffer = content.duplicate();
+		((Buffer) buffer).position(offset);
+		Entry result = new Entry(readString(buffer), buffer.getLong());
+		byte flags = buffer.get();
+		if ((flags & 1) != 0) {
+			result.constructorParameterTypes = readStrings(buffer);
+		}
+		if ((flags & 2) != 0) {
+			MemberPlan[] members = new MemberPlan[buffer.getInt()];
+			for (int i = 0; i < members.length; i++) {
+				boolean method = buffer.get() != 0;
+				String declaringClass = readString(buffer);
+				String name = readString(buffer);
+				String[] parameterTypes = method ? readStrings(buffer) : null;
+				String[] resolvedParameterTypes = method ? readStrings(buffer) : null;
+				boolean required = buffer.get() != 0;
+				String valueKey = readString(buffer);
+				members[i] = new MemberPlan(declaringClass, name, parameterTypes, resolvedParameterTypes, valueKey,
+						required);
+			}
+			result.members = members;
+		}
+		return result;
+	}
+
+	/**
+	 * Give the CRC32 of the bytecode of a class and all its superclasses.
+	 *
+	 * @param clazz
+	 *            The class.
+	 * @return The hash, null if the bytecode of one of the classes cannot be read.
+	 */
+	private Long hashOf(Class<?> clazz) {
+		Long result = hashes.get(clazz);
+		if (result == null) {
+			CRC32 crc = new CRC32();
+			try {
+				for (Class<?> current = clazz; current != null && current != Object.class; current = current
+						.getSuperclass()) {
+					ClassLoader classLoader = current.getClassLoader();
+					InputStream in = classLoader == null ? null : classLoader.getResourceAsStream(current.getName()
+							.replace('.', '/') + ".class");
+					if (in == null) {
+						return null;
+					}
+					try {
+						byte[] buffer = new byte[4096];
+						for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+							crc.update(buffer, 0, read);
+						}
+					} finally {
+						in.close();
+					}
+				}
+			} catch (IOException e) {
+				return null;
+			}
+			result = Long.valueOf(crc.getValue());
+			hashes.put(clazz, result);
+		}
+		return result;
+	}
+
+	/**
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return The string at the position of the buffer, null if null was written.
+	 */
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	/**
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return The strings at the position of the buffer.
+	 */
+	private static String[] readStrings(ByteBuffer buffer) {
+		String[] result = new String[buffer.getInt()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = readString(buffer);
+		}
+		return result;
+	}
+
+	/**
+	 * @param data
+	 *            The stream to write to.
+	 * @param string
+	 *            The string to write, may be null.
+	 * @throws IOException
+	 *             Not expected, as the stream writes to memory.
+	 */
+	private static void writeString(DataOutputStream data, String string) throws IOException {
+		if (string == null) {
+			data.writeInt(-1);
+			return;
+		}
+		byte[] bytes = string.getBytes(UTF_8);
+		data.writeInt(bytes.length);
+		data.write(bytes);
+	}
+
+	/**
+	 * @param data
+	 *            The stream to write to.
+	 * @param strings
+	 *            The strings to write.
+	 * @throws IOException
+	 *             Not expected, as the stream writes to memory.
+	 */
+	private static void writeStrings(DataOutputStream data, String[] strings) throws IOException {
+		data.writeInt(strings.length);
+		for (String string : strings) {
+			writeString(data, string);
+		}
+	}
+
+	/**
+	 * What the index knows about a class.
+	 */
+	static final class Entry {
+
+		/**
+		 * The name of the class.
+		 */
+		final String className;
+
+		/**
+		 * The bytecode hash of the class and its superclasses.
+		 */
+		final long hash;
+
+		/**
+		 * The names of the parameter types of the constructor to use, null if unknown.
+		 */
+		String[] constructorParameterTypes;
+
+		/**
+		 * The members to inject, null if unknown.
+		 */
+		MemberPlan[] members;
+
+		/**
+		 * Constructor of this class.
+		 *
+		 * @param className
+		 *            The name of the class.
+		 * @param hash
+		 *            The bytecode hash of the class and its superclasses.
+		 */
+		Entry(String className, long hash) {
+			this.className = className;
+			this.hash = hash;
+		}
+
+		/**
+		 * @return The entry in the format of the file.
+		 * @throws IOException
+		 *             Not expected, as the entry is written to memory.
+		 */
+		byte[] encode() throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream data = new DataOutputStream(bytes);
+			writeString(data, className);
+			data.writeLong(hash);
+			data.writeByte((constructorParameterTypes != null ? 1 : 0) | (members != null ? 2 : 0));
+			if (constructorParameterTypes != null) {
+				writeStrings(data, constructorParameterTypes);
+			}
+			if (members != null) {
+				data.writeInt(members.length);
+				for (MemberPlan member : members) {
+					boolean method = member.parameterTypes != null;
+					data.writeByte(method ? 1 : 0);
+					writeString(data, member.declaringClass);
+					writeString(data, member.name);
+					if (method) {
+						writeStrings(data, member.parameterTypes);
+						writeStrings(data, member.resolvedParameterTypes);
+					}
+					data.writeByte(member.required ? 1 : 0);
+					writeString(data, member.valueKey);
+				}
+			}
+			data.flush();
+			return bytes.toByteArray();
+		}
+	}
+
+	/**
+	 * A field or method {@link FastInjector} injects, by names only.
+	 */
+	static final class MemberPlan {
+
+		/**
+		 * The name of the class declaring the member.
+		 */
+		final String declaringClass;
+
+		/**
+		 * The name of the member.
+		 */
+		final String name;
+
+		/**
+		 * The names of the declared parameter types of a method, null for a field.
+		 */
+		final String[] parameterTypes;
+
+		/**
+		 * The names of the parameter types of a method with type variables resolved, null for a field.
+		 */
+		final String[] resolvedParameterTypes;
+
+		/**
+		 * The key of the Value-annotation of the member, null if it has none.
+		 */
+		final String valueKey;
+
+		/**
+		 * If false, a method is not invoked if a parameter cannot be resolved.
+		 */
+		final boolean required;
+
+		/**
+		 * Constructor of this class.
+		 *
+		 * @param declaringClass
+		 *            The name of the class declaring the member.
+		 * @param name
+		 *            The name of the member.
+		 * @param parameterTypes
+		 *            The names of the declared parameter types of a method, null for a field.
+		 * @param resolvedParameterTypes
+		 *            The names of the resolved parameter types of a method, null for a field.
+		 * @param valueKey
+		 *            The key of the Value-annotation of the member, null if it has none.
+		 * @param required
+		 *            If false, a method is not invoked if a parameter cannot be resolved.
+		 */
+		MemberPlan(String declaringClass, String name, String[] parameterTypes, String[] resolvedParameterTypes,
+				String valueKey, boolean required) {
+			this.declaringClass = declaringClass;
+			this.name = name;
+			this.parameterTypes = parameterTypes;
+			this.resolvedParameterTypes = resolvedParameterTypes;
+			this.valueKey = valueKey;
+			this.required = required;
+		}
+	}
+}
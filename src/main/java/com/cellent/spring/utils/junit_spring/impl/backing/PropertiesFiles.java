@@ -0,0 +1,131 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * The properties files loaded as values, read once per JVM. All contexts loading a file share the same read-only map
+ * of its entries, so a test loading a file of thousands of keys neither parses nor copies them. A file is read again
+ * once it is modified.
+ *
+ * @author bjoern
+ */
+final class PropertiesFiles {
+
+	/**
+	 * Finds the files.
+	 */
+	private static final ResourceLoader RESOURCE_LOADER = new DefaultResourceLoader();
+
+	/**
+	 * The files read so far, by location.
+	 */
+	private static final ConcurrentMap<String, PropertiesFile> FILES = new ConcurrentHashMap<String, PropertiesFile>();
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private PropertiesFiles() {
+	}
+
+	/**
+	 * Give the entries of the given file, reading it if it was not read before or modified since.
+	 *
+	 * @param location
+	 *            Where the file is, e.g. "classpath:application.properties".
+	 * @return The entries, not to be modified.
+	 * @throws IllegalArgumentException
+	 *             If the file cannot be read.
+	 */
+	static Map<String, String> load(String location) {
+		Resource resource = RESOURCE_LOADER.getResource(location);
+		long lastModified = lastModifiedOf(resource);
+		PropertiesFile file = FILES.get(location);
+		if (file == null || file.lastModified != lastModified) {
+			file = new PropertiesFile(lastModified, read(resource));
+			FILES.put(location, file);
+		}
+		return file.values;
+	}
+
+	/**
+	 * @param resource
+	 *            A file.
+	 * @return When it was modified, 0 if this is not known.
+	 */
+	private static long lastModifiedOf(Resource resource) {
+		try {
+			return resource.lastModified();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Read the file as stream, in the encoding of properties files.
+	 *
+	 * @param resource
+	 *            The file.
+	 * @return Its entries.
+	 * @throws IllegalArgumentException
+	 *             If the file cannot be read.
+	 */
+	private static Map<String, String> read(Resource resource) {
+		Properties properties = new Properties();
+		try {
+			InputStream in = new BufferedInputStream(resource.getInputStream());
+			try {
+				properties.load(in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Cannot read values from " + resource.getDescription(), e);
+		}
+		Map<String, String> result = new HashMap<String, String>(properties.size() * 4 / 3 + 1);
+		for (String key : properties.stringPropertyNames()) {
+			result.put(key, properties.getProperty(key));
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * A file as read.
+	 */
+	private static final class PropertiesFile {
+
+		/**
+		 * When the file was modified before it was read.
+		 */
+		private final long lastModified;
+
+		/**
+		 * Its entries.
+		 */
+		private final Map<String, String> values;
+
+		/**
+		 * Constructor of this class.
+		 *
+		 * @param lastModified
+		 *            When the file was modified before it was read.
+		 * @param values
+		 *            Its entries.
+		 */
+		PropertiesFile(long lastModified, Map<String, String> values) {
+			this.lastModified = lastModified;
+			this.values = values;
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import java.util.Set;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.TypeConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.DependencyDescriptor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+/**
+ * One {@link AutowiredAnnotationBeanPostProcessor} for the whole JVM. Spring caches the {@link Autowired}- and
+ * {@link Value}-metadata of every class it has processed inside the post processor, so a post processor per context
+ * scans every class again in every test.
+ *
+ * The cached metadata resolves its dependencies through the bean factory of the post processor. That bean factory
+ * delegates to the {@link SpringMockBeanFactory} of the context which is currently injecting on this thread, so every
+ * context still gets its own instances.
+ *
+ * @author bjoern
+ */
+final class SharedAutowirePostProcessor {
+
+	/**
+	 * The {@link SpringMockBeanFactory} of the context which currently does injection on this thread.
+	 */
+	private static final ThreadLocal<SpringMockBeanFactory> CURRENT_BEAN_FACTORY = new ThreadLocal<SpringMockBeanFactory>();
+
+	/**
+	 * The post processor shared by all contexts.
+	 */
+	private static final AutowiredAnnotationBeanPostProcessor AUTOWIRE_POST_PROCESSOR = createPostProcessor();
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private SharedAutowirePostProcessor() {
+	}
+
+	/**
+	 * Do field and setter injection on the given instance with the shared post processor.
+	 *
+	 * @param beanFactory
+	 *            The bean factory of the context which does the injection. All dependencies are resolved there.
+	 * @param instance
+	 *            The instance whose fields and setters shall be autowired.
+	 */
+	static void processInjection(SpringMockBeanFactory beanFactory, Object instance) {
+		SpringMockBeanFactory previous = CURRENT_BEAN_FACTORY.get();
+		CURRENT_BEAN_FACTORY.set(beanFactory);
+		try {
+			AUTOWIRE_POST_PROCESSOR.processInjection(instance);
+		} finally {
+			if (previous == null) {
+				CURRENT_BEAN_FACTORY.remove();
+			} else {
+				CURRENT_BEAN_FACTORY.set(previous);
+			}
+		}
+	}
+
+	/**
+	 * @return A post processor which resolves its dependencies in the context which currently does injection.
+	 */
+	private static AutowiredAnnotationBeanPostProcessor createPostProcessor() {
+		AutowiredAnnotationBeanPostProcessor result = new AutowiredAnnotationBeanPostProcessor();
+		result.setBeanFactory(new CurrentContextBeanFactory());
+		return result;
+	}
+
+	/**
+	 * Bean factory which hands dependency resolution over to the {@link SpringMockBeanFactory} bound to the current
+	 * thread.
+	 */
+	private static final class CurrentContextBeanFactory extends DefaultListableBeanFactory {
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.beans.factory.support.DefaultListableBeanFactory
+		 * #resolveDependency(org.springframework.beans.factory.config.DependencyDescriptor, java.lang.String,
+		 * java.util.Set, org.springframework.beans.TypeConverter)
+		 */
+		@Override
+		public Object resolveDependency(DependencyDescriptor descriptor, String beanName,
+				Set<String> autowiredBeanNames, TypeConverter typeConverter) throws BeansException {
+			SpringMockBeanFactory current = CURRENT_BEAN_FACTORY.get();
+			if (current == null) {
+				throw new IllegalStateException("Shared injection metadata used outside of a test application context.");
+			}
+			return current.resolveDependency(descriptor, beanName, autowiredBeanNames, typeConverter);
+		}
+	}
+}
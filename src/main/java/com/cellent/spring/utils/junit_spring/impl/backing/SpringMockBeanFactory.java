@@ -1,10 +1,6 @@
 package com.cellent.spring.utils.junit_spring.impl.backing;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
 
 import org.springframework.beans.BeansException;
@@ -14,7 +10,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.core.MethodParameter;
+import org.springframework.core.convert.TypeDescriptor;
 
+import com.cellent.spring.utils.junit_spring.api.BeanInjector;
 import com.cellent.spring.utils.junit_spring.api.BeanInstanceProvider;
 import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
 
@@ -33,15 +31,50 @@ class SpringMockBeanFactory extends DefaultListableBeanFactory {
 	 */
 	private final BeanInstanceProvider testApplicationContext;
 
+	/**
+	 * Where the dependencies of injected beans are looked up. Differs from
+	 * {@link #testApplicationContext} in giving placeholders instead of mocks
+	 * if mocks are created lazily.
+	 */
+	private final BeanInstanceProvider injectionProvider;
+
+	/**
+	 * If false, the constructor of a class is resolved again on every
+	 * instantiation instead of being taken from its {@link InjectionPlan}.
+	 */
+	private volatile boolean useInjectionPlans = true;
+
 	/**
 	 * Constructor of this class.
 	 * 
 	 * @param testApplicationContext
 	 *            The {@link TestApplicationContext} which takes care of object
 	 *            creation and management.
+	 * @param injectionProvider
+	 *            Where the dependencies of injected beans are looked up.
 	 */
-	SpringMockBeanFactory(TestApplicationContext abstractSpringMockTest) {
+	SpringMockBeanFactory(TestApplicationContext abstractSpringMockTest,
+			BeanInstanceProvider injectionProvider) {
 		this.testApplicationContext = abstractSpringMockTest;
+		this.injectionProvider = injectionProvider;
+	}
+
+	/**
+	 * @param useInjectionPlans
+	 *            false to resolve the constructor of a class on every
+	 *            instantiation instead of taking its cached
+	 *            {@link InjectionPlan}.
+	 */
+	void setUseInjectionPlans(boolean useInjectionPlans) {
+		this.useInjectionPlans = useInjectionPlans;
+	}
+
+	/**
+	 * @return false if the constructor of a class is resolved on every
+	 *         instantiation.
+	 */
+	boolean isUseInjectionPlans() {
+		return useInjectionPlans;
 	}
 
 	/*
@@ -52,49 +85,51 @@ class SpringMockBeanFactory extends DefaultListableBeanFactory {
 	 */
 	@Override
 	public <T> T getBean(Class<T> clazz) throws BeansException {
-		// create mock or find registered instance (delegate of real class).
-		if (testApplicationContext.isUsedByApplicationContextAware()) {
-			return testApplicationContext.getInstance(clazz);
-		}
-		// no delegate, real class using delegates.
+		// Lookups of ApplicationContextAwares are routed elsewhere, so this
+		// is always the class under test or a real class using delegates.
 		return createRealInstance(clazz);
 	}
 
 	/**
-	 * Create a real instance, no mock!
+	 * Create a real instance, no mock! If an injector was generated for the
+	 * class, it is used instead of reflection.
 	 * 
 	 * @param clazz
 	 *            The Class which shall be created.
 	 * @return An instance of the desired class.
 	 */
 	private <T> T createRealInstance(Class<T> clazz) {
-		Constructor<?> constructor = getAutowiredOrOnlyConstructorOf(clazz);
+		BeanInjector<T> injector = GeneratedInjectors.forClass(clazz);
+		if (injector != null) {
+			return injector.newInstance(injectionProvider);
+		}
+		InjectionPlan plan = useInjectionPlans ? InjectionPlan.forClass(clazz)
+				: InjectionPlan.resolve(clazz);
 		Object[] constructorArguments = findOrInstantiate(
-				constructor.getParameterTypes(),
-				constructor.getParameterAnnotations());
-		return safeExecuteNewInstance(clazz, constructor,
-				constructorArguments);
+				plan.getParameterTypes(), plan.getValueKeys(),
+				plan.getValueTypes());
+		return safeExecuteNewInstance(clazz, plan, constructorArguments);
 	}
 
 	/**
-	 * Use a {@link Constructor#newInstance()}-Call to instantiate a given
-	 * class. If something goes wrong, a {@link UnsupportedOperationException}
-	 * is thrown.
+	 * Call the constructor of the {@link InjectionPlan} to instantiate a
+	 * given class. If something goes wrong, a
+	 * {@link UnsupportedOperationException} is thrown.
 	 * 
 	 * @param clazz
 	 *            The class which is created.
-	 * @param constructor
-	 *            The constructor which is used.
+	 * @param plan
+	 *            The plan of the class, with the constructor which is used.
 	 * @param constructorArguments
 	 *            The Constructor arguments.
 	 * @return An instance created by the constructor.
 	 */
 	@SuppressWarnings("unchecked")
-	private <T> T safeExecuteNewInstance(Class<T> clazz,
-			Constructor<?> constructor, Object[] constructorArguments) {
+	private <T> T safeExecuteNewInstance(Class<T> clazz, InjectionPlan plan,
+			Object[] constructorArguments) {
 		try {
-			return (T) constructor.newInstance(constructorArguments);
-		} catch (Exception e) {
+			return (T) plan.newInstance(constructorArguments);
+		} catch (Throwable e) {
 			throw new UnsupportedOperationException(
 					"Error creating a new instance of "
 							+ clazz.getCanonicalName()
@@ -106,71 +141,53 @@ class SpringMockBeanFactory extends DefaultListableBeanFactory {
 	}
 
 	/**
-	 * Iterate over a list of classes and annotations and finds a corresponding
-	 * instance if them (both {@link Value} of {@link Autowired} object).
+	 * Iterate over a list of classes and {@link Value}-keys and finds a
+	 * corresponding instance if them (both {@link Value} of {@link Autowired}
+	 * object).
 	 * 
 	 * @param clazzes
 	 *            A set of method parameter classes.
-	 * @param parameterAnnotations
-	 *            The annotations on these method parameters.
+	 * @param valueKeys
+	 *            The keys of the {@link Value}-annotations on these method
+	 *            parameters, null for parameters without one.
+	 * @param valueTypes
+	 *            The declared types of the parameters with a
+	 *            {@link Value}-annotation, null for the others.
 	 * @return Instances of the desired method parameter classes.
 	 */
-	private Object[] findOrInstantiate(Class<?>[] clazzes,
-			Annotation[][] parameterAnnotations) {
+	private Object[] findOrInstantiate(Class<?>[] clazzes, String[] valueKeys,
+			TypeDescriptor[] valueTypes) {
 		Object[] result = new Object[clazzes.length];
 		for (int i = 0; i < clazzes.length; i++) {
 			// It is possible a method param is annotated with @Value. If so,
-			// finding this value is delegated to another method.
-			Annotation[] currentAnnotations = parameterAnnotations[i];
-			Object injectedValue = evaluateMethodParamAnnotations(currentAnnotations);
-			if (injectedValue != null) {
-				result[i] = injectedValue;
+			// the value is looked up instead of an instance.
+			if (valueKeys[i] != null) {
+				result[i] = lookUpValue(valueKeys[i], valueTypes[i], false);
 			} else {
-				result[i] = this.testApplicationContext
+				result[i] = this.injectionProvider
 						.getInstance(clazzes[i]);
 			}
 		}
 		return result;
 	}
 
-	/**
-	 * Evaluate the annotations of a method parameter. If a {@link Value}
-	 * -Annotation is found, {@link TestApplicationContext#getValue(String)}
-	 * will be used to find the correct instance for the method param.
-	 * 
-	 * @param methodParameterAnnotations
-	 *            The annotations of a Method parameter.
-	 * @return An instance of that value or null, if no {@link Value}-annotation
-	 *         is present.
-	 */
-	private Object evaluateMethodParamAnnotations(
-			Annotation[] methodParameterAnnotations) {
-		Object injectedValue = null;
-		if (methodParameterAnnotations.length > 0) {
-			for (Annotation annotation : methodParameterAnnotations) {
-				if (annotation instanceof Value) {
-					injectedValue = lookUpValue(((Value) annotation).value(),
-							false);
-					break;
-				}
-			}
-		}
-		return injectedValue;
-	}
-
 	/**
 	 * Look up a value in the application context.
 	 * 
 	 * @param valueKey
 	 *            The key of the value in the annotation.
+	 * @param type
+	 *            The declared type the value is converted to, including its
+	 *            type arguments.
 	 * @param nullIsLegal
 	 *            Whether a missing instance shall lead to an exception or not.
 	 * @return The value registered in the application context. If none is
 	 *         known, an {@link IllegalArgumentException} is thrown.
 	 */
-	private Object lookUpValue(String valueKey, boolean nullIsLegal) {
+	private Object lookUpValue(String valueKey, TypeDescriptor type,
+			boolean nullIsLegal) {
 		Object result;
-		result = testApplicationContext.getValue(valueKey);
+		result = testApplicationContext.getValue(valueKey, type);
 		if (result != null || nullIsLegal) {
 			return result;
 		}
@@ -178,53 +195,6 @@ class SpringMockBeanFactory extends DefaultListableBeanFactory {
 				+ valueKey + ", but no value registered under this key.");
 	}
 
-	/**
-	 * Get the constructor of the desired class.
-	 * 
-	 * @param clazz
-	 *            desired Class.
-	 * @return The constructor of the given class.
-	 */
-	private <T> Constructor<?> getAutowiredOrOnlyConstructorOf(
-			Class<T> clazz) {
-		Constructor<?>[] constructors = clazz.getConstructors();
-		// If there exists only one constructor, ...
-		if (constructors.length == 1) {
-			// ... and its parameterless, this is the default constructor ...
-			if (constructors[0].getParameterTypes().length == 0) {
-				// ... and should be returned.
-				return constructors[0];
-			}
-		}
-		// otherwise find autowired constructor and return this one.
-		return filterAutowiredConstructors(constructors);
-	}
-
-	/**
-	 * From a List of contructors, filter these which are annotated with
-	 * {@link Autowired}. If there exist several, this is ambigious and will
-	 * result in an Exception.
-	 * 
-	 * @param constructors
-	 *            All Constructors of the Class.
-	 * @return The {@link Autowired}-Constructor of this class.
-	 */
-	private Constructor<?> filterAutowiredConstructors(
-			Constructor<?>[] constructors) {
-		List<Constructor<?>> result = new ArrayList<Constructor<?>>(1);
-		for (Constructor<?> constructor : constructors) {
-			if (constructor.getAnnotation(Autowired.class) != null) {
-				result.add(constructor);
-			}
-		}
-		if (result.size() != 1) {
-			throw new IllegalArgumentException(
-					"Found not exactly one Autowired-Constructor, but "
-							+ result.size() + " Autowired-Constructors.");
-		}
-		return result.get(0);
-	}
-
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -239,10 +209,11 @@ class SpringMockBeanFactory extends DefaultListableBeanFactory {
 			TypeConverter typeConverter) throws BeansException {
 		Value valueAnnotation = null;
 		if ((valueAnnotation = extractValueAnnotation(descriptor)) != null) {
-			return lookUpValue(valueAnnotation.value(), true);
+			return lookUpValue(valueAnnotation.value(),
+					determineDesiredTypeFromFieldOrMethod(descriptor), true);
 		}
-		Class<?> clazz = determineDesiredClassFromFieldOrMethod(descriptor);
-		return this.testApplicationContext.getInstance(clazz);
+		return this.injectionProvider
+				.getInstance(determineDesiredClassFromFieldOrMethod(descriptor));
 	}
 
 	/**
@@ -282,6 +253,24 @@ class SpringMockBeanFactory extends DefaultListableBeanFactory {
 		}
 		return clazz;
 	}
+
+	/**
+	 * Like {@link #determineDesiredClassFromFieldOrMethod(DependencyDescriptor)},
+	 * but with the type arguments of the field or method parameter, to
+	 * convert values to e.g. a List of Integers.
+	 * 
+	 * @param descriptor
+	 *            The Spring {@link DependencyDescriptor}.
+	 * @return The declared type which is needed.
+	 */
+	private TypeDescriptor determineDesiredTypeFromFieldOrMethod(
+			DependencyDescriptor descriptor) {
+		Field field = descriptor.getField();
+		if (field != null) {
+			return new TypeDescriptor(field);
+		}
+		return new TypeDescriptor(descriptor.getMethodParameter());
+	}
 	
 	/*
 	 * (non-Javadoc)
@@ -0,0 +1,140 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of registered instances by every type they can be assigned to, i.e. their class, all superclasses and all
+ * interfaces. This way finding the candidates for a type does not need to look at every registered instance.
+ *
+ * Only one instance per concrete class is indexed: registering another instance of the same class replaces the former
+ * one.
+ *
+ * All methods are synchronized, as the index may be used by several threads.
+ *
+ * @author bjoern
+ */
+final class TypeIndex {
+
+	/**
+	 * The types a class can be assigned to, computed once per class for all indexes.
+	 */
+	private static final ConcurrentMap<Class<?>, Class<?>[]> ASSIGNABLE_TYPES = new ConcurrentHashMap<Class<?>, Class<?>[]>();
+
+	/**
+	 * The registered instances by the types they can be assigned to.
+	 */
+	private final Map<Class<?>, List<Object>> candidatesByType = new HashMap<Class<?>, List<Object>>();
+
+	/**
+	 * The registered instances by their concrete class.
+	 */
+	private final Map<Class<?>, Object> instancesByClass = new HashMap<Class<?>, Object>();
+
+	/**
+	 * Add an instance to the index. A former instance of exactly the same class is removed.
+	 *
+	 * @param instance
+	 *            The instance to add.
+	 */
+	synchronized void add(Object instance) {
+		Class<?> clazz = instance.getClass();
+		Object previous = instancesByClass.put(clazz, instance);
+		if (previous == instance) {
+			return;
+		}
+		for (Class<?> type : assignableTypesOf(clazz)) {
+			List<Object> candidates = candidatesByType.get(type);
+			if (candidates == null) {
+				candidates = new ArrayList<Object>(1);
+				candidatesByType.put(type, candidates);
+			} else if (previous != null) {
+				removeByIdentity(candidates, previous);
+			}
+			candidates.add(instance);
+		}
+	}
+
+	/**
+	 * Give all indexed instances which can be assigned to the given type.
+	 *
+	 * @param type
+	 *            The desired type.
+	 * @return A copy of all indexed instances of that type in order of registration, an empty list if there are none.
+	 */
+	synchronized List<Object> candidatesFor(Class<?> type) {
+		List<Object> result = candidatesByType.get(type);
+		if (result == null) {
+			return Collections.emptyList();
+		}
+		return new ArrayList<Object>(result);
+	}
+
+	/**
+	 * Remove an object from a list, comparing by identity (mocks may have overridden equals).
+	 *
+	 * @param list
+	 *            The list to remove the object from.
+	 * @param object
+	 *            The object to remove.
+	 */
+	private static void removeByIdentity(List<Object> list, Object object) {
+		for (int i = 0; i < list.size(); i++) {
+			if (list.get(i) == object) {
+				list.remove(i);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Remove all instances from the index.
+	 */
+	synchronized void clear() {
+		candidatesByType.clear();
+		instancesByClass.clear();
+	}
+
+	/**
+	 * Give the class, all superclasses and all interfaces of the given class.
+	 *
+	 * @param clazz
+	 *            A concrete class.
+	 * @return All types instances of the given class may be assigned to.
+	 */
+	private static Class<?>[] assignableTypesOf(Class<?> clazz) {
+		Class<?>[] result = ASSIGNABLE_TYPES.get(clazz);
+		if (result == null) {
+			Set<Class<?>> types = new LinkedHashSet<Class<?>>();
+			collectAssignableTypes(clazz, types);
+			result = types.toArray(new Class<?>[types.size()]);
+			ASSIGNABLE_TYPES.putIfAbsent(clazz, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Recursively collect the given type, its superclasses and interfaces.
+	 *
+	 * @param type
+	 *            The type to start from.
+	 * @param types
+	 *            The collected types.
+	 */
+	private static void collectAssignableTypes(Class<?> type, Set<Class<?>> types) {
+		if (type == null || !types.add(type)) {
+			return;
+		}
+		collectAssignableTypes(type.getSuperclass(), types);
+		for (Class<?> anInterface : type.getInterfaces()) {
+			collectAssignableTypes(anInterface, types);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.SimpleTypeConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Converts {@link Value}s to the type of the field or parameter they are injected into, e.g. the String "42" from a
+ * properties file to an int, or "1,2" to a List of Integers for a List&lt;Integer&gt;. The type is given as
+ * {@link TypeDescriptor} of the field or parameter, so collections and maps are converted element by element, like
+ * Spring does. Conversion is done by Spring's {@link DefaultConversionService}, which caches the converter of every pair
+ * of source and target type, and falls back to the property editors of a {@link SimpleTypeConverter}.
+ *
+ * Values converted to immutable types are remembered by key and type, as long as the registered value stays the same.
+ * There is one converter per root context, which all its forks use, so a value of a fixture shared by thousands of
+ * tests is converted once.
+ *
+ * @author bjoern
+ */
+final class ValueConverter {
+
+	/**
+	 * The remembered conversions by target type and key.
+	 */
+	private final ConcurrentMap<TypeDescriptor, ConcurrentMap<String, Conversion>> conversions = new ConcurrentHashMap<TypeDescriptor, ConcurrentMap<String, Conversion>>();
+
+	/**
+	 * Convert a value to the given type, if it is not of that type already.
+	 *
+	 * @param key
+	 *            The key of the {@link Value}.
+	 * @param value
+	 *            The value registered under the key, not null.
+	 * @param type
+	 *            The declared type of the field or parameter.
+	 * @return The converted value.
+	 * @throws IllegalArgumentException
+	 *             If the value cannot be converted.
+	 */
+	Object convert(String key, Object value, TypeDescriptor type) {
+		boolean hasElements = type.isCollection() || type.isArray() || type.isMap();
+		if (!hasElements && ClassUtils.isAssignableValue(type.getType(), value)) {
+			return value;
+		}
+		if (hasElements || !isImmutable(type.getType())) {
+			return doConvert(key, value, type);
+		}
+		ConcurrentMap<String, Conversion> ofType = conversions.get(type);
+		if (ofType == null) {
+			ConcurrentMap<String, Conversion> existing = conversions.putIfAbsent(type,
+					ofType = new ConcurrentHashMap<String, Conversion>());
+			if (existing != null) {
+				ofType = existing;
+			}
+		}
+		Conversion conversion = ofType.get(key);
+		if (conversion == null || !conversion.source.equals(value)) {
+			conversion = new Conversion(value, doConvert(key, value, type));
+			ofType.put(key, conversion);
+		}
+		return conversion.result;
+	}
+
+	/**
+	 * Forget all conversions.
+	 */
+	void clear() {
+		conversions.clear();
+	}
+
+	/**
+	 * @param key
+	 *            The key of the {@link Value}.
+	 * @param value
+	 *            The value registered under the key.
+	 * @param type
+	 *            The type to convert to.
+	 * @return The converted value.
+	 * @throws IllegalArgumentException
+	 *             If the value cannot be converted.
+	 */
+	private static Object doConvert(String key, Object value, TypeDescriptor type) {
+		try {
+			ConversionService conversionService = ConversionServiceHolder.CONVERSION_SERVICE;
+			TypeDescriptor sourceType = TypeDescriptor.forObject(value);
+			if (conversionService.canConvert(sourceType, type)) {
+				return conversionService.convert(value, sourceType, type);
+			}
+			// Property editors are not thread-safe, so every conversion gets its own.
+			return new SimpleTypeConverter().convertIfNecessary(value, type.getType());
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("@Value-Annotation with key " + key + " cannot be converted from "
+					+ value + " to " + type + ".", e);
+		}
+	}
+
+	/**
+	 * @param type
+	 *            A type values are converted to.
+	 * @return true if its instances cannot be changed, so that a converted value may be handed to several beans.
+	 */
+	private static boolean isImmutable(Class<?> type) {
+		return ClassUtils.isPrimitiveOrWrapper(type) || type == String.class || type.isEnum()
+				|| type == BigDecimal.class || type == BigInteger.class || type == Class.class || type == Locale.class
+				|| type == URI.class;
+	}
+
+	/**
+	 * Holds the conversion service, which registers lots of converters, so that it is only created on the first
+	 * conversion.
+	 */
+	private static final class ConversionServiceHolder {
+
+		/**
+		 * Converts for all contexts; it is thread-safe.
+		 */
+		static final ConversionService CONVERSION_SERVICE = new DefaultConversionService();
+	}
+
+	/**
+	 * A remembered conversion.
+	 */
+	private static final class Conversion {
+
+		/**
+		 * The value which was converted.
+		 */
+		private final Object source;
+
+		/**
+		 * The converted value.
+		 */
+		private final Object result;
+
+		/**
+		 * Constructor of this class.
+		 *
+		 * @param source
+		 *            The value which was converted.
+		 * @param result
+		 *            The converted value.
+		 */
+		Conversion(Object source, Object result) {
+			this.source = source;
+			this.result = result;
+		}
+	}
+}
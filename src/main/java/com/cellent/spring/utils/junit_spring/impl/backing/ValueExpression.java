@@ -0,0 +1,231 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Value;
+
+/**
+ * The text of a {@link Value}-annotation or of a registered value, split into literal text and "${key}" or
+ * "${key:default}" placeholders. Every text is parsed once per JVM, so that resolving it for every injection only
+ * means looking up its keys.
+ *
+ * @author bjoern
+ */
+final class ValueExpression {
+
+	/**
+	 * Start of a placeholder.
+	 */
+	private static final String PREFIX = "${";
+
+	/**
+	 * All texts parsed so far. Entries are never removed; the texts come from annotations and property files, so there
+	 * is a fixed number of them.
+	 */
+	private static final ConcurrentMap<String, ValueExpression> PARSED = new ConcurrentHashMap<String, ValueExpression>();
+
+	/**
+	 * The literal text before each placeholder, and after the last one.
+	 */
+	private final String[] literals;
+
+	/**
+	 * The keys of the placeholders.
+	 */
+	private final String[] keys;
+
+	/**
+	 * For each placeholder its default, null if it has none.
+	 */
+	private final ValueExpression[] defaults;
+
+	/**
+	 * Constructor of this class.
+	 *
+	 * @param literals
+	 *            The literal text before each placeholder, and after the last one.
+	 * @param keys
+	 *            The keys of the placeholders.
+	 * @param defaults
+	 *            For each placeholder its default, null if it has none.
+	 */
+	private ValueExpression(List<String> literals, List<String> keys, List<ValueExpression> defaults) {
+		this.literals = literals.toArray(new String[literals.size()]);
+		this.keys = keys.toArray(new String[keys.size()]);
+		this.defaults = defaults.toArray(new ValueExpression[defaults.size()]);
+	}
+
+	/**
+	 * @param text
+	 *            The text of a {@link Value} or a registered value.
+	 * @return true if the text may contain placeholders.
+	 */
+	static boolean hasPlaceholders(String text) {
+		return text.indexOf(PREFIX) >= 0;
+	}
+
+	/**
+	 * Give the parsed form of the given text, parsing it on first use.
+	 *
+	 * @param text
+	 *            The text.
+	 * @return The parsed text.
+	 */
+	static ValueExpression parse(String text) {
+		ValueExpression result = PARSED.get(text);
+		if (result == null) {
+			result = doParse(text);
+			PARSED.putIfAbsent(text, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Split the text into literals and placeholders. A "${" without its "}" is taken literally.
+	 *
+	 * @param text
+	 *            The text.
+	 * @return The parsed text.
+	 */
+	private static ValueExpression doParse(String text) {
+		List<String> literals = new ArrayList<String>();
+		List<String> keys = new ArrayList<String>();
+		List<ValueExpression> defaults = new ArrayList<ValueExpression>();
+		int literalStart = 0;
+		int start = text.indexOf(PREFIX);
+		while (start >= 0) {
+			int end = findEnd(text, start + PREFIX.length());
+			if (end < 0) {
+				break;
+			}
+			literals.add(text.substring(literalStart, start));
+			String placeholder = text.substring(start + PREFIX.length(), end);
+			int separator = findSeparator(placeholder);
+			if (separator < 0) {
+				keys.add(placeholder);
+				defaults.add(null);
+			} else {
+				keys.add(placeholder.substring(0, separator));
+				defaults.add(parse(placeholder.substring(separator + 1)));
+			}
+			literalStart = end + 1;
+			start = text.indexOf(PREFIX, literalStart);
+		}
+		literals.add(text.substring(literalStart));
+		return new ValueExpression(literals, keys, defaults);
+	}
+
+	/**
+	 * @param text
+	 *            A text.
+	 * @param from
+	 *            The index right after the "${" of a placeholder.
+	 * @return The index of the "}" closing the placeholder, placeholders nested in it skipped; -1 if it is not closed.
+	 */
+	private static int findEnd(String text, int from) {
+		int nesting = 0;
+		for (int i = from; i < text.length(); i++) {
+			if (text.startsWith(PREFIX, i)) {
+				nesting++;
+				i++;
+			} else if (text.charAt(i) == '}') {
+				if (nesting == 0) {
+					return i;
+				}
+				nesting--;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param placeholder
+	 *            The text between "${" and "}".
+	 * @return The index of the ':' separating the key from the default, -1 if there is no default.
+	 */
+	private static int findSeparator(String placeholder) {
+		int nesting = 0;
+		for (int i = 0; i < placeholder.length(); i++) {
+			if (placeholder.startsWith(PREFIX, i)) {
+				nesting++;
+				i++;
+			} else if (placeholder.charAt(i) == '}') {
+				nesting--;
+			} else if (placeholder.charAt(i) == ':' && nesting == 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Resolve the placeholders by the values of the given context. A text which is a single placeholder gives the
+	 * value as it is registered, otherwise the values are joined as text.
+	 *
+	 * @param context
+	 *            Where values are looked up.
+	 * @return The value, {@link AbstractTestApplicationContext#NULL_VALUE} if a placeholder resolves to a value set to
+	 *         null, null if a placeholder without default has no value.
+	 * @throws IllegalArgumentException
+	 *             If a value refers to itself by its placeholders.
+	 */
+	Object resolve(AbstractTestApplicationContext context) {
+		return resolve(context, null);
+	}
+
+	/**
+	 * @param context
+	 *            Where values are looked up.
+	 * @param resolving
+	 *            The keys whose values are being resolved, null at the top.
+	 * @return The value, see {@link #resolve(AbstractTestApplicationContext)}.
+	 */
+	private Object resolve(AbstractTestApplicationContext context, Set<String> resolving) {
+		if (keys.length == 1 && literals[0].length() == 0 && literals[1].length() == 0) {
+			return resolvePlaceholder(0, context, resolving);
+		}
+		StringBuilder result = new StringBuilder(literals[0]);
+		for (int i = 0; i < keys.length; i++) {
+			Object value = resolvePlaceholder(i, context, resolving);
+			if (value == null || value == AbstractTestApplicationContext.NULL_VALUE) {
+				return value;
+			}
+			result.append(value).append(literals[i + 1]);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * @param index
+	 *            The index of the placeholder.
+	 * @param context
+	 *            Where values are looked up.
+	 * @param resolving
+	 *            The keys whose values are being resolved, null at the top.
+	 * @return The value of the placeholder, see {@link #resolve(AbstractTestApplicationContext)}.
+	 */
+	private Object resolvePlaceholder(int index, AbstractTestApplicationContext context, Set<String> resolving) {
+		String key = keys[index];
+		Object value = context.findValue(key);
+		if (value == null) {
+			return defaults[index] == null ? null : defaults[index].resolve(context, resolving);
+		}
+		if (!(value instanceof String) || !hasPlaceholders((String) value)) {
+			return value;
+		}
+		Set<String> nowResolving = resolving == null ? new HashSet<String>() : resolving;
+		if (!nowResolving.add(key)) {
+			throw new IllegalArgumentException("Circular placeholder reference '" + key + "' in @Value " + value);
+		}
+		try {
+			return parse((String) value).resolve(context, nowResolving);
+		} finally {
+			nowResolving.remove(key);
+		}
+	}
+}
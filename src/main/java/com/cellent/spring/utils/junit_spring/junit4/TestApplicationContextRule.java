@@ -0,0 +1,192 @@
+package com.cellent.spring.utils.junit_spring.junit4;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+
+/**
+ * JUnit rule which sets up one context for all test methods of a class and gives every method a fresh view of it, with
+ * the class under test newly created. Use it as {@link ClassRule} and {@link Rule} on the same public static field:
+ *
+ * <pre>
+ * &#064;ClassRule
+ * &#064;Rule
+ * public static final TestApplicationContextRule&lt;MyBean&gt; CONTEXT = new TestApplicationContextRule&lt;MyBean&gt;(MyBean.class);
+ * </pre>
+ *
+ * The base context is created by {@link #createBaseContext()} and set up by {@link #setUpBaseContext(TestApplicationContext)}
+ * once per class; then it creates one instance of the class under test, so that it holds the mocks of all its
+ * dependencies. Each test method works on a fork of it: whatever a method registers, sets or mocks itself is gone for
+ * the next method, and the mocks the base context created are reset before every method. So stub mocks in the test
+ * methods or in a Before-method, not in the base context.
+ *
+ * Used as {@link Rule} only, the base context is set up again for every method.
+ *
+ * @param <T>
+ *            The class under test.
+ * @author bjoern
+ */
+public class TestApplicationContextRule<T> implements TestRule {
+
+	/**
+	 * The class under test, created for each test method.
+	 */
+	private final Class<T> classUnderTest;
+
+	/**
+	 * The context set up for the whole class, null outside of it.
+	 */
+	private volatile TestApplicationContext baseContext;
+
+	/**
+	 * The context of the current test method, null outside of it.
+	 */
+	private volatile TestApplicationContext context;
+
+	/**
+	 * The instance of the class under test of the current test method, null outside of it.
+	 */
+	private volatile T instanceUnderTest;
+
+	/**
+	 * Constructor of this class.
+	 *
+	 * @param classUnderTest
+	 *            The class under test, created for each test method.
+	 */
+	public TestApplicationContextRule(Class<T> classUnderTest) {
+		this.classUnderTest = classUnderTest;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.junit.rules.TestRule#apply(org.junit.runners.model.Statement, org.junit.runner.Description)
+	 */
+	@Override
+	public Statement apply(final Statement base, Description description) {
+		if (description.isTest()) {
+			return new Statement() {
+				@Override
+				public void evaluate() throws Throwable {
+					evaluateTestMethod(base);
+				}
+			};
+		}
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				evaluateTestClass(base);
+			}
+		};
+	}
+
+	/**
+	 * Run all test methods of a class with the base context set up and holding the dependencies of the class under
+	 * test.
+	 *
+	 * @param base
+	 *            The statement running the test class.
+	 * @throws Throwable
+	 *             Anything the test class throws.
+	 */
+	private void evaluateTestClass(Statement base) throws Throwable {
+		baseContext = setUpNewBaseContext();
+		try {
+			// The instance is thrown away, but its mocks stay in the base context for all forks to share.
+			baseContext.createInstance(classUnderTest);
+			base.evaluate();
+		} finally {
+			baseContext.close();
+			baseContext = null;
+		}
+	}
+
+	/**
+	 * Run a test method with a fork of the base context and a new instance of the class under test.
+	 *
+	 * @param base
+	 *            The statement running the test method.
+	 * @throws Throwable
+	 *             Anything the test method throws.
+	 */
+	private void evaluateTestMethod(Statement base) throws Throwable {
+		TestApplicationContext currentBaseContext = baseContext;
+		boolean baseContextOfThisMethod = currentBaseContext == null;
+		if (baseContextOfThisMethod) {
+			currentBaseContext = setUpNewBaseContext();
+		} else {
+			currentBaseContext.resetMocks();
+		}
+		context = currentBaseContext.fork();
+		try {
+			instanceUnderTest = context.createInstance(classUnderTest);
+			base.evaluate();
+		} finally {
+			context.close();
+			context = null;
+			instanceUnderTest = null;
+			if (baseContextOfThisMethod) {
+				currentBaseContext.close();
+			}
+		}
+	}
+
+	/**
+	 * @return A new base context, set up.
+	 */
+	private TestApplicationContext setUpNewBaseContext() {
+		TestApplicationContext result = createBaseContext();
+		setUpBaseContext(result);
+		return result;
+	}
+
+	/**
+	 * Create the base context. By default, this is a {@link MockitoApplicationContext}.
+	 *
+	 * @return A new context.
+	 */
+	protected TestApplicationContext createBaseContext() {
+		return new MockitoApplicationContext();
+	}
+
+	/**
+	 * Set up what all test methods have in common, e.g. register instances and set values. Does nothing by default.
+	 *
+	 * @param base
+	 *            The new base context.
+	 */
+	protected void setUpBaseContext(TestApplicationContext base) {
+	}
+
+	/**
+	 * @return The context of the current test method.
+	 * @throws IllegalStateException
+	 *             If no test method is running.
+	 */
+	public TestApplicationContext getContext() {
+		TestApplicationContext result = context;
+		if (result == null) {
+			throw new IllegalStateException("The context is only available while a test method is running.");
+		}
+		return result;
+	}
+
+	/**
+	 * @return The instance of the class under test created for the current test method.
+	 * @throws IllegalStateException
+	 *             If no test method is running.
+	 */
+	public T getInstanceUnderTest() {
+		T result = instanceUnderTest;
+		if (result == null) {
+			throw new IllegalStateException("The instance under test is only available while a test method is running.");
+		}
+		return result;
+	}
+}
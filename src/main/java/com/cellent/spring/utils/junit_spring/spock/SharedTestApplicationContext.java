@@ -0,0 +1,80 @@
+package com.cellent.spring.utils.junit_spring.spock;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.spockframework.runtime.extension.ExtensionAnnotation;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+
+/**
+ * Put this on a field of type {@link TestApplicationContext} in a Spock specification instead of creating a new context
+ * in setup(). One base context is created for each feature, or for the whole specification, and every iteration of a
+ * feature gets its own fork of it in the field:
+ *
+ * <pre>
+ * &#064;SharedTestApplicationContext
+ * TestApplicationContext testApplicationContext
+ * </pre>
+ *
+ * Everything an iteration registered, set or mocked in its fork, e.g. Spock's own Mock()s given to registerInstance, is
+ * gone with the fork after the iteration. For a {@link MockitoApplicationContext}, the mocks are pooled: later iterations
+ * get the mocks of the former ones, reset, instead of new ones.
+ *
+ * What all iterations need, e.g. values, registrations or the mocks of the class under test, is better done once in
+ * the base context by a {@link #setup()} method of the specification; the forks reuse its mocks and registrations. The
+ * mocks of the base context are reset before every iteration, so stub them in the iterations, not in the setup method:
+ *
+ * <pre>
+ * &#064;SharedTestApplicationContext(setup = &quot;setUpBase&quot;)
+ * TestApplicationContext testApplicationContext
+ *
+ * def setUpBase(TestApplicationContext base) {
+ * 	base.setValue(&quot;url&quot;, &quot;http://localhost&quot;)
+ * 	base.createInstance(MyBean)
+ * }
+ * </pre>
+ *
+ * @author bjoern
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+@ExtensionAnnotation(SharedTestApplicationContextExtension.class)
+public @interface SharedTestApplicationContext {
+
+	/**
+	 * @return The class of the base context, which needs a public constructor without parameters.
+	 */
+	Class<? extends TestApplicationContext> value() default MockitoApplicationContext.class;
+
+	/**
+	 * @return How long a base context is used.
+	 */
+	Scope scope() default Scope.FEATURE;
+
+	/**
+	 * @return Name of a method of the specification which sets up every new base context, before the first iteration
+	 *         forks it. It takes the base context as its only parameter and is called on the shared instance of the
+	 *         specification, so it can use @Shared fields; it may be static. The empty default means none.
+	 */
+	String setup() default "";
+
+	/**
+	 * How long a base context is used.
+	 */
+	enum Scope {
+
+		/**
+		 * A base context for each feature, shared by its iterations.
+		 */
+		FEATURE,
+
+		/**
+		 * One base context for all features of the specification.
+		 */
+		SPEC
+	}
+}
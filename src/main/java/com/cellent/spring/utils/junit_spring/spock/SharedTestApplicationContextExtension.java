@@ -0,0 +1,74 @@
+package com.cellent.spring.utils.junit_spring.spock;
+
+import java.lang.reflect.Method;
+
+import org.spockframework.runtime.extension.AbstractAnnotationDrivenExtension;
+import org.spockframework.runtime.extension.ExtensionException;
+import org.spockframework.runtime.model.FeatureInfo;
+import org.spockframework.runtime.model.FieldInfo;
+import org.spockframework.runtime.model.SpecInfo;
+
+/**
+ * Spock extension behind {@link SharedTestApplicationContext}: installs a
+ * {@link SharedTestApplicationContextInterceptor} for each annotated field.
+ *
+ * @author bjoern
+ */
+public class SharedTestApplicationContextExtension extends
+		AbstractAnnotationDrivenExtension<SharedTestApplicationContext> {
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.spockframework.runtime.extension.AbstractAnnotationDrivenExtension#visitFieldAnnotation(java.lang.annotation
+	 * .Annotation, org.spockframework.runtime.model.FieldInfo)
+	 */
+	@Override
+	public void visitFieldAnnotation(SharedTestApplicationContext annotation, FieldInfo field) {
+		if (field.isShared() || field.isStatic()) {
+			throw new ExtensionException("@SharedTestApplicationContext field %s must neither be @Shared nor static")
+					.withArgs(field.getName());
+		}
+		if (!field.getType().isAssignableFrom(annotation.value())) {
+			throw new ExtensionException("@SharedTestApplicationContext field %s cannot hold a %s").withArgs(
+					field.getName(), annotation.value().getName());
+		}
+		SpecInfo spec = field.getParent();
+		Method setupMethod = annotation.setup().length() == 0 ? null : findSetupMethod(annotation, spec
+				.getBottomSpec().getReflection());
+		SharedTestApplicationContextInterceptor interceptor = new SharedTestApplicationContextInterceptor(
+				annotation.value(), field, setupMethod);
+		if (annotation.scope() == SharedTestApplicationContext.Scope.SPEC) {
+			spec.getBottomSpec().addInterceptor(interceptor);
+		} else {
+			for (FeatureInfo feature : spec.getBottomSpec().getAllFeatures()) {
+				feature.addInterceptor(interceptor);
+			}
+		}
+		spec.getSetupMethod().addInterceptor(interceptor);
+		spec.getCleanupMethod().addInterceptor(interceptor);
+	}
+
+	/**
+	 * Find the {@link SharedTestApplicationContext#setup()} method in the specification or its superclasses.
+	 *
+	 * @param annotation
+	 *            The annotation naming the method.
+	 * @param specClass
+	 *            The class of the specification.
+	 * @return The method, made accessible.
+	 */
+	private static Method findSetupMethod(SharedTestApplicationContext annotation, Class<?> specClass) {
+		for (Class<?> current = specClass; current != null; current = current.getSuperclass()) {
+			for (Method method : current.getDeclaredMethods()) {
+				if (method.getName().equals(annotation.setup()) && method.getParameterTypes().length == 1
+						&& method.getParameterTypes()[0].isAssignableFrom(annotation.value())) {
+					method.setAccessible(true);
+					return method;
+				}
+			}
+		}
+		throw new ExtensionException("@SharedTestApplicationContext setup method %s(%s) not found in %s").withArgs(
+				annotation.setup(), annotation.value().getName(), specClass.getName());
+	}
+}
@@ -0,0 +1,173 @@
+package com.cellent.spring.utils.junit_spring.spock;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.spockframework.runtime.extension.AbstractMethodInterceptor;
+import org.spockframework.runtime.extension.ExtensionException;
+import org.spockframework.runtime.extension.IMethodInvocation;
+import org.spockframework.runtime.model.FieldInfo;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+
+/**
+ * Keeps the base context of a {@link SharedTestApplicationContext} field while a feature or the specification runs, and
+ * puts a fork of it into the field of every iteration: the base context is set up by the setup method of the annotation,
+ * if any, and the fork is created before the setup method of the specification declaring the field and closed after
+ * its cleanup method. The mocks of the base context are reset before every fork, so no iteration sees the stubbing or
+ * invocations of another one.
+ *
+ * @author bjoern
+ */
+class SharedTestApplicationContextInterceptor extends AbstractMethodInterceptor {
+
+	/**
+	 * The class of the base context.
+	 */
+	private final Class<? extends TestApplicationContext> contextClass;
+
+	/**
+	 * The annotated field.
+	 */
+	private final FieldInfo field;
+
+	/**
+	 * The method setting up each base context, null if there is none.
+	 */
+	private final Method setupMethod;
+
+	/**
+	 * The base context of the running feature or specification, null if none is running.
+	 */
+	private volatile TestApplicationContext baseContext;
+
+	/**
+	 * Constructor of this class.
+	 *
+	 * @param contextClass
+	 *            The class of the base context.
+	 * @param field
+	 *            The annotated field.
+	 * @param setupMethod
+	 *            The method setting up each base context, null if there is none.
+	 */
+	SharedTestApplicationContextInterceptor(Class<? extends TestApplicationContext> contextClass, FieldInfo field,
+			Method setupMethod) {
+		this.contextClass = contextClass;
+		this.field = field;
+		this.setupMethod = setupMethod;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.spockframework.runtime.extension.AbstractMethodInterceptor#interceptSpecExecution(org.spockframework.runtime
+	 * .extension.IMethodInvocation)
+	 */
+	@Override
+	public void interceptSpecExecution(IMethodInvocation invocation) throws Throwable {
+		runWithBaseContext(invocation);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.spockframework.runtime.extension.AbstractMethodInterceptor#interceptFeatureExecution(org.spockframework.
+	 * runtime.extension.IMethodInvocation)
+	 */
+	@Override
+	public void interceptFeatureExecution(IMethodInvocation invocation) throws Throwable {
+		runWithBaseContext(invocation);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.spockframework.runtime.extension.AbstractMethodInterceptor#interceptSetupMethod(org.spockframework.runtime.
+	 * extension.IMethodInvocation)
+	 */
+	@Override
+	public void interceptSetupMethod(IMethodInvocation invocation) throws Throwable {
+		baseContext.resetMocks();
+		field.writeValue(invocation.getInstance(), baseContext.fork());
+		invocation.proceed();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.spockframework.runtime.extension.AbstractMethodInterceptor#interceptCleanupMethod(org.spockframework.runtime
+	 * .extension.IMethodInvocation)
+	 */
+	@Override
+	public void interceptCleanupMethod(IMethodInvocation invocation) throws Throwable {
+		try {
+			invocation.proceed();
+		} finally {
+			TestApplicationContext context = (TestApplicationContext) field.readValue(invocation.getInstance());
+			if (context != null) {
+				field.writeValue(invocation.getInstance(), null);
+				context.close();
+			}
+		}
+	}
+
+	/**
+	 * Run a feature or specification with a new base context, which is set up first and closed afterwards.
+	 *
+	 * @param invocation
+	 *            The execution of the feature or specification.
+	 * @throws Throwable
+	 *             Anything the execution or the setup method throws.
+	 */
+	private void runWithBaseContext(IMethodInvocation invocation) throws Throwable {
+		baseContext = createBaseContext();
+		try {
+			if (setupMethod != null) {
+				setUpBaseContext(invocation.getSharedInstance());
+			}
+			invocation.proceed();
+		} finally {
+			baseContext.close();
+			baseContext = null;
+		}
+	}
+
+	/**
+	 * Call the setup method with the base context.
+	 *
+	 * @param sharedInstance
+	 *            The shared instance of the specification.
+	 * @throws Throwable
+	 *             Anything the setup method throws.
+	 */
+	private void setUpBaseContext(Object sharedInstance) throws Throwable {
+		try {
+			setupMethod.invoke(Modifier.isStatic(setupMethod.getModifiers()) ? null : sharedInstance, baseContext);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * @return A new base context, pooling its mocks if it is a {@link MockitoApplicationContext}.
+	 */
+	private TestApplicationContext createBaseContext() {
+		TestApplicationContext result;
+		try {
+			result = contextClass.newInstance();
+		} catch (InstantiationException e) {
+			throw new ExtensionException("Cannot create a %s for @SharedTestApplicationContext", e).withArgs(contextClass
+					.getName());
+		} catch (IllegalAccessException e) {
+			throw new ExtensionException("Cannot create a %s for @SharedTestApplicationContext", e).withArgs(contextClass
+					.getName());
+		}
+		if (result instanceof MockitoApplicationContext) {
+			((MockitoApplicationContext) result).setPoolMocks(true);
+		}
+		return result;
+	}
+}
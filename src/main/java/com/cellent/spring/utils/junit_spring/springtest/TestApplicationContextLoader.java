@@ -0,0 +1,292 @@
+package com.cellent.spring.utils.junit_spring.springtest;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanNotOfRequiredTypeException;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.ContextLoader;
+import org.springframework.test.context.support.AbstractContextLoader;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+
+/**
+ * {@link ContextLoader} for the Spring TestContext framework which loads the XML files of a
+ * {@link ContextConfiguration} into a {@link MockitoApplicationContext} instead of a real Spring container. A suite
+ * using Springockito switches by changing the loader only:
+ *
+ * <pre>
+ * &#064;RunWith(SpringJUnit4ClassRunner.class)
+ * &#064;ContextConfiguration(loader = TestApplicationContextLoader.class, locations = &quot;context.xml&quot;)
+ * </pre>
+ *
+ * The files are loaded by {@link TestApplicationContext#loadBeans(String)}, so only beans, mocks and properties are
+ * supported. Test instances get their {@link org.springframework.beans.factory.annotation.Autowired} fields and
+ * setters injected by the test context, and {@link ApplicationContextAware} test instances get the application
+ * context.
+ *
+ * Spring keeps every loaded application context for the rest of the JVM. So the application contexts handed out here
+ * are mere handles, and the test contexts behind them are kept in a cache of at most
+ * {@value #DEFAULT_CACHE_SIZE} entries (or as many as the system property {@value #CACHE_SIZE_PROPERTY} says), the
+ * least recently used are closed first, and all may be collected if memory gets low. A handle whose test context is
+ * gone loads its files again, which gives new beans and mocks to the tests using it from then on.
+ *
+ * @author bjoern
+ */
+public class TestApplicationContextLoader extends AbstractContextLoader {
+
+	/**
+	 * Name of the system property giving the number of test contexts to keep.
+	 */
+	public static final String CACHE_SIZE_PROPERTY = "junit-spring.context-cache.size";
+
+	/**
+	 * The number of test contexts kept if {@value #CACHE_SIZE_PROPERTY} is not set.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 32;
+
+	/**
+	 * The test contexts by the key of their configuration, the least recently used first.
+	 */
+	private static final Map<String, SoftReference<TestApplicationContext>> CONTEXTS = new LinkedHashMap<String, SoftReference<TestApplicationContext>>(16, 0.75f, true);
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.test.context.support.AbstractContextLoader#getResourceSuffix()
+	 */
+	@Override
+	protected String getResourceSuffix() {
+		return "-context.xml";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.test.context.ContextLoader#loadContext(java.lang.String[])
+	 */
+	@Override
+	public ApplicationContext loadContext(String... locations) {
+		LoadedApplicationContext result = new LoadedApplicationContext(locations);
+		// Load right away, so that an error in a file fails the test class, not its first lookup.
+		result.testApplicationContext();
+		return result;
+	}
+
+	/**
+	 * Give the test context of the given configuration, loading it if it is not cached (anymore).
+	 *
+	 * @param key
+	 *            The key of the configuration.
+	 * @param locations
+	 *            The files of the configuration.
+	 * @return The test context.
+	 */
+	private static TestApplicationContext testApplicationContext(String key, String[] locations) {
+		synchronized (CONTEXTS) {
+			SoftReference<TestApplicationContext> reference = CONTEXTS.get(key);
+			TestApplicationContext result = reference == null ? null : reference.get();
+			if (result == null) {
+				result = new MockitoApplicationContext();
+				for (String location : locations) {
+					result.loadBeans(location);
+				}
+				CONTEXTS.put(key, new SoftReference<TestApplicationContext>(result));
+				evictLeastRecentlyUsed();
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Close the least recently used test contexts beyond the size of the cache, and forget those already collected.
+	 * Must be called holding the lock of {@link #CONTEXTS}.
+	 */
+	private static void evictLeastRecentlyUsed() {
+		int excess = CONTEXTS.size() - Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE).intValue();
+		for (Iterator<SoftReference<TestApplicationContext>> i = CONTEXTS.values().iterator(); i.hasNext();) {
+			TestApplicationContext context = i.next().get();
+			if (context == null) {
+				i.remove();
+				excess--;
+			} else if (excess > 0) {
+				i.remove();
+				excess--;
+				context.close();
+			}
+		}
+	}
+
+	/**
+	 * Close the test context of the given configuration and forget it.
+	 *
+	 * @param key
+	 *            The key of the configuration.
+	 */
+	private static void close(String key) {
+		SoftReference<TestApplicationContext> reference;
+		synchronized (CONTEXTS) {
+			reference = CONTEXTS.remove(key);
+		}
+		TestApplicationContext context = reference == null ? null : reference.get();
+		if (context != null) {
+			context.close();
+		}
+	}
+
+	/**
+	 * The application context handed to Spring, whose beans are looked up in the cached test context. It is never
+	 * refreshed, as there is nothing to refresh.
+	 */
+	private static final class LoadedApplicationContext extends GenericApplicationContext {
+
+		/**
+		 * The key of the configuration.
+		 */
+		private final String key;
+
+		/**
+		 * The files of the configuration.
+		 */
+		private final String[] locations;
+
+		/**
+		 * Constructor of this class.
+		 *
+		 * @param locations
+		 *            The files of the configuration.
+		 */
+		LoadedApplicationContext(String[] locations) {
+			super(new LoadedBeanFactory());
+			((LoadedBeanFactory) getBeanFactory()).applicationContext = this;
+			this.key = Arrays.toString(locations);
+			this.locations = locations.clone();
+		}
+
+		/**
+		 * @return The test context with the beans, loaded again if it was evicted from the cache.
+		 */
+		TestApplicationContext testApplicationContext() {
+			return TestApplicationContextLoader.testApplicationContext(key, locations);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.context.support.AbstractApplicationContext#close()
+		 */
+		@Override
+		public void close() {
+			TestApplicationContextLoader.close(key);
+			super.close();
+		}
+	}
+
+	/**
+	 * Bean factory which looks up every bean in the test context of its application context, and injects test
+	 * instances by it.
+	 */
+	private static final class LoadedBeanFactory extends DefaultListableBeanFactory {
+
+		/**
+		 * The application context of this factory.
+		 */
+		private LoadedApplicationContext applicationContext;
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.beans.factory.support.DefaultListableBeanFactory#getBean(java.lang.Class)
+		 */
+		@Override
+		public <T> T getBean(Class<T> requiredType) throws BeansException {
+			return applicationContext.testApplicationContext().getInstance(requiredType);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.beans.factory.support.AbstractBeanFactory#getBean(java.lang.String)
+		 */
+		@Override
+		public Object getBean(String name) throws BeansException {
+			return applicationContext.testApplicationContext().getInstance(name);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.beans.factory.support.AbstractBeanFactory#getBean(java.lang.String,
+		 * java.lang.Class)
+		 */
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> T getBean(String name, Class<T> requiredType) throws BeansException {
+			Object result = getBean(name);
+			if (requiredType != null && !requiredType.isInstance(result)) {
+				throw new BeanNotOfRequiredTypeException(name, requiredType, result.getClass());
+			}
+			return (T) result;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.beans.factory.support.AbstractBeanFactory#containsBean(java.lang.String)
+		 */
+		@Override
+		public boolean containsBean(String name) {
+			try {
+				getBean(name);
+				return true;
+			} catch (NoSuchBeanDefinitionException e) {
+				return false;
+			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.beans.factory.support.AbstractAutowireCapableBeanFactory#autowireBeanProperties(java.
+		 * lang.Object, int, boolean)
+		 */
+		@Override
+		public void autowireBeanProperties(Object existingBean, int autowireMode, boolean dependencyCheck) {
+			applicationContext.testApplicationContext().processInjection(existingBean);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.beans.factory.support.AbstractAutowireCapableBeanFactory#autowireBean(java.lang.Object)
+		 */
+		@Override
+		public void autowireBean(Object existingBean) {
+			applicationContext.testApplicationContext().processInjection(existingBean);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.springframework.beans.factory.support.AbstractAutowireCapableBeanFactory#initializeBean(java.lang.
+		 * Object, java.lang.String)
+		 */
+		@Override
+		public Object initializeBean(Object existingBean, String beanName) {
+			if (existingBean instanceof ApplicationContextAware) {
+				((ApplicationContextAware) existingBean).setApplicationContext(applicationContext);
+			}
+			return existingBean;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.cellent.spock;
+
+import org.mockito.Mockito
+
+import spock.lang.Shared
+import spock.lang.Specification
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext
+import com.cellent.spring.utils.junit_spring.spock.SharedTestApplicationContext
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithFieldAutowiredBean
+import com.cellent.spring.utils.junit_spring.support.MyDelegate
+
+/**
+ * A base context set up once per feature, whose mocks all iterations of the feature reuse.
+ * 
+ * @author bjoern
+ */
+class SharedTestApplicationContextSetupTest extends Specification {
+
+	/** Context of the current iteration. */
+	@SharedTestApplicationContext(setup = "setUpBase")
+	TestApplicationContext testApplicationContext
+
+	/** How often a base context was set up. */
+	@Shared
+	int setUps
+
+	/** The mock the base context created for the class under test. */
+	@Shared
+	MyDelegate baseDelegate
+
+	/**
+	 * Let the base context create the mocks of the class under test.
+	 */
+	def setUpBase(TestApplicationContext base) {
+		setUps++
+		baseDelegate = base.createInstance(MyBeanWithFieldAutowiredBean.class).getDelegate()
+	}
+
+	def "Every iteration gets the mock of the base context"() {
+		when: "create the class under test"
+		MyBeanWithFieldAutowiredBean myBean = testApplicationContext.createInstance(MyBeanWithFieldAutowiredBean.class)
+		then: "the base context was set up once for the feature and its mock is injected"
+		setUps == 1
+		myBean.getDelegate().is(baseDelegate)
+		where:
+		i << (1..3)
+	}
+
+	def "Another feature gets another base context"() {
+		expect: "the base context of this feature was set up, too"
+		setUps == 2
+		testApplicationContext.getInstance(MyDelegate.class).is(baseDelegate)
+	}
+
+	def "Stubbing of a mock of the base context does not reach the next iteration"() {
+		when: "stub the mock of the base context in the first iteration only"
+		MyDelegate mock = testApplicationContext.getInstance(MyDelegate.class)
+		if (i == 1) {
+			Mockito.when(mock.toString()).thenReturn("stubbed")
+		}
+		then: "it is the mock of the base context, stubbed in the first iteration only"
+		mock.is(baseDelegate)
+		(mock.toString() == "stubbed") == (i == 1)
+		where:
+		i << (1..3)
+	}
+}
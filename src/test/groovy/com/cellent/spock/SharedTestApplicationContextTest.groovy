@@ -0,0 +1,52 @@
+package com.cellent.spock;
+
+import spock.lang.Specification
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext
+import com.cellent.spring.utils.junit_spring.spock.SharedTestApplicationContext
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithFieldAutowiredBean
+import com.cellent.spring.utils.junit_spring.support.MyDelegate
+
+/**
+ * Data-driven features with one base context per feature and a fork of it for every iteration.
+ * 
+ * @author bjoern
+ */
+class SharedTestApplicationContextTest extends Specification {
+
+	/** Context of the current iteration. */
+	@SharedTestApplicationContext
+	TestApplicationContext testApplicationContext
+
+	/** Mock of the former iteration. */
+	static MyDelegate formerMock
+
+	def "Every iteration gets a fresh context with a reset mock"() {
+		when: "create the class under test and stub its delegate"
+		MyBeanWithFieldAutowiredBean myBean = testApplicationContext.createInstance(MyBeanWithFieldAutowiredBean.class)
+		def mock = testApplicationContext.getInstance(MyDelegate.class)
+		then: "the delegate is the pooled mock of the former iteration, without its stubbing"
+		myBean.getDelegate() == mock
+		formerMock == null || formerMock.is(mock)
+		mock.toString() != "stubbed"
+		cleanup:
+		org.mockito.Mockito.when(mock.toString()).thenReturn("stubbed")
+		formerMock = mock
+		where:
+		i << (1..5)
+	}
+
+	def "Spock mocks registered in an iteration stay in that iteration"() {
+		setup: "register a Spock mock in some iterations"
+		MyDelegate registeredDelegate = Mock(MyDelegate)
+		if (register) {
+			testApplicationContext.registerInstance(registeredDelegate)
+		}
+		when: "create the class under test"
+		MyBeanWithFieldAutowiredBean myBean = testApplicationContext.createInstance(MyBeanWithFieldAutowiredBean.class)
+		then: "the registered mock is injected only where it was registered"
+		(myBean.getDelegate() == registeredDelegate) == register
+		where:
+		register << [true, false, true, false]
+	}
+}
@@ -3,6 +3,15 @@ package com.cellent.spring.utils.junit_spring;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.context.ApplicationContextAware;
@@ -32,6 +41,12 @@ public class ApplicationContextAwareTest {
 		testApplicationContext = new MockitoApplicationContext();
 	}
 
+	/** Unbind the class under test from the thread. */
+	@After
+	public void cleanUp() {
+		testApplicationContext.close();
+	}
+
 	/**
 	 * Test scenario in which another Bean is not injected but rather initialized in the constructor via
 	 * {@link ApplicationContextAware}.
@@ -80,4 +95,107 @@ public class ApplicationContextAwareTest {
 		assertEquals(instance, bean.getDelegateInstance());
 		assertEquals(instance, testApplicationContext.getInstance(MyDelegate.class));
 	}
+
+	/**
+	 * After initializing the {@link ApplicationContextAware}, createInstance still creates real instances.
+	 */
+	@Test
+	public void testCreateInstanceAfterInit() {
+		testApplicationContext.initApplicationContextHolder(MyApplicationContextHolder.class);
+		MyBeanUsingAppContextAwareLazily instance = testApplicationContext
+				.createInstance(MyBeanUsingAppContextAwareLazily.class);
+		assertEquals(MyBeanUsingAppContextAwareLazily.class, instance.getClass());
+		assertTrue(instance.getMyDelegate() == testApplicationContext.getInstance(MyDelegate.class));
+	}
+
+	/**
+	 * Two contexts using the same static holder at the same time on different threads each see their own delegate.
+	 */
+	@Test
+	public void testParallelContextsSeeOwnBeans() throws InterruptedException {
+		final CountDownLatch bothInitialized = new CountDownLatch(2);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread[] threads = new Thread[2];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					TestApplicationContext context = new MockitoApplicationContext();
+					try {
+						MyDelegate delegate = mock(MyDelegate.class);
+						context.registerInstance(delegate);
+						context.initApplicationContextHolder(MyApplicationContextHolder.class);
+						bothInitialized.countDown();
+						bothInitialized.await();
+						assertTrue(MyApplicationContextHolder.getMyDelegate() == delegate);
+					} catch (Throwable e) {
+						failure.set(e);
+					} finally {
+						context.close();
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull(String.valueOf(failure.get()), failure.get());
+	}
+
+	/**
+	 * Threads started after binding, e.g. of pools, do not see the context unless a task is bound to it; the pool thread
+	 * is unbound again after the task.
+	 */
+	@Test
+	public void testBoundTaskOnExecutor() throws Exception {
+		final MyDelegate delegate = mock(MyDelegate.class);
+		testApplicationContext.registerInstance(delegate);
+		testApplicationContext.initApplicationContextHolder(MyApplicationContextHolder.class);
+		Callable<MyDelegate> lookUp = new Callable<MyDelegate>() {
+			@Override
+			public MyDelegate call() {
+				return MyApplicationContextHolder.getMyDelegate();
+			}
+		};
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			assertLookUpFails(executor.submit(lookUp));
+			assertTrue(executor.submit(testApplicationContext.inContext(lookUp)).get() == delegate);
+			final AtomicReference<MyDelegate> result = new AtomicReference<MyDelegate>();
+			executor.submit(testApplicationContext.inContext(new Runnable() {
+				@Override
+				public void run() {
+					result.set(MyApplicationContextHolder.getMyDelegate());
+				}
+			})).get();
+			assertTrue(result.get() == delegate);
+			assertLookUpFails(executor.submit(lookUp));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * @param lookUp
+	 *            A lookup in the static holder on another thread.
+	 */
+	private static void assertLookUpFails(Future<MyDelegate> lookUp) throws InterruptedException {
+		try {
+			lookUp.get();
+			fail("No context expected on the other thread.");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	/**
+	 * After closing, the context is not bound to the thread any more.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testUnboundAfterClose() {
+		testApplicationContext.initApplicationContextHolder(MyApplicationContextHolder.class);
+		testApplicationContext.close();
+		MyApplicationContextHolder.getMyDelegate();
+	}
 }
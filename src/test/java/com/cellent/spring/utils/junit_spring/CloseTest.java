@@ -0,0 +1,112 @@
+package com.cellent.spring.utils.junit_spring;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.support.MyApplicationContextHolder;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+import com.cellent.spring.utils.junit_spring.support.MyDelegateImplementation;
+import com.cellent.spring.utils.junit_spring.support.MyDisposableBean;
+
+/**
+ * Closing a context destroys its beans and lets go of everything it knows, even if static holders are still around.
+ * 
+ * @author bjoern
+ */
+public class CloseTest {
+
+	/**
+	 * Created {@link org.springframework.beans.factory.DisposableBean}s are destroyed, once.
+	 */
+	@Test
+	public void testDisposableBeanDestroyed() {
+		MockitoApplicationContext context = new MockitoApplicationContext();
+		MyDisposableBean bean = context.createInstance(MyDisposableBean.class);
+		assertFalse(bean.isDestroyed());
+		context.close();
+		assertTrue(bean.isDestroyed());
+		context.close();
+	}
+
+	/**
+	 * The mocks forget their invocations.
+	 */
+	@Test
+	public void testMocksReset() {
+		MockitoApplicationContext context = new MockitoApplicationContext();
+		MyDelegate delegate = context.getInstance(MyDelegate.class);
+		delegate.executeVoidCall();
+		context.close();
+		verify(delegate, never()).executeVoidCall();
+	}
+
+	/**
+	 * Registered instances are not reachable through the closed context any more.
+	 * 
+	 * @throws InterruptedException
+	 *             Not expected.
+	 */
+	@Test
+	public void testRegisteredInstanceReleased() throws InterruptedException {
+		MockitoApplicationContext context = new MockitoApplicationContext();
+		MyDelegate delegate = new MyDelegateImplementation();
+		context.registerInstance("delegate", delegate);
+		context.setValue("value", delegate);
+		context.getInstance(MyDelegate.class);
+		WeakReference<MyDelegate> reference = new WeakReference<MyDelegate>(delegate);
+		delegate = null;
+		context.close();
+		for (int i = 0; i < 10 && reference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(reference.get());
+	}
+
+	/**
+	 * A static holder does not find the closed context any more, neither on this thread nor on a thread started while
+	 * the context was bound.
+	 * 
+	 * @throws InterruptedException
+	 *             Not expected.
+	 */
+	@Test
+	public void testDetachedFromHolder() throws InterruptedException {
+		MockitoApplicationContext context = new MockitoApplicationContext();
+		context.initApplicationContextHolder(MyApplicationContextHolder.class);
+		assertNotNull(MyApplicationContextHolder.getMyDelegate());
+		final Object lock = new Object();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread thread;
+		synchronized (lock) {
+			thread = new Thread() {
+				@Override
+				public void run() {
+					synchronized (lock) {
+						try {
+							MyApplicationContextHolder.getMyDelegate();
+						} catch (Throwable e) {
+							failure.set(e);
+						}
+					}
+				}
+			};
+			thread.start();
+			context.close();
+		}
+		thread.join();
+		assertTrue(failure.get() instanceof IllegalStateException);
+		try {
+			MyApplicationContextHolder.getMyDelegate();
+			fail("The closed context must not be found.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.cellent.spring.utils.junit_spring;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithConstructorAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithFieldAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+
+/**
+ * Stress test for using one context from several threads at the same time, as happens when test methods run in
+ * parallel.
+ * 
+ * @author bjoern
+ */
+public class ConcurrentAccessTest {
+
+	/** Number of threads working on the same context at the same time. */
+	private static final int THREADS = 16;
+
+	/** Number of fresh contexts to run the scenario on. */
+	private static final int ROUNDS = 50;
+
+	/** Runs the threads. */
+	private ExecutorService executor;
+
+	/** Init thread pool. */
+	@Before
+	public void init() {
+		executor = Executors.newFixedThreadPool(THREADS);
+	}
+
+	/** Shut thread pool down. */
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * All threads create beans and ask for the mock at the same moment. Every thread must see exactly the one mock which
+	 * has been injected into all beans.
+	 * 
+	 * @throws Exception
+	 *             If a thread fails.
+	 */
+	@Test
+	public void testInjectedInstanceIsIdenticalUnderContention() throws Exception {
+		for (int round = 0; round < ROUNDS; round++) {
+			final TestApplicationContext testApplicationContext = new MockitoApplicationContext();
+			final CountDownLatch start = new CountDownLatch(1);
+			List<Future<MyDelegate[]>> results = new ArrayList<Future<MyDelegate[]>>();
+			for (int i = 0; i < THREADS; i++) {
+				final boolean getInstanceFirst = i % 2 == 0;
+				results.add(executor.submit(new Callable<MyDelegate[]>() {
+					@Override
+					public MyDelegate[] call() throws Exception {
+						start.await();
+						MyDelegate fromContext = null;
+						if (getInstanceFirst) {
+							fromContext = testApplicationContext.getInstance(MyDelegate.class);
+						}
+						MyDelegate fieldInjected = testApplicationContext.createInstance(
+								MyBeanWithFieldAutowiredBean.class).getDelegate();
+						MyDelegate constructorInjected = testApplicationContext.createInstance(
+								MyBeanWithConstructorAutowiredBean.class).getDelegate();
+						if (!getInstanceFirst) {
+							fromContext = testApplicationContext.getInstance(MyDelegate.class);
+						}
+						return new MyDelegate[] { fromContext, fieldInjected, constructorInjected };
+					}
+				}));
+			}
+			start.countDown();
+			MyDelegate expected = testApplicationContext.getInstance(MyDelegate.class);
+			for (Future<MyDelegate[]> result : results) {
+				for (MyDelegate delegate : result.get(10, TimeUnit.SECONDS)) {
+					// Has to be exactly this instance, therefore comparison via ==
+					assertTrue(expected == delegate);
+				}
+			}
+		}
+	}
+}
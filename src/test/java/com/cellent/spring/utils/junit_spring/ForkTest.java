@@ -0,0 +1,140 @@
+package com.cellent.spring.utils.junit_spring;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithFieldAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithValueFieldAndSetterInjected;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate2;
+
+/**
+ * A forked context sees the fixture of its parent, but nothing done in the fork is visible to the parent or to other
+ * forks.
+ * 
+ * @author bjoern
+ */
+public class ForkTest {
+
+	/** Shared fixture. */
+	private TestApplicationContext parent;
+
+	/** Registered in the shared fixture. */
+	private MyDelegate registeredDelegate;
+
+	/** Init the shared fixture. */
+	@Before
+	public void init() {
+		parent = new MockitoApplicationContext();
+		registeredDelegate = mock(MyDelegate.class);
+		parent.registerInstance(registeredDelegate);
+		parent.registerInstance("namedBean", registeredDelegate);
+		parent.setValue("fieldInjectedValue", "fromParent");
+	}
+
+	/**
+	 * Registrations and values of the parent are used in the fork.
+	 */
+	@Test
+	public void testForkSeesParent() {
+		TestApplicationContext child = parent.fork();
+		assertTrue(child instanceof MockitoApplicationContext);
+		assertTrue(registeredDelegate == child.createInstance(MyBeanWithFieldAutowiredBean.class).getDelegate());
+		assertTrue(registeredDelegate == child.getInstance(MyDelegate.class));
+		assertTrue(registeredDelegate == child.getInstance("namedBean"));
+		assertEquals("fromParent", child.getValue("fieldInjectedValue"));
+	}
+
+	/**
+	 * Registrations and values of the fork override those of the parent, without changing the parent.
+	 */
+	@Test
+	public void testForkOverridesParent() {
+		TestApplicationContext child = parent.fork();
+		MyDelegate childDelegate = mock(MyDelegate.class);
+		child.registerInstance(childDelegate);
+		child.setValue("fieldInjectedValue", null);
+		assertTrue(childDelegate == child.createInstance(MyBeanWithFieldAutowiredBean.class).getDelegate());
+		assertNull(child.createInstance(MyBeanWithValueFieldAndSetterInjected.class).getFieldInjectedValue());
+		assertTrue(registeredDelegate == parent.getInstance(MyDelegate.class));
+		assertEquals("fromParent", parent.getValue("fieldInjectedValue"));
+	}
+
+	/**
+	 * Mocks created in a fork stay in that fork.
+	 */
+	@Test
+	public void testMocksCreatedInForkAreIsolated() {
+		TestApplicationContext first = parent.fork();
+		TestApplicationContext second = parent.fork();
+		MyDelegate2 firstMock = first.getInstance(MyDelegate2.class);
+		assertTrue(firstMock == first.getInstance(MyDelegate2.class));
+		assertNotSame(firstMock, second.getInstance(MyDelegate2.class));
+		assertNotSame(firstMock, parent.getInstance(MyDelegate2.class));
+	}
+
+	/**
+	 * Beans registered by name in a fork are not known to the parent.
+	 */
+	@Test(expected = NoSuchBeanDefinitionException.class)
+	public void testNamedBeanOfForkNotInParent() {
+		TestApplicationContext child = parent.fork();
+		child.registerInstance("childBean", mock(MyDelegate.class));
+		assertNotNull(child.getInstance("childBean"));
+		parent.getInstance("childBean");
+	}
+
+	/**
+	 * A fork of a fork sees everything of both ancestors.
+	 */
+	@Test
+	public void testForkOfFork() {
+		TestApplicationContext child = parent.fork();
+		child.setValue("setterInjectedValue", "fromChild");
+		TestApplicationContext grandChild = child.fork();
+		MyBeanWithValueFieldAndSetterInjected bean = grandChild
+				.createInstance(MyBeanWithValueFieldAndSetterInjected.class);
+		assertEquals("fromParent", bean.getFieldInjectedValue());
+		assertEquals("fromChild", bean.getSetterInjectedValue());
+	}
+
+	/**
+	 * A fork with own mocks creates them also for the types its parent mocked, but uses what the parent registered.
+	 */
+	@Test
+	public void testForkWithOwnMocks() {
+		MyDelegate2 parentMock = parent.getInstance(MyDelegate2.class);
+		MockitoApplicationContext child = (MockitoApplicationContext) parent.fork();
+		child.setOwnMocks(true);
+		MyDelegate2 childMock = child.getInstance(MyDelegate2.class);
+		assertNotSame(parentMock, childMock);
+		assertSame(childMock, child.getInstance(MyDelegate2.class));
+		assertSame(parentMock, parent.getInstance(MyDelegate2.class));
+		assertSame(registeredDelegate, child.getInstance(MyDelegate.class));
+		assertSame(childMock, child.fork().getInstance(MyDelegate2.class));
+	}
+
+	/**
+	 * Values and named beans set in the parent after forking are seen, instances of a type only until the child has
+	 * needed that type.
+	 */
+	@Test
+	public void testChangesOfParentAfterFork() {
+		TestApplicationContext child = parent.fork();
+		MyDelegate2 childMock = child.getInstance(MyDelegate2.class);
+		MyDelegate2 registeredLater = mock(MyDelegate2.class);
+		parent.registerInstance(registeredLater);
+		parent.registerInstance("laterBean", registeredLater);
+		parent.setValue("fieldInjectedValue", "changed");
+		assertEquals("changed", child.getValue("fieldInjectedValue"));
+		assertSame(registeredLater, child.getInstance("laterBean"));
+		assertSame(childMock, child.getInstance(MyDelegate2.class));
+		assertSame(registeredLater, parent.fork().getInstance(MyDelegate2.class));
+	}
+}
@@ -0,0 +1,59 @@
+package com.cellent.spring.utils.junit_spring;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cellent.spring.utils.junit_spring.api.BeanInjector;
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithInjector;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithInjector_Injector;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate2;
+
+/**
+ * If a {@link BeanInjector} exists for a class, the context uses it instead of reflection.
+ * 
+ * @author bjoern
+ */
+public class GeneratedInjectorTest {
+
+	/** Class under Test. */
+	private TestApplicationContext testApplicationContext;
+
+	/** Init Class under Test. */
+	@Before
+	public void init() {
+		testApplicationContext = new MockitoApplicationContext();
+		MyBeanWithInjector_Injector.instancesCreated = 0;
+		MyBeanWithInjector_Injector.instancesInjected = 0;
+	}
+
+	/**
+	 * createInstance instantiates and injects by the injector, with the same instances as reflection would use.
+	 */
+	@Test
+	public void testCreateInstanceUsesInjector() {
+		testApplicationContext.setValue("injectorValue", "injected");
+		MyBeanWithInjector bean = testApplicationContext.createInstance(MyBeanWithInjector.class);
+		assertEquals(1, MyBeanWithInjector_Injector.instancesCreated);
+		assertEquals(1, MyBeanWithInjector_Injector.instancesInjected);
+		assertTrue(bean.getConstructorDelegate() == testApplicationContext.getInstance(MyDelegate.class));
+		assertTrue(bean.getFieldDelegate() == testApplicationContext.getInstance(MyDelegate2.class));
+		assertEquals("injected", bean.getValue());
+	}
+
+	/**
+	 * processInjection on an instance created elsewhere uses the injector as well.
+	 */
+	@Test
+	public void testProcessInjectionUsesInjector() {
+		MyBeanWithInjector bean = new MyBeanWithInjector(null);
+		testApplicationContext.processInjection(bean);
+		assertEquals(0, MyBeanWithInjector_Injector.instancesCreated);
+		assertEquals(1, MyBeanWithInjector_Injector.instancesInjected);
+		assertTrue(bean.getFieldDelegate() == testApplicationContext.getInstance(MyDelegate2.class));
+	}
+}
@@ -0,0 +1,182 @@
+package com.cellent.spring.utils.junit_spring;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cellent.spring.utils.junit_spring.api.ContextOperation;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.impl.OperationStatisticsCollector;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithConstructorAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithFieldAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithInheritedInjection;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate2;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate3;
+import com.cellent.spring.utils.junit_spring.support.MyDelegateImplementation;
+
+/**
+ * With lazy mocks, mocks are only created for dependencies which are used, and beans still end up with exactly the
+ * mocks the context gives out.
+ * 
+ * @author bjoern
+ */
+public class LazyMocksTest {
+
+	/** Class under Test. */
+	private MockitoApplicationContext testApplicationContext;
+
+	/** Counts the mocks created. */
+	private OperationStatisticsCollector collector;
+
+	/** Init Class under Test. */
+	@Before
+	public void init() {
+		testApplicationContext = new MockitoApplicationContext();
+		testApplicationContext.setLazyMocks(true);
+		collector = new OperationStatisticsCollector();
+		testApplicationContext.addListener(collector);
+	}
+
+	/**
+	 * @return The number of mocks created so far.
+	 */
+	private long mocksCreated() {
+		return collector.getStatistics(ContextOperation.MOCK_CREATION).getCount();
+	}
+
+	/**
+	 * The field of the bean, read before the mock is created, holds exactly the mock the context gives out.
+	 */
+	@Test
+	public void testGetMockAfterAutowiring() {
+		MyBeanWithFieldAutowiredBean bean = testApplicationContext.createInstance(MyBeanWithFieldAutowiredBean.class);
+		MyDelegate delegate = bean.getDelegate();
+		assertEquals(0, mocksCreated());
+		MyDelegate mock = testApplicationContext.getInstance(MyDelegate.class);
+		assertEquals(1, mocksCreated());
+		// Has to be exactly this instance, therefore comparison via ==
+		assertTrue(delegate == mock);
+	}
+
+	/**
+	 * What a bean holds before the mock is created can be stubbed and verified, and the context gives it out afterwards.
+	 */
+	@Test
+	public void testStubAndVerifyBeforeUse() {
+		MyBeanWithFieldAutowiredBean bean = testApplicationContext.createInstance(MyBeanWithFieldAutowiredBean.class);
+		MyDelegate delegate = bean.getDelegate();
+		verify(delegate, never()).executeVoidCall();
+		doThrow(new IllegalStateException()).when(delegate).executeVoidCall();
+		try {
+			bean.getDelegate().executeVoidCall();
+			fail("Stubbing is lost");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		verify(delegate).executeVoidCall();
+		assertTrue(testApplicationContext.getInstance(MyDelegate.class) == delegate);
+		assertEquals(1, mocksCreated());
+	}
+
+	/**
+	 * Reset by the context, a placeholder forgets its invocations like any mock.
+	 */
+	@Test
+	public void testResetMocks() {
+		MyDelegate delegate = testApplicationContext.createInstance(MyBeanWithFieldAutowiredBean.class).getDelegate();
+		delegate.executeVoidCall();
+		testApplicationContext.resetMocks();
+		verify(delegate, never()).executeVoidCall();
+	}
+
+	/**
+	 * Forks get the placeholders of beans of their parent as their mocks.
+	 */
+	@Test
+	public void testForkSeesPlaceholderOfParent() {
+		MyBeanWithFieldAutowiredBean bean = testApplicationContext.createInstance(MyBeanWithFieldAutowiredBean.class);
+		assertTrue(testApplicationContext.fork().getInstance(MyDelegate.class) == bean.getDelegate());
+		assertEquals(1, mocksCreated());
+	}
+
+	/**
+	 * Only the dependencies which are used get a mock; invocations before asking for the mock are recorded by it.
+	 */
+	@Test
+	public void testOnlyUsedDependenciesMocked() {
+		MyBeanWithInheritedInjection bean = testApplicationContext.createInstance(MyBeanWithInheritedInjection.class);
+		bean.getDelegate().executeVoidCall();
+		assertEquals(1, mocksCreated());
+		MyDelegate mock = testApplicationContext.getInstance(MyDelegate.class);
+		verify(mock).executeVoidCall();
+		assertTrue(bean.getDelegate() == mock);
+		MyDelegate2 mock2 = testApplicationContext.getInstance(MyDelegate2.class);
+		MyDelegate3 mock3 = testApplicationContext.getInstance(MyDelegate3.class);
+		assertTrue(bean.getBaseDelegate() == mock2);
+		assertTrue(bean.getTypedDelegate() == mock3);
+		assertEquals(3, mocksCreated());
+	}
+
+	/**
+	 * Constructor parameters are replaced in the fields they were stored in.
+	 */
+	@Test
+	public void testConstructorInjection() {
+		MyBeanWithConstructorAutowiredBean bean = testApplicationContext
+				.createInstance(MyBeanWithConstructorAutowiredBean.class);
+		assertEquals(0, mocksCreated());
+		MyDelegate mock = testApplicationContext.getInstance(MyDelegate.class);
+		assertTrue(bean.getDelegate() == mock);
+	}
+
+	/**
+	 * Registered instances are injected directly.
+	 */
+	@Test
+	public void testRegisteredInstanceInjected() {
+		MyDelegateImplementation delegate = new MyDelegateImplementation();
+		testApplicationContext.registerInstance(delegate);
+		assertTrue(testApplicationContext.createInstance(MyBeanWithFieldAutowiredBean.class).getDelegate() == delegate);
+		assertEquals(0, mocksCreated());
+	}
+
+	/**
+	 * A placeholder is the same for all beans, and so is its mock.
+	 */
+	@Test
+	public void testSharedBetweenBeans() {
+		MyBeanWithFieldAutowiredBean first = testApplicationContext.createInstance(MyBeanWithFieldAutowiredBean.class);
+		MyBeanWithConstructorAutowiredBean second = testApplicationContext
+				.createInstance(MyBeanWithConstructorAutowiredBean.class);
+		assertTrue(first.getDelegate() == second.getDelegate());
+		first.getDelegate().executeVoidCall();
+		MyDelegate mock = testApplicationContext.getInstance(MyDelegate.class);
+		assertTrue(first.getDelegate() == mock);
+		assertTrue(second.getDelegate() == mock);
+		assertEquals(1, mocksCreated());
+	}
+
+	/**
+	 * equals, hashCode and toString of a placeholder do not create the mock, and it works in hashed collections.
+	 */
+	@Test
+	public void testObjectMethodsDoNotCreateMock() {
+		MyDelegate placeholder = testApplicationContext.createInstance(MyBeanWithFieldAutowiredBean.class)
+				.getDelegate();
+		Set<MyDelegate> set = new HashSet<MyDelegate>();
+		set.add(placeholder);
+		assertTrue(set.contains(placeholder));
+		assertTrue(placeholder.equals(placeholder));
+		assertFalse(placeholder.equals(mock(MyDelegate.class)));
+		assertTrue(placeholder.toString().contains(MyDelegate.class.getSimpleName()));
+		assertEquals(0, mocksCreated());
+		testApplicationContext.getInstance(MyDelegate.class);
+		assertTrue(set.contains(placeholder));
+	}
+}
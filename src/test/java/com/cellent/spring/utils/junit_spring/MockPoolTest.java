@@ -0,0 +1,88 @@
+package com.cellent.spring.utils.junit_spring;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Test;
+
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithFieldAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+
+/**
+ * A pooling context reuses the mocks of closed contexts, without anything of the former test leaking into the next.
+ * 
+ * @author bjoern
+ */
+public class MockPoolTest {
+
+	/**
+	 * Create a context which pools its mocks.
+	 * 
+	 * @return A new context.
+	 */
+	private MockitoApplicationContext createPoolingContext() {
+		MockitoApplicationContext result = new MockitoApplicationContext();
+		result.setPoolMocks(true);
+		return result;
+	}
+
+	/**
+	 * After closing, the next context gets the same mock, but without stubbing and invocations.
+	 */
+	@Test
+	public void testMockReusedAfterClose() {
+		MockitoApplicationContext first = createPoolingContext();
+		MyDelegate firstDelegate = first.createInstance(MyBeanWithFieldAutowiredBean.class).getDelegate();
+		when(firstDelegate.toString()).thenReturn("stubbed");
+		firstDelegate.executeVoidCall();
+		first.close();
+
+		MockitoApplicationContext second = createPoolingContext();
+		MyDelegate secondDelegate = second.createInstance(MyBeanWithFieldAutowiredBean.class).getDelegate();
+		assertSame(firstDelegate, secondDelegate);
+		assertFalse("stubbed".equals(secondDelegate.toString()));
+		verify(secondDelegate, never()).executeVoidCall();
+		second.close();
+	}
+
+	/**
+	 * As long as a context is not closed, its mocks are not handed out to anyone else.
+	 */
+	@Test
+	public void testMockNotReusedBeforeClose() {
+		MockitoApplicationContext first = createPoolingContext();
+		MockitoApplicationContext second = createPoolingContext();
+		assertNotSame(first.getInstance(MyDelegate.class), second.getInstance(MyDelegate.class));
+		first.close();
+		second.close();
+	}
+
+	/**
+	 * Closing twice gives back every mock only once, so two later contexts never share a mock.
+	 */
+	@Test
+	public void testCloseTwice() {
+		MockitoApplicationContext first = createPoolingContext();
+		first.getInstance(MyDelegate.class);
+		first.close();
+		first.close();
+		MockitoApplicationContext second = createPoolingContext();
+		MockitoApplicationContext third = createPoolingContext();
+		assertNotSame(second.getInstance(MyDelegate.class), third.getInstance(MyDelegate.class));
+		second.close();
+		third.close();
+	}
+
+	/**
+	 * A context which does not pool never gets mocks of closed contexts.
+	 */
+	@Test
+	public void testNoPoolingByDefault() {
+		MockitoApplicationContext first = createPoolingContext();
+		MyDelegate firstDelegate = first.getInstance(MyDelegate.class);
+		first.close();
+		MockitoApplicationContext second = new MockitoApplicationContext();
+		assertNotSame(firstDelegate, second.getInstance(MyDelegate.class));
+	}
+}
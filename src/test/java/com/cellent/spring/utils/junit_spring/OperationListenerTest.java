@@ -0,0 +1,98 @@
+package com.cellent.spring.utils.junit_spring;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cellent.spring.utils.junit_spring.api.ContextOperation;
+import com.cellent.spring.utils.junit_spring.api.ContextOperationListener;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.impl.OperationStatistics;
+import com.cellent.spring.utils.junit_spring.impl.OperationStatisticsCollector;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithFieldAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+import com.cellent.spring.utils.junit_spring.support.MyInitializingBean;
+
+/**
+ * Tests for reporting context operations to a {@link ContextOperationListener}.
+ * 
+ * @author bjoern
+ */
+public class OperationListenerTest {
+
+	/** Class under Test. */
+	private MockitoApplicationContext testApplicationContext;
+
+	/** Listener registered at {@link #testApplicationContext}. */
+	private OperationStatisticsCollector collector;
+
+	/** Init Class under Test. */
+	@Before
+	public void init() {
+		testApplicationContext = new MockitoApplicationContext();
+		collector = new OperationStatisticsCollector();
+		testApplicationContext.addListener(collector);
+	}
+
+	/**
+	 * Every operation of creating an {@link org.springframework.beans.factory.InitializingBean} with a mocked delegate
+	 * is reported once.
+	 */
+	@Test
+	public void testAllOperationsReported() {
+		testApplicationContext.createInstance(MyInitializingBean.class);
+		testApplicationContext.getInstance(MyDelegate.class);
+		assertEquals(1, collector.getStatistics(ContextOperation.INSTANTIATION, MyInitializingBean.class).getCount());
+		assertEquals(1, collector.getStatistics(ContextOperation.INJECTION, MyInitializingBean.class).getCount());
+		assertEquals(1, collector.getStatistics(ContextOperation.AFTER_PROPERTIES_SET, MyInitializingBean.class)
+				.getCount());
+		assertEquals(1, collector.getStatistics(ContextOperation.MOCK_CREATION, MyDelegate.class).getCount());
+		assertTrue(collector.getStatistics(ContextOperation.MOCK_CREATION, MyDelegate.class).getTotalNanos() > 0);
+	}
+
+	/**
+	 * A fork reports to the listeners of its parent, a removed listener is not told anything any more.
+	 */
+	@Test
+	public void testForkAndRemove() {
+		testApplicationContext.fork().createInstance(MyBeanWithFieldAutowiredBean.class);
+		assertEquals(1, collector.getStatistics(ContextOperation.INSTANTIATION).getCount());
+		testApplicationContext.removeListener(collector);
+		testApplicationContext.createInstance(MyBeanWithFieldAutowiredBean.class);
+		assertEquals(1, collector.getStatistics(ContextOperation.INSTANTIATION).getCount());
+	}
+
+	/**
+	 * Percentiles are computed by the nearest rank method.
+	 */
+	@Test
+	public void testPercentiles() {
+		for (int i = 100; i >= 1; i--) {
+			collector.operationFinished(ContextOperation.INJECTION, String.class, i);
+		}
+		OperationStatistics statistics = collector.getStatistics(ContextOperation.INJECTION, String.class);
+		assertEquals(100, statistics.getCount());
+		assertEquals(5050, statistics.getTotalNanos());
+		assertEquals(1, statistics.getPercentileNanos(0));
+		assertEquals(50, statistics.getPercentileNanos(50));
+		assertEquals(99, statistics.getPercentileNanos(99));
+		assertEquals(100, statistics.getPercentileNanos(100));
+	}
+
+	/**
+	 * Long durations are kept in buckets, so percentiles are off by less than 1/64 while count and total stay exact.
+	 */
+	@Test
+	public void testPercentilesOfLongDurations() {
+		for (int i = 1; i <= 100000; i++) {
+			collector.operationFinished(ContextOperation.INJECTION, String.class, i * 1000L);
+		}
+		OperationStatistics statistics = collector.getStatistics(ContextOperation.INJECTION);
+		assertEquals(100000, statistics.getCount());
+		assertEquals(1000L * 100000 * 100001 / 2, statistics.getTotalNanos());
+		assertEquals(50000000, statistics.getPercentileNanos(50), 50000000 / 64);
+		assertEquals(99000000, statistics.getPercentileNanos(99), 99000000 / 64);
+		assertEquals(100000000, statistics.getPercentileNanos(100));
+	}
+}
@@ -0,0 +1,75 @@
+package com.cellent.spring.utils.junit_spring;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Value;
+
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithFieldAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithSetterAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithValueFieldAndSetterInjected;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+
+/**
+ * If contexts share their injection metadata, each context still needs to inject its own instances.
+ * 
+ * @author bjoern
+ */
+public class SharedInjectionMetadataTest {
+
+	/**
+	 * Create a context which uses the shared injection metadata.
+	 * 
+	 * @return A new context.
+	 */
+	private MockitoApplicationContext createSharingContext() {
+		MockitoApplicationContext result = new MockitoApplicationContext();
+		result.setShareInjectionMetadata(true);
+		return result;
+	}
+
+	/**
+	 * Field injection in two contexts: each bean needs to get the mock of its own context.
+	 */
+	@Test
+	public void testFieldInjectionIsolated() {
+		MockitoApplicationContext first = createSharingContext();
+		MockitoApplicationContext second = createSharingContext();
+		MyBeanWithFieldAutowiredBean firstBean = first.createInstance(MyBeanWithFieldAutowiredBean.class);
+		MyBeanWithFieldAutowiredBean secondBean = second.createInstance(MyBeanWithFieldAutowiredBean.class);
+		assertTrue(firstBean.getDelegate() == first.getInstance(MyDelegate.class));
+		assertTrue(secondBean.getDelegate() == second.getInstance(MyDelegate.class));
+		assertNotSame(firstBean.getDelegate(), secondBean.getDelegate());
+	}
+
+	/**
+	 * Setter injection in two contexts: each bean needs to get the mock of its own context.
+	 */
+	@Test
+	public void testSetterInjectionIsolated() {
+		MockitoApplicationContext first = createSharingContext();
+		MockitoApplicationContext second = createSharingContext();
+		MyBeanWithSetterAutowiredBean firstBean = first.createInstance(MyBeanWithSetterAutowiredBean.class);
+		MyBeanWithSetterAutowiredBean secondBean = second.createInstance(MyBeanWithSetterAutowiredBean.class);
+		assertTrue(firstBean.getDelegate() == first.getInstance(MyDelegate.class));
+		assertTrue(secondBean.getDelegate() == second.getInstance(MyDelegate.class));
+	}
+
+	/**
+	 * {@link Value}s are taken from the context which does the injection.
+	 */
+	@Test
+	public void testValuesIsolated() {
+		MockitoApplicationContext first = createSharingContext();
+		first.setValue("fieldInjectedValue", "first");
+		MockitoApplicationContext second = createSharingContext();
+		second.setValue("fieldInjectedValue", "second");
+		assertEquals("first", first.createInstance(MyBeanWithValueFieldAndSetterInjected.class)
+				.getFieldInjectedValue());
+		assertEquals("second", second.createInstance(MyBeanWithValueFieldAndSetterInjected.class)
+				.getFieldInjectedValue());
+		assertNull(createSharingContext().createInstance(MyBeanWithValueFieldAndSetterInjected.class)
+				.getFieldInjectedValue());
+	}
+}
@@ -0,0 +1,90 @@
+package com.cellent.spring.utils.junit_spring;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Test;
+import org.mockito.exceptions.misusing.CannotVerifyStubOnlyMock;
+
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate2;
+
+/**
+ * Stub-only mocks answer as stubbed, but cannot be verified, unless their type is excepted.
+ * 
+ * @author bjoern
+ */
+public class StubOnlyTest {
+
+	/**
+	 * Create a context creating stub-only mocks.
+	 * 
+	 * @return A new context.
+	 */
+	private MockitoApplicationContext createStubOnlyContext() {
+		MockitoApplicationContext result = new MockitoApplicationContext();
+		result.setStubOnly(true);
+		return result;
+	}
+
+	/**
+	 * A stub-only mock answers as stubbed.
+	 */
+	@Test
+	public void testStubbing() {
+		MockitoApplicationContext context = createStubOnlyContext();
+		MyDelegate delegate = context.getInstance(MyDelegate.class);
+		when(delegate.toString()).thenReturn("stubbed");
+		assertEquals("stubbed", delegate.toString());
+	}
+
+	/**
+	 * A stub-only mock cannot be verified.
+	 */
+	@Test(expected = CannotVerifyStubOnlyMock.class)
+	public void testNoVerification() {
+		MockitoApplicationContext context = createStubOnlyContext();
+		MyDelegate delegate = context.getInstance(MyDelegate.class);
+		delegate.executeVoidCall();
+		verify(delegate).executeVoidCall();
+	}
+
+	/**
+	 * A type may be excepted, also in a fork.
+	 */
+	@Test
+	public void testVerificationOfExceptedType() {
+		MockitoApplicationContext context = createStubOnlyContext();
+		context.setStubOnly(MyDelegate.class, false);
+		MockitoApplicationContext fork = context.fork();
+		MyDelegate delegate = fork.getInstance(MyDelegate.class);
+		delegate.executeVoidCall();
+		verify(delegate).executeVoidCall();
+		assertTrue(mockingDetails(fork.getInstance(MyDelegate2.class)).isMock());
+	}
+
+	/**
+	 * Pooled stub-only mocks are not handed out as recording mocks and vice versa.
+	 */
+	@Test
+	public void testPooledApart() {
+		MockitoApplicationContext stubOnly = createStubOnlyContext();
+		stubOnly.setPoolMocks(true);
+		MyDelegate stubOnlyDelegate = stubOnly.getInstance(MyDelegate.class);
+		stubOnly.close();
+
+		MockitoApplicationContext recording = new MockitoApplicationContext();
+		recording.setPoolMocks(true);
+		MyDelegate recordingDelegate = recording.getInstance(MyDelegate.class);
+		assertNotSame(stubOnlyDelegate, recordingDelegate);
+		recordingDelegate.executeVoidCall();
+		verify(recordingDelegate).executeVoidCall();
+		recording.close();
+
+		MockitoApplicationContext stubOnlyAgain = createStubOnlyContext();
+		stubOnlyAgain.setPoolMocks(true);
+		assertSame(stubOnlyDelegate, stubOnlyAgain.getInstance(MyDelegate.class));
+		stubOnlyAgain.close();
+	}
+}
@@ -0,0 +1,80 @@
+package com.cellent.spring.utils.junit_spring;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithFieldAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+import com.cellent.spring.utils.junit_spring.support.MyDelegateImplementation;
+
+/**
+ * Registered instances are found by their supertypes and interfaces, not only by their concrete class.
+ * 
+ * @author bjoern
+ */
+public class TypeResolutionTest {
+
+	/** Class under Test. */
+	private TestApplicationContext testApplicationContext;
+
+	/** Init Class under Test. */
+	@Before
+	public void init() {
+		testApplicationContext = new MockitoApplicationContext();
+	}
+
+	/**
+	 * An instance registered by its implementation class is injected where its interface is autowired.
+	 */
+	@Test
+	public void testFindByInterface() {
+		MyDelegateImplementation delegate = new MyDelegateImplementation();
+		testApplicationContext.registerInstance(delegate);
+		MyBeanWithFieldAutowiredBean bean = testApplicationContext.createInstance(MyBeanWithFieldAutowiredBean.class);
+		assertTrue(delegate == bean.getDelegate());
+		assertTrue(delegate == testApplicationContext.getInstance(MyDelegate.class));
+		assertTrue(delegate == testApplicationContext.getInstance(Object.class));
+	}
+
+	/**
+	 * Registering another instance of the same class replaces the former one, so this is not ambiguous.
+	 */
+	@Test
+	public void testReplaceInstanceOfSameClass() {
+		testApplicationContext.registerInstance(new MyDelegateImplementation());
+		MyDelegateImplementation second = new MyDelegateImplementation();
+		testApplicationContext.registerInstance(second);
+		assertTrue(second == testApplicationContext.getInstance(MyDelegate.class));
+	}
+
+	/**
+	 * If two registered instances of different classes match the desired type, none of them may be picked silently.
+	 */
+	@Test(expected = NoSuchBeanDefinitionException.class)
+	public void testAmbiguousType() {
+		testApplicationContext.registerInstance(new MyDelegateImplementation());
+		testApplicationContext.registerInstance(new MyDelegate() {
+			@Override
+			public void executeVoidCall() {
+			}
+		});
+		testApplicationContext.getInstance(MyDelegate.class);
+	}
+
+	/**
+	 * An instance registered for exactly the desired class wins over other candidates.
+	 */
+	@Test
+	public void testExactClassIsNotAmbiguous() {
+		MyDelegateImplementation delegate = new MyDelegateImplementation();
+		testApplicationContext.registerInstance(delegate);
+		testApplicationContext.registerInstance(new MyDelegateImplementation() {
+		});
+		assertTrue(delegate == testApplicationContext.getInstance(MyDelegateImplementation.class));
+	}
+}
@@ -2,6 +2,12 @@ package com.cellent.spring.utils.junit_spring;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,7 +15,10 @@ import org.springframework.beans.factory.annotation.Value;
 
 import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
 import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithConvertedValues;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithExpressionValues;
 import com.cellent.spring.utils.junit_spring.support.MyBeanWithMethodParamInjected;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithPlaceholderValues;
 import com.cellent.spring.utils.junit_spring.support.MyBeanWithValueFieldAndSetterInjected;
 
 /**
@@ -95,4 +104,143 @@ public class ValueInjectionTest {
 				.createInstance(MyBeanWithValueFieldAndSetterInjected.class);
 	}
 
+	/**
+	 * Placeholders are resolved by the keys of a loaded properties file, also in its values, and fall back to their
+	 * defaults.
+	 */
+	@Test
+	public void testPlaceholdersFromPropertiesFile() {
+		testApplicationContext.loadValues("classpath:values.properties");
+		MyBeanWithPlaceholderValues instance = testApplicationContext
+				.createInstance(MyBeanWithPlaceholderValues.class);
+		assertEquals("jdbc:postgresql://localhost:5432/test", instance.getUrl());
+		assertEquals("sa", instance.getUser());
+		assertEquals("sa/secret", instance.getCredentials());
+	}
+
+	/**
+	 * Values set in the test override the file, also in forks, and a value set for the whole placeholder text is
+	 * still found as it is.
+	 */
+	@Test
+	public void testSetValueOverridesPropertiesFile() {
+		testApplicationContext.loadValues("classpath:values.properties");
+		testApplicationContext.setValue("db.host", "db.example.com");
+		TestApplicationContext fork = testApplicationContext.fork();
+		fork.setValue("db.user", "admin");
+		assertEquals("jdbc:postgresql://db.example.com:5432/test", fork.getValue("${db.url}"));
+		assertEquals("admin/secret", fork.getValue("${db.user:sa}/${db.password}"));
+		fork.setValue("${db.url}", VALUE);
+		assertEquals(VALUE, fork.createInstance(MyBeanWithPlaceholderValues.class).getUrl());
+	}
+
+	/**
+	 * A placeholder without value and default leaves the value unknown.
+	 */
+	@Test
+	public void testUnresolvablePlaceholder() {
+		assertNull(testApplicationContext.getValue("${db.url}"));
+		testApplicationContext.setValue("a", "${b}");
+		testApplicationContext.setValue("b", "${a}");
+		try {
+			testApplicationContext.getValue("${a}");
+			fail("circular reference not detected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * A missing properties file is reported.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingPropertiesFile() {
+		testApplicationContext.loadValues("classpath:no-such.properties");
+	}
+
+	/**
+	 * Strings are converted to the types of constructor parameters, fields and setter parameters, collections element
+	 * by element, also by the fast injector used once a class was injected often.
+	 */
+	@Test
+	public void testConversion() {
+		testApplicationContext.setValue("port", "8080");
+		testApplicationContext.setValue("unit", "SECONDS");
+		testApplicationContext.setValue("enabled", "true");
+		testApplicationContext.setValue("ports", "1,2");
+		testApplicationContext.setValue("delays", "10,20");
+		for (int i = 0; i < 5; i++) {
+			MyBeanWithConvertedValues instance = testApplicationContext.createInstance(MyBeanWithConvertedValues.class);
+			assertEquals(8080, instance.getPort());
+			assertEquals(30L, instance.getTimeout());
+			assertEquals(TimeUnit.SECONDS, instance.getUnit());
+			assertTrue(instance.isEnabled());
+			assertEquals(Arrays.asList(1, 2), instance.getPorts());
+			assertEquals(Integer.valueOf(1), instance.getPorts().get(0));
+			assertEquals(new HashSet<Long>(Arrays.asList(10L, 20L)), instance.getDelays());
+		}
+	}
+
+	/**
+	 * A value is converted once for all forks, until it changes.
+	 */
+	@Test
+	public void testConvertedValueIsRemembered() {
+		testApplicationContext.setValue("port", "8080");
+		Integer port = testApplicationContext.getValue("port", int.class);
+		assertSame(port, testApplicationContext.fork().getValue("port", int.class));
+		TestApplicationContext fork = testApplicationContext.fork();
+		fork.setValue("port", "8081");
+		assertEquals(Integer.valueOf(8081), fork.getValue("port", int.class));
+	}
+
+	/**
+	 * A value which cannot be converted is reported.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testValueCannotBeConverted() {
+		testApplicationContext.setValue("port", "eighty");
+		testApplicationContext.createInstance(MyBeanWithConvertedValues.class);
+	}
+
+	/**
+	 * Expressions are evaluated after placeholders are resolved, on the beans registered by name, also in forks and by
+	 * the fast injector.
+	 */
+	@Test
+	public void testExpressions() {
+		Map<String, Object> settings = new HashMap<String, Object>();
+		settings.put("host", "localhost");
+		settings.put("port", 8080);
+		testApplicationContext.registerInstance("settings", settings);
+		TestApplicationContext fork = testApplicationContext.fork();
+		fork.setValue("timeout", "5");
+		for (int i = 0; i < 5; i++) {
+			MyBeanWithExpressionValues instance = fork.createInstance(MyBeanWithExpressionValues.class);
+			assertEquals(5000L, instance.getTimeoutMillis());
+			assertEquals(8081, instance.getAdminPort());
+			assertEquals("http://localhost:8080/", instance.getUrl());
+		}
+		assertEquals(30000, testApplicationContext.getValue("#{${timeout:30} * 1000}", int.class).intValue());
+	}
+
+	/**
+	 * System properties are known to expressions, and a value set for the whole expression text is found as it is.
+	 */
+	@Test
+	public void testSystemPropertiesAndRegisteredExpression() {
+		assertEquals(System.getProperty("java.version"),
+				testApplicationContext.getValue("#{systemProperties['java.version']}"));
+		testApplicationContext.setValue("#{2 * 3}", "7");
+		assertEquals("7", testApplicationContext.getValue("#{2 * 3}"));
+	}
+
+	/**
+	 * An expression which cannot be evaluated is reported.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testExpressionOnUnknownBean() {
+		testApplicationContext.getValue("#{@settings.host}");
+	}
+
 }
@@ -0,0 +1,110 @@
+package com.cellent.spring.utils.junit_spring;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.support.MyBean;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithFieldAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithProperties;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithSetterAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+import com.cellent.spring.utils.junit_spring.support.MyDelegateImplementation;
+
+/**
+ * Tests for loading beans and mocks from Spring XML files, as Springockito tests do.
+ * 
+ * @author bjoern
+ */
+public class XmlBeansTest {
+
+	/** Class under Test. */
+	private TestApplicationContext testApplicationContext;
+
+	/** Init Class under Test. */
+	@Before
+	public void init() {
+		testApplicationContext = new MockitoApplicationContext();
+	}
+
+	/**
+	 * The context.xml of the Springockito tests gives the same beans as with Springockito.
+	 */
+	@Test
+	public void testSpringockitoContext() {
+		testApplicationContext.loadBeans("file:src/test/resources/context.xml");
+		MyDelegate delegateMock = testApplicationContext.getInstance(MyDelegate.class);
+		assertTrue(Mockito.mockingDetails(delegateMock).isMock());
+		assertSame(delegateMock, testApplicationContext.getInstance("myDelegate"));
+		assertTrue(testApplicationContext.getInstance("myBean") instanceof MyBean);
+		assertSame(delegateMock,
+				((MyBeanWithFieldAutowiredBean) testApplicationContext.getInstance("myBeanWithFieldInjection"))
+						.getDelegate());
+		assertSame(delegateMock,
+				((MyBeanWithSetterAutowiredBean) testApplicationContext.getInstance("myBeanWithSetterInjection"))
+						.getDelegate());
+		assertSame(testApplicationContext.getInstance("myBeanWithFieldInjection"),
+				testApplicationContext.getInstance(MyBeanWithFieldAutowiredBean.class));
+	}
+
+	/**
+	 * Properties are set after all beans of the file exist and before the bean is initialized, and values are
+	 * converted to the type of the setter. Every context gets its own beans.
+	 */
+	@Test
+	public void testProperties() {
+		testApplicationContext.loadBeans("classpath:beans.xml");
+		MyBeanWithProperties bean = (MyBeanWithProperties) testApplicationContext.getInstance("myBeanWithProperties");
+		assertTrue(bean.getDelegate() instanceof MyDelegateImplementation);
+		assertSame(bean.getDelegate(), testApplicationContext.getInstance(MyDelegate.class));
+		assertEquals(30, bean.getTimeout());
+		assertTrue(bean.isInitializedWithDelegate());
+		TestApplicationContext other = new MockitoApplicationContext();
+		other.loadBeans("classpath:beans.xml");
+		assertNotSame(bean, other.getInstance("myBeanWithProperties"));
+	}
+
+	/**
+	 * What is not supported is reported rather than ignored.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedAttribute() {
+		testApplicationContext.loadBeans("classpath:unsupported-beans.xml");
+	}
+
+	/**
+	 * A bean which is not a singleton would have to be created on every lookup, which is not supported.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedScope() {
+		testApplicationContext.loadBeans("classpath:prototype-beans.xml");
+	}
+
+	/**
+	 * Every mock element gets a new mock of its own, even if the context knows an instance of the class already.
+	 */
+	@Test
+	public void testMockPerElement() {
+		MyDelegateImplementation registered = new MyDelegateImplementation();
+		testApplicationContext.registerInstance(registered);
+		testApplicationContext.loadBeans("classpath:two-mocks.xml");
+		Object first = testApplicationContext.getInstance("firstDelegate");
+		Object second = testApplicationContext.getInstance("secondDelegate");
+		assertTrue(Mockito.mockingDetails(first).isMock());
+		assertTrue(Mockito.mockingDetails(second).isMock());
+		assertNotSame(first, second);
+	}
+
+	/**
+	 * A missing file is reported.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingFile() {
+		testApplicationContext.loadBeans("classpath:no-such-beans.xml");
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithInheritedInjection;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate2;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate3;
+
+/**
+ * A class injected often is injected by a {@link FastInjector}, with the same result as by Spring.
+ * 
+ * @author bjoern
+ */
+public class FastInjectorTest {
+
+	/**
+	 * Before and after the fast injector takes over, fields, setters and values of the class and its generic superclass
+	 * are injected the same way.
+	 */
+	@Test
+	public void testSameInjectionAsSpring() {
+		for (int i = 0; i <= FastInjector.USES_BEFORE_COMPILATION + 1; i++) {
+			MockitoApplicationContext context = new MockitoApplicationContext();
+			context.setValue("inheritedInjectionValue", "value" + i);
+			MyBeanWithInheritedInjection bean = context.createInstance(MyBeanWithInheritedInjection.class);
+			assertTrue(bean.getDelegate() == context.getInstance(MyDelegate.class));
+			assertTrue(bean.getBaseDelegate() == context.getInstance(MyDelegate2.class));
+			assertTrue(bean.getTypedDelegate() == context.getInstance(MyDelegate3.class));
+			assertEquals("value" + i, bean.getFieldValue());
+			assertEquals("value" + i, bean.getSetterValue());
+		}
+		assertNotNull(FastInjector.forClass(MyBeanWithInheritedInjection.class));
+	}
+
+	/**
+	 * Unknown values are not set on fields but passed to setters, like Spring does.
+	 */
+	@Test
+	public void testUnknownValue() {
+		for (int i = 0; i <= FastInjector.USES_BEFORE_COMPILATION + 1; i++) {
+			MyBeanWithInheritedInjection bean = new MockitoApplicationContext()
+					.createInstance(MyBeanWithInheritedInjection.class);
+			assertEquals("default", bean.getFieldValue());
+			assertNull(bean.getSetterValue());
+		}
+	}
+
+	/**
+	 * A context which does not use fast injection never counts or builds fast injectors.
+	 */
+	@Test
+	public void testDisabled() {
+		MockitoApplicationContext context = new MockitoApplicationContext();
+		context.setUseFastInjection(false);
+		for (int i = 0; i <= FastInjector.USES_BEFORE_COMPILATION + 1; i++) {
+			context.processInjection(new ToBeInjected());
+		}
+		for (int i = 0; i < FastInjector.USES_BEFORE_COMPILATION; i++) {
+			assertNull(FastInjector.forClass(ToBeInjected.class));
+		}
+	}
+
+	/**
+	 * Class only used by {@link FastInjectorTest#testDisabled()}.
+	 */
+	public static class ToBeInjected {
+	}
+}
@@ -0,0 +1,94 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.support.MyBean;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithConstructorAutowiredBeanAndOtherConstructor;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithMethodParamInjected;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithNonDefaultNonAutowiredConstructor;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+
+/**
+ * Tests for {@link InjectionPlan}, which caches constructor resolution per class for all contexts.
+ * 
+ * @author bjoern
+ */
+public class InjectionPlanTest {
+
+	/**
+	 * The plan of a class is computed once and then shared, no matter how many contexts instantiate that class.
+	 */
+	@Test
+	public void testPlanIsSharedAcrossContexts() {
+		InjectionPlan plan = InjectionPlan.forClass(MyBeanWithConstructorAutowiredBeanAndOtherConstructor.class);
+		new MockitoApplicationContext().createInstance(MyBeanWithConstructorAutowiredBeanAndOtherConstructor.class);
+		new MockitoApplicationContext().createInstance(MyBeanWithConstructorAutowiredBeanAndOtherConstructor.class);
+		assertSame(plan, InjectionPlan.forClass(MyBeanWithConstructorAutowiredBeanAndOtherConstructor.class));
+	}
+
+	/**
+	 * The plan needs to pick the {@link Autowired}-Constructor and know its parameter types.
+	 */
+	@Test
+	public void testAutowiredConstructorIsChosen() {
+		InjectionPlan plan = InjectionPlan.forClass(MyBeanWithConstructorAutowiredBeanAndOtherConstructor.class);
+		assertNotNull(plan.getConstructor().getAnnotation(Autowired.class));
+		assertArrayEquals(new Class<?>[] { MyDelegate.class }, plan.getParameterTypes());
+		assertArrayEquals(new String[] { null }, plan.getValueKeys());
+	}
+
+	/**
+	 * The keys of {@link Value}-annotated constructor parameters are parsed once into the plan.
+	 */
+	@Test
+	public void testValueKeysArePreParsed() {
+		InjectionPlan plan = InjectionPlan.forClass(MyBeanWithMethodParamInjected.class);
+		assertArrayEquals(new String[] { "methodParamInjectedValue" }, plan.getValueKeys());
+	}
+
+	/**
+	 * A default constructor does not need any parameters.
+	 */
+	@Test
+	public void testDefaultConstructor() {
+		InjectionPlan plan = InjectionPlan.forClass(MyBean.class);
+		assertEquals(0, plan.getParameterTypes().length);
+		assertEquals(0, plan.getValueKeys().length);
+	}
+
+	/**
+	 * A class which cannot be instantiated must fail on every attempt, a failure is never cached as a plan.
+	 */
+	@Test
+	public void testNoPlanForIllegalConstructors() {
+		for (int i = 0; i < 2; i++) {
+			try {
+				InjectionPlan.forClass(MyBeanWithNonDefaultNonAutowiredConstructor.class);
+				fail("IllegalArgumentException expected");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	/**
+	 * Without plans, every instantiation resolves the same constructor again, also in forks.
+	 */
+	@Test
+	public void testWithoutPlans() {
+		InjectionPlan plan = InjectionPlan.resolve(MyBeanWithConstructorAutowiredBeanAndOtherConstructor.class);
+		assertNotSame(plan, InjectionPlan.resolve(MyBeanWithConstructorAutowiredBeanAndOtherConstructor.class));
+		assertEquals(InjectionPlan.forClass(MyBeanWithConstructorAutowiredBeanAndOtherConstructor.class)
+				.getConstructor(), plan.getConstructor());
+		MockitoApplicationContext context = new MockitoApplicationContext();
+		context.setUseInjectionPlans(false);
+		MyDelegate delegate = context.getInstance(MyDelegate.class);
+		assertSame(delegate,
+				context.fork().createInstance(MyBeanWithConstructorAutowiredBeanAndOtherConstructor.class).getDelegate());
+	}
+}
@@ -0,0 +1,66 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import static org.junit.Assert.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.cellent.spring.utils.junit_spring.impl.MockitoApplicationContext;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithConstructorAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithInheritedInjection;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithSetterAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate2;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate3;
+
+/**
+ * The prewarmer finds the dependencies of scanned classes and mocks them.
+ * 
+ * @author bjoern
+ */
+public class MockPrewarmerTest {
+
+	/**
+	 * All classes of a package are found, without loading them.
+	 * 
+	 * @throws Exception
+	 *             Not expected.
+	 */
+	@Test
+	public void testFindClassNames() throws Exception {
+		assertTrue(MockPrewarmer.findClassNames(getClass().getClassLoader(), "com.cellent.spring.utils.junit_spring.support")
+				.contains(MyDelegate.class.getName()));
+	}
+
+	/**
+	 * Dependencies of fields, setters and constructors, also inherited ones, are found.
+	 */
+	@Test
+	public void testDependencyTypes() {
+		ClassLoader classLoader = getClass().getClassLoader();
+		assertTrue(MockPrewarmer.dependencyTypesOf(MyBeanWithConstructorAutowiredBean.class.getName(), classLoader)
+				.contains(MyDelegate.class));
+		assertTrue(MockPrewarmer.dependencyTypesOf(MyBeanWithSetterAutowiredBean.class.getName(), classLoader)
+				.contains(MyDelegate.class));
+		assertTrue(MockPrewarmer.dependencyTypesOf(MyBeanWithInheritedInjection.class.getName(), classLoader)
+				.contains(MyDelegate.class));
+		assertTrue(MockPrewarmer.dependencyTypesOf("no.such.Clazz", classLoader).isEmpty());
+	}
+
+	/**
+	 * The dependencies of the scanned package are mocked.
+	 * 
+	 * @throws Exception
+	 *             Not expected.
+	 */
+	@Test
+	public void testPrewarm() throws Exception {
+		Set<Class<?>> mocked = MockPrewarmer.prewarm(MockitoApplicationContext.class,
+				"com.cellent.spring.utils.junit_spring.support").get(1, TimeUnit.MINUTES);
+		assertTrue(mocked.contains(MyDelegate.class));
+		assertTrue(mocked.contains(MyDelegate2.class));
+		assertTrue(mocked.contains(MyDelegate3.class));
+	}
+}
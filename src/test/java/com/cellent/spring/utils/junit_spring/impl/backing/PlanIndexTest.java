@@ -0,0 +1,127 @@
+package com.cellent.spring.utils.junit_spring.impl.backing;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithInheritedInjection;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+
+/**
+ * The plan index survives writing and reading and ignores stale or broken entries.
+ *
+ * @author bjoern
+ */
+public class PlanIndexTest {
+
+	/**
+	 * The index file, not yet existing.
+	 */
+	private File file;
+
+	/**
+	 * Give every test a fresh file.
+	 *
+	 * @throws Exception
+	 *             Not expected.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("plans", ".idx");
+		file.delete();
+		file.deleteOnExit();
+		new File(file.getPath() + ".lock").deleteOnExit();
+	}
+
+	/**
+	 * What is recorded is found again by the next reader of the file.
+	 *
+	 * @throws Exception
+	 *             Not expected.
+	 */
+	@Test
+	public void testWriteAndRead() throws Exception {
+		PlanIndex index = PlanIndex.read(file);
+		assertNull(index.find(MyBeanWithInheritedInjection.class));
+		index.record(MyBeanWithInheritedInjection.class, new String[0], null);
+		index.record(MyBeanWithInheritedInjection.class, null, new PlanIndex.MemberPlan[] { new PlanIndex.MemberPlan(
+				MyBeanWithInheritedInjection.class.getName(), "setDelegate",
+				new String[] { MyDelegate.class.getName() }, new String[] { MyDelegate.class.getName() }, null, false) });
+		index.write();
+
+		PlanIndex.Entry entry = PlanIndex.read(file).find(MyBeanWithInheritedInjection.class);
+		assertEquals(0, entry.constructorParameterTypes.length);
+		assertEquals(1, entry.members.length);
+		assertEquals("setDelegate", entry.members[0].name);
+		assertEquals(MyDelegate.class.getName(), entry.members[0].resolvedParameterTypes[0]);
+		assertNull(entry.members[0].valueKey);
+		assertFalse(entry.members[0].required);
+	}
+
+	/**
+	 * Two JVMs which read the file before either wrote it keep the entries of both: the second merges with what the
+	 * first wrote instead of with what it read.
+	 *
+	 * @throws Exception
+	 *             Not expected.
+	 */
+	@Test
+	public void testConcurrentWritersAreMerged() throws Exception {
+		PlanIndex first = PlanIndex.read(file);
+		PlanIndex second = PlanIndex.read(file);
+		first.record(MyDelegate.class, new String[0], null);
+		second.record(MyBeanWithInheritedInjection.class, new String[0], null);
+		first.write();
+		second.write();
+
+		PlanIndex merged = PlanIndex.read(file);
+		assertNotNull(merged.find(MyDelegate.class));
+		assertNotNull(merged.find(MyBeanWithInheritedInjection.class));
+	}
+
+	/**
+	 * Entries of other bytecode are stale and not found.
+	 *
+	 * @throws Exception
+	 *             Not expected.
+	 */
+	@Test
+	public void testStaleEntryIsIgnored() throws Exception {
+		PlanIndex index = PlanIndex.read(file);
+		index.record(MyDelegate.class, new String[0], null);
+		index.write();
+		// magic, version, entry length, class name length and class name come before the hash.
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			long position = 16 + MyDelegate.class.getName().length();
+			randomAccessFile.seek(position);
+			long hash = randomAccessFile.readLong();
+			randomAccessFile.seek(position);
+			randomAccessFile.writeLong(hash + 1);
+		} finally {
+			randomAccessFile.close();
+		}
+		assertNull(PlanIndex.read(file).find(MyDelegate.class));
+	}
+
+	/**
+	 * A file which is no index is read as empty index.
+	 *
+	 * @throws Exception
+	 *             Not expected.
+	 */
+	@Test
+	public void testBrokenFileIsEmpty() throws Exception {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.writeBytes("no index");
+		} finally {
+			randomAccessFile.close();
+		}
+		assertNull(PlanIndex.read(file).find(MyDelegate.class));
+	}
+}
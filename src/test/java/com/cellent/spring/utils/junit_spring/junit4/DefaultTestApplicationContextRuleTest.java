@@ -0,0 +1,55 @@
+package com.cellent.spring.utils.junit_spring.junit4;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.ClassRule;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithFieldAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+
+/**
+ * Without any setup of the base context, the mocks of the class under test are still created once by the base context
+ * and reused, reset, by every method. The methods run in order of their names.
+ * 
+ * @author bjoern
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class DefaultTestApplicationContextRuleTest {
+
+	/** Class under Test. */
+	@ClassRule
+	@Rule
+	public static final TestApplicationContextRule<MyBeanWithFieldAutowiredBean> CONTEXT = new TestApplicationContextRule<MyBeanWithFieldAutowiredBean>(
+			MyBeanWithFieldAutowiredBean.class);
+
+	/** The mock of the former method. */
+	private static MyDelegate formerDelegate;
+
+	/**
+	 * Stub and use the mock.
+	 */
+	@Test
+	public void test1UseMock() {
+		MyDelegate delegate = CONTEXT.getInstanceUnderTest().getDelegate();
+		when(delegate.toString()).thenReturn("stubbed");
+		delegate.executeVoidCall();
+		formerDelegate = delegate;
+	}
+
+	/**
+	 * The mock is the one of the former method, reset.
+	 */
+	@Test
+	public void test2SameMockReset() {
+		MyDelegate delegate = CONTEXT.getInstanceUnderTest().getDelegate();
+		assertTrue(delegate == formerDelegate);
+		assertTrue(delegate == CONTEXT.getContext().getInstance(MyDelegate.class));
+		assertFalse("stubbed".equals(delegate.toString()));
+		verify(delegate, never()).executeVoidCall();
+	}
+}
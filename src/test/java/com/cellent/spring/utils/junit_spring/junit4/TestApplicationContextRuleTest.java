@@ -0,0 +1,79 @@
+package com.cellent.spring.utils.junit_spring.junit4;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.ClassRule;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import com.cellent.spring.utils.junit_spring.api.TestApplicationContext;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithInheritedInjection;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+
+/**
+ * One base context for all methods of this class: its mocks are kept but reset, everything a method changes is gone
+ * for the next one. The methods run in order of their names and check what the former ones left.
+ * 
+ * @author bjoern
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestApplicationContextRuleTest {
+
+	/** Class under Test. */
+	@ClassRule
+	@Rule
+	public static final TestApplicationContextRule<MyBeanWithInheritedInjection> CONTEXT = new TestApplicationContextRule<MyBeanWithInheritedInjection>(
+			MyBeanWithInheritedInjection.class) {
+		@Override
+		protected void setUpBaseContext(TestApplicationContext base) {
+			base.setValue("inheritedInjectionValue", "baseline");
+			baseDelegate = base.getInstance(MyDelegate.class);
+			setUpCount++;
+		}
+	};
+
+	/** How often the base context was set up. */
+	private static int setUpCount;
+
+	/** The mock the base context created. */
+	private static MyDelegate baseDelegate;
+
+	/** The instance under test of the former method. */
+	private static MyBeanWithInheritedInjection formerInstance;
+
+	/** The mock the former method created in its own context. */
+	private static Runnable formerOwnMock;
+
+	/**
+	 * Use and change the context.
+	 */
+	@Test
+	public void test1ChangeContext() {
+		MyBeanWithInheritedInjection bean = CONTEXT.getInstanceUnderTest();
+		assertTrue(bean.getDelegate() == baseDelegate);
+		assertEquals("baseline", bean.getFieldValue());
+		when(baseDelegate.toString()).thenReturn("stubbed");
+		baseDelegate.executeVoidCall();
+		CONTEXT.getContext().setValue("inheritedInjectionValue", "changed");
+		formerInstance = bean;
+		formerOwnMock = CONTEXT.getContext().getInstance(Runnable.class);
+	}
+
+	/**
+	 * Nothing of the former method is left, except for the reset mocks of the base context.
+	 */
+	@Test
+	public void test2NothingLeft() {
+		MyBeanWithInheritedInjection bean = CONTEXT.getInstanceUnderTest();
+		assertEquals(1, setUpCount);
+		assertNotSame(formerInstance, bean);
+		assertTrue(bean.getDelegate() == baseDelegate);
+		assertFalse("stubbed".equals(baseDelegate.toString()));
+		verify(baseDelegate, never()).executeVoidCall();
+		assertEquals("baseline", CONTEXT.getContext().getValue("inheritedInjectionValue"));
+		assertNotSame(formerOwnMock, CONTEXT.getContext().getInstance(Runnable.class));
+	}
+}
@@ -0,0 +1,68 @@
+package com.cellent.spring.utils.junit_spring.spock;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import groovy.lang.GroovyClassLoader;
+
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+
+/**
+ * Runs the Spock specifications in src/test/groovy, which the build does not compile itself: each is compiled with
+ * Groovy (which applies Spock's transformation) and run by JUnit.
+ * 
+ * @author bjoern
+ */
+public class SpockSpecificationsTest {
+
+	/**
+	 * Where the specifications are, relative to the project directory.
+	 */
+	private static final File SPECIFICATIONS = new File("src/test/groovy");
+
+	/**
+	 * All specifications pass.
+	 */
+	@Test
+	public void testSpecifications() throws Exception {
+		List<File> files = new ArrayList<File>();
+		collectSpecifications(SPECIFICATIONS, files);
+		assertFalse("No specifications found in " + SPECIFICATIONS.getAbsolutePath(), files.isEmpty());
+		GroovyClassLoader classLoader = new GroovyClassLoader(getClass().getClassLoader());
+		List<String> failures = new ArrayList<String>();
+		for (File file : files) {
+			Result result = JUnitCore.runClasses(classLoader.parseClass(file));
+			assertTrue("No features run in " + file, result.getRunCount() > 0);
+			for (Failure failure : result.getFailures()) {
+				failures.add(file.getName() + ": " + failure.getTestHeader() + ": " + failure.getMessage());
+			}
+		}
+		assertTrue(failures.toString(), failures.isEmpty());
+	}
+
+	/**
+	 * @param dir
+	 *            A directory.
+	 * @param files
+	 *            Where to add all groovy files in it.
+	 */
+	private static void collectSpecifications(File dir, List<File> files) {
+		File[] children = dir.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File child : children) {
+			if (child.isDirectory()) {
+				collectSpecifications(child, files);
+			} else if (child.getName().endsWith(".groovy")) {
+				files.add(child);
+			}
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package com.cellent.spring.utils.junit_spring.springtest;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.test.context.support.DirtiesContextTestExecutionListener;
+
+import com.cellent.spring.utils.junit_spring.support.MyBean;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithFieldAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithProperties;
+import com.cellent.spring.utils.junit_spring.support.MyBeanWithSetterAutowiredBean;
+import com.cellent.spring.utils.junit_spring.support.MyDelegate;
+
+/**
+ * The Springockito tests of com.cellent.springockito, run with {@link TestApplicationContextLoader} instead.
+ * 
+ * @author bjoern
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(loader = TestApplicationContextLoader.class, locations = "file:src/test/resources/context.xml")
+@TestExecutionListeners({ DependencyInjectionTestExecutionListener.class, DirtiesContextTestExecutionListener.class })
+public class TestApplicationContextLoaderTest implements ApplicationContextAware {
+
+	/**
+	 * Should be a real instance containing {@link #delegateMock}.
+	 */
+	@Autowired
+	private MyBeanWithFieldAutowiredBean myBeanWithFieldAutowiredBean;
+
+	/**
+	 * Should be a real instance containing {@link #delegateMock}.
+	 */
+	@Autowired
+	private MyBeanWithSetterAutowiredBean myBeanWithSetterAutowiredBean;
+
+	/**
+	 * Should be a real instance.
+	 */
+	@Autowired
+	private MyBean bean;
+
+	/**
+	 * Should be a Mockito Mock.
+	 */
+	@Autowired
+	private MyDelegate delegateMock;
+
+	private ApplicationContext applicationContext;
+
+	/**
+	 * The beans of the file are injected into the test, with the mock injected into them.
+	 */
+	@Test
+	public void testInjection() {
+		assertTrue(bean instanceof MyBean);
+		assertTrue(Mockito.mockingDetails(delegateMock).isMock());
+		assertSame(delegateMock, myBeanWithFieldAutowiredBean.getDelegate());
+		assertSame(delegateMock, myBeanWithSetterAutowiredBean.getDelegate());
+	}
+
+	/**
+	 * The application context knows the beans by name and type.
+	 */
+	@Test
+	public void testApplicationContext() {
+		assertSame(delegateMock, applicationContext.getBean("myDelegate"));
+		assertSame(myBeanWithFieldAutowiredBean, applicationContext.getBean(MyBeanWithFieldAutowiredBean.class));
+		assertTrue(applicationContext.containsBean("myBean"));
+		assertFalse(applicationContext.containsBean("noSuchBean"));
+	}
+
+	/**
+	 * The least recently used test contexts are closed once there are too many, and loaded again when they are used
+	 * after that, as well as after their application context was closed.
+	 */
+	@Test
+	public void testEviction() {
+		System.setProperty(TestApplicationContextLoader.CACHE_SIZE_PROPERTY, "1");
+		try {
+			TestApplicationContextLoader loader = new TestApplicationContextLoader();
+			ApplicationContext first = loader.loadContext("classpath:beans.xml");
+			Object bean = first.getBean("myBeanWithProperties");
+			assertSame(bean, first.getBean("myBeanWithProperties"));
+			ApplicationContext second = loader.loadContext("file:src/test/resources/beans.xml");
+			assertTrue(second.getBean("myBeanWithProperties") instanceof MyBeanWithProperties);
+			Object reloaded = first.getBean("myBeanWithProperties");
+			assertNotSame(bean, reloaded);
+			((ConfigurableApplicationContext) first).close();
+			assertNotSame(reloaded, first.getBean("myBeanWithProperties"));
+			((ConfigurableApplicationContext) first).close();
+		} finally {
+			System.clearProperty(TestApplicationContextLoader.CACHE_SIZE_PROPERTY);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.springframework.context.ApplicationContextAware#setApplicationContext(org.springframework.context.
+	 * ApplicationContext)
+	 */
+	@Override
+	public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+		this.applicationContext = applicationContext;
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.cellent.spring.utils.junit_spring.support;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+/**
+ * Bean which has {@link Value}s of other types than String injected into a constructor, fields and setters,
+ * also collections of converted elements.
+ * 
+ * @author bjoern
+ */
+public class MyBeanWithConvertedValues {
+
+	private final int port;
+
+	@Value("${timeout:30}")
+	private long timeout;
+
+	@Value("unit")
+	private TimeUnit unit;
+
+	@Value("ports")
+	private List<Integer> ports;
+
+	private boolean enabled;
+
+	private Set<Long> delays;
+
+	@Autowired
+	public MyBeanWithConvertedValues(@Value("port") int port) {
+		this.port = port;
+	}
+
+	@Value("enabled")
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Value("delays")
+	public void setDelays(Set<Long> delays) {
+		this.delays = delays;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	public TimeUnit getUnit() {
+		return unit;
+	}
+
+	public List<Integer> getPorts() {
+		return ports;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public Set<Long> getDelays() {
+		return delays;
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.cellent.spring.utils.junit_spring.support;
+
+import org.springframework.beans.factory.annotation.Value;
+
+/**
+ * Bean which has {@link Value}s with "#{...}" expressions injected, on other beans and on placeholders.
+ * 
+ * @author bjoern
+ */
+public class MyBeanWithExpressionValues {
+
+	@Value("#{${timeout:30} * 1000}")
+	private long timeoutMillis;
+
+	@Value("#{settings.port + 1}")
+	private int adminPort;
+
+	@Value("http://#{@settings.host}:#{settings.port}/")
+	private String url;
+
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	public int getAdminPort() {
+		return adminPort;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+}
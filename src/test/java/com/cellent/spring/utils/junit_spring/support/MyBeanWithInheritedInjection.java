@@ -0,0 +1,38 @@
+package com.cellent.spring.utils.junit_spring.support;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+/**
+ * Bean which gets injected in its superclass as well as in its own fields and setters.
+ * 
+ * @author bjoern
+ */
+public class MyBeanWithInheritedInjection extends MyGenericBaseBean<MyDelegate3> {
+
+	@Autowired
+	private MyDelegate delegate;
+
+	@Value("inheritedInjectionValue")
+	private String fieldValue = "default";
+
+	private String setterValue = "default";
+
+	@Value("inheritedInjectionValue")
+	public void setSetterValue(String setterValue) {
+		this.setterValue = setterValue;
+	}
+
+	public MyDelegate getDelegate() {
+		return delegate;
+	}
+
+	public String getFieldValue() {
+		return fieldValue;
+	}
+
+	public String getSetterValue() {
+		return setterValue;
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.cellent.spring.utils.junit_spring.support;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+/**
+ * Bean for which an injector exists, {@link MyBeanWithInjector_Injector}, the output of the injector annotation
+ * processor plus counters.
+ * 
+ * @author bjoern
+ */
+public class MyBeanWithInjector {
+
+	final MyDelegate constructorDelegate;
+
+	@Autowired
+	MyDelegate2 fieldDelegate;
+
+	private String value;
+
+	@Autowired
+	public MyBeanWithInjector(MyDelegate constructorDelegate) {
+		this.constructorDelegate = constructorDelegate;
+	}
+
+	@Value("injectorValue")
+	public void setValue(String value) {
+		this.value = value;
+	}
+
+	public MyDelegate getConstructorDelegate() {
+		return constructorDelegate;
+	}
+
+	public MyDelegate2 getFieldDelegate() {
+		return fieldDelegate;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.cellent.spring.utils.junit_spring.support;
+
+/**
+ * Injector for {@link com.cellent.spring.utils.junit_spring.support.MyBeanWithInjector}, generated by com.cellent.spring.utils.junit_spring.processor.InjectorProcessor, plus counters of its calls so tests can check it is used.
+ */
+public final class MyBeanWithInjector_Injector implements com.cellent.spring.utils.junit_spring.api.BeanInjector<com.cellent.spring.utils.junit_spring.support.MyBeanWithInjector> {
+
+	public static int instancesCreated;
+
+	public static int instancesInjected;
+
+	@SuppressWarnings("unchecked")
+	public com.cellent.spring.utils.junit_spring.support.MyBeanWithInjector newInstance(com.cellent.spring.utils.junit_spring.api.BeanInstanceProvider provider) {
+		instancesCreated++;
+		return new com.cellent.spring.utils.junit_spring.support.MyBeanWithInjector((com.cellent.spring.utils.junit_spring.support.MyDelegate) provider.getInstance(com.cellent.spring.utils.junit_spring.support.MyDelegate.class));
+	}
+
+	@SuppressWarnings("unchecked")
+	public void injectMembers(com.cellent.spring.utils.junit_spring.support.MyBeanWithInjector instance, com.cellent.spring.utils.junit_spring.api.BeanInstanceProvider provider) {
+		instancesInjected++;
+		instance.fieldDelegate = (com.cellent.spring.utils.junit_spring.support.MyDelegate2) provider.getInstance(com.cellent.spring.utils.junit_spring.support.MyDelegate2.class);
+		instance.setValue((java.lang.String) provider.getValue("injectorValue", java.lang.String.class));
+	}
+}
@@ -0,0 +1,33 @@
+package com.cellent.spring.utils.junit_spring.support;
+
+import org.springframework.beans.factory.annotation.Value;
+
+/**
+ * Bean which has {@link Value}s with placeholders injected, as in production code reading properties files.
+ * 
+ * @author bjoern
+ */
+public class MyBeanWithPlaceholderValues {
+
+	@Value("${db.url}")
+	private String url;
+
+	@Value("${db.user:sa}")
+	private String user;
+
+	@Value("${db.user:sa}/${db.password}")
+	private String credentials;
+
+	public String getUrl() {
+		return url;
+	}
+
+	public String getUser() {
+		return user;
+	}
+
+	public String getCredentials() {
+		return credentials;
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.cellent.spring.utils.junit_spring.support;
+
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Bean with plain setters, which are only called if an XML file sets its properties.
+ * 
+ * @author bjoern
+ */
+public class MyBeanWithProperties implements InitializingBean {
+
+	private MyDelegate delegate;
+
+	private int timeout;
+
+	private boolean initializedWithDelegate;
+
+	public void setDelegate(MyDelegate delegate) {
+		this.delegate = delegate;
+	}
+
+	public MyDelegate getDelegate() {
+		return delegate;
+	}
+
+	public void setTimeout(int timeout) {
+		this.timeout = timeout;
+	}
+
+	public int getTimeout() {
+		return timeout;
+	}
+
+	public boolean isInitializedWithDelegate() {
+		return initializedWithDelegate;
+	}
+
+	public void afterPropertiesSet() {
+		initializedWithDelegate = delegate != null;
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.cellent.spring.utils.junit_spring.support;
+
+/**
+ * Real implementation of {@link MyDelegate}, to be registered in the context instead of a mock.
+ * 
+ * @author bjoern
+ */
+public class MyDelegateImplementation implements MyDelegate {
+
+	private int calls;
+
+	@Override
+	public void executeVoidCall() {
+		calls++;
+	}
+
+	public int getCalls() {
+		return calls;
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.cellent.spring.utils.junit_spring.support;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * A {@link DisposableBean}. Is used to test that {@link #destroy()} is called when its context is closed.
+ * 
+ * @author bjoern
+ */
+public class MyDisposableBean implements DisposableBean {
+
+	@Autowired
+	private MyDelegate delegate;
+
+	private boolean destroyed;
+
+	public MyDelegate getDelegate() {
+		return delegate;
+	}
+
+	public boolean isDestroyed() {
+		return destroyed;
+	}
+
+	public void destroy() throws Exception {
+		destroyed = true;
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.cellent.spring.utils.junit_spring.support;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Superclass with a private autowired field and a setter whose parameter type is only known in subclasses.
+ * 
+ * @author bjoern
+ */
+public abstract class MyGenericBaseBean<T> {
+
+	@Autowired
+	private MyDelegate2 baseDelegate;
+
+	private T typedDelegate;
+
+	@Autowired
+	public void setTypedDelegate(T typedDelegate) {
+		this.typedDelegate = typedDelegate;
+	}
+
+	public MyDelegate2 getBaseDelegate() {
+		return baseDelegate;
+	}
+
+	public T getTypedDelegate() {
+		return typedDelegate;
+	}
+
+}